@@ -0,0 +1,27 @@
+package com.giraone.thymeleaf.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * A {@link ByteArrayOutputStream}, whose content can be read without copying the buffer, e.g. to pass rendered HTML
+ * to the PDF converter without {@code toByteArray()} or {@code toString()}.
+ */
+public class DirectByteArrayOutputStream extends ByteArrayOutputStream {
+
+    public DirectByteArrayOutputStream() {
+        super();
+    }
+
+    public DirectByteArrayOutputStream(int size) {
+        super(size);
+    }
+
+    /**
+     * @return an input stream on the current content - the stream must not be used after further writes
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+}
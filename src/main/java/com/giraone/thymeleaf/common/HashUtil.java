@@ -0,0 +1,72 @@
+package com.giraone.thymeleaf.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content hashes, e.g. to build cache keys from template, CSS and data content.
+ */
+public final class HashUtil {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final byte[] NULL_MARKER = {(byte) 0xff};
+
+    // Hide
+    private HashUtil() {
+    }
+
+    /**
+     * Compute a SHA-256 hash over a list of strings. Each part is prefixed with its length, so ("ab", "c") and
+     * ("a", "bc") have different hashes. A null part is hashed differently from an empty part.
+     *
+     * @param parts the strings to hash - null values are allowed
+     * @return the hash as lower case hex string (64 characters)
+     */
+    public static String sha256Hex(String... parts) {
+
+        final MessageDigest digest = newSha256();
+        for (String part : parts) {
+            update(digest, part);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void update(MessageDigest digest, String part) {
+
+        if (part == null) {
+            digest.update(NULL_MARKER);
+            return;
+        }
+        final byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+        updateLength(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    public static void update(MessageDigest digest, byte[] part) {
+
+        if (part == null) {
+            digest.update(NULL_MARKER);
+            return;
+        }
+        updateLength(digest, part.length);
+        digest.update(part);
+    }
+
+    private static void updateLength(MessageDigest digest, int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+}
@@ -1,6 +1,8 @@
 package com.giraone.thymeleaf.common;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -8,6 +10,9 @@ import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -55,6 +60,28 @@ public class JsonUtil {
         return MAPPER.writeValueAsString(object);
     }
 
+    /**
+     * Convert an object to a JSON string, that is cut after a maximum length, e.g. for error messages. Large objects
+     * are serialized only up to this length.
+     *
+     * @param object    the object to convert
+     * @param maxLength the maximum number of characters - longer JSON is cut and "..." is appended
+     * @return the JSON String
+     * @throws IOException on any IO error
+     */
+    public static String convertObjectToJsonString(Object object, int maxLength) throws IOException {
+
+        final LimitedStringWriter writer = new LimitedStringWriter(maxLength);
+        try {
+            MAPPER.writeValue(writer, object);
+        } catch (IOException e) {
+            if (!writer.isExceeded()) {
+                throw e;
+            }
+        }
+        return writer.isExceeded() ? writer + "..." : writer.toString();
+    }
+
     /**
      * Convert a JSON string to HashMap<String,Object>.
      *
@@ -79,6 +106,50 @@ public class JsonUtil {
         return MAPPER.readValue(jsonString, LIST_TYPE_REFERENCE);
     }
 
+    /**
+     * Convert a JSON stream to HashMap<String,Object> or List<HashMap<String,Object>> - depending on whether the
+     * JSON data starts with an object or an array. The stream is parsed directly without an intermediate String.
+     *
+     * @param in the stream to convert - it is not closed
+     * @return the untyped HashMap or the untyped list of items
+     * @throws IOException on any IO error
+     */
+    public static Object convertToJsonMapOrList(InputStream in) throws IOException {
+
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                return MAPPER.readValue(parser, LIST_TYPE_REFERENCE);
+            } else {
+                return MAPPER.readValue(parser, MAP_TYPE_REFERENCE);
+            }
+        }
+    }
+
+    /**
+     * Convert JSON bytes to a lazy {@link LazyJsonMap} or {@link LazyJsonList} view - depending on whether the
+     * JSON data starts with an object or an array. Nested objects and arrays are decoded only when they are accessed.
+     *
+     * @param json the JSON data (UTF-8) - it must not be modified, as long as the view is used
+     * @return the lazy map or the lazy list of items
+     * @throws IOException on invalid JSON
+     */
+    public static Object convertToLazyJsonMapOrList(byte[] json) throws IOException {
+        return LazyJsonMap.of(MAPPER.getFactory(), json);
+    }
+
+    /**
+     * Read a sequence of JSON objects from a stream - either a JSON array of objects or newline delimited JSON
+     * (NDJSON). The objects are parsed one after another, while the iterator is consumed.
+     *
+     * @param in the stream to read - it is closed, when the last object is read
+     * @return an iterator of untyped HashMaps
+     * @throws IOException on any IO error
+     */
+    public static Iterator<Map<String, Object>> readJsonMaps(InputStream in) throws IOException {
+        return MAPPER.readerFor(MAP_TYPE_REFERENCE).readValues(in);
+    }
+
     public static <T> T convert(String jsonString,Class<T> valueTypeRef)
         throws IOException {
 
@@ -91,4 +162,50 @@ public class JsonUtil {
 
         return MAPPER.readValue(jsonString, valueTypeRef);
     }
-}
\ No newline at end of file
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Stops the serialization with an IOException, when the maximum length is exceeded.
+     */
+    private static class LimitedStringWriter extends Writer {
+
+        private final StringBuilder content = new StringBuilder();
+        private final int maxLength;
+        private boolean exceeded;
+
+        LimitedStringWriter(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+
+            final int count = Math.min(len, maxLength - content.length());
+            content.append(cbuf, off, count);
+            if (count < len) {
+                exceeded = true;
+                throw new IOException("Maximum length of " + maxLength + " characters exceeded");
+            }
+        }
+
+        @Override
+        public void flush() {
+            // nothing to flush
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        @Override
+        public String toString() {
+            return content.toString();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.giraone.thymeleaf.common;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list view on a JSON array, that is decoded on first access - see {@link LazyJsonMap}.
+ */
+public class LazyJsonList extends AbstractList<Object> {
+
+    private final JsonFactory jsonFactory;
+    private final byte[] json;
+    private final int offset;
+    private final int length;
+    private List<Object> elements;
+
+    LazyJsonList(JsonFactory jsonFactory, byte[] json, int offset, int length) {
+        this.jsonFactory = jsonFactory;
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public Object get(int index) {
+        return elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        return elements().set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        elements().add(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        return elements().remove(index);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private List<Object> elements() {
+
+        if (elements == null) {
+            final List<Object> decoded = new ArrayList<>();
+            try (JsonParser parser = jsonFactory.createParser(json, offset, length)) {
+                parser.nextToken(); // START_ARRAY
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    decoded.add(LazyJsonMap.decodeValue(jsonFactory, json, offset, parser));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode JSON array", e);
+            }
+            elements = decoded;
+        }
+        return elements;
+    }
+}
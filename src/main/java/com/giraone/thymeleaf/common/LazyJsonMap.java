@@ -0,0 +1,139 @@
+package com.giraone.thymeleaf.common;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map view on a JSON object, that is decoded on first access. Only the direct members of the object are decoded,
+ * nested objects and arrays are again represented by lazy views on the same byte array. So a template, that uses only
+ * a few fields of a large JSON document, does not pay for creating maps and lists for the rest of the document.
+ * <p>
+ * The map is mutable. Changes are applied to the decoded members and are not written back to the JSON bytes.
+ * </p>
+ */
+public class LazyJsonMap extends AbstractMap<String, Object> {
+
+    private final JsonFactory jsonFactory;
+    private final byte[] json;
+    private final int offset;
+    private final int length;
+    private Map<String, Object> members;
+
+    LazyJsonMap(JsonFactory jsonFactory, byte[] json, int offset, int length) {
+        this.jsonFactory = jsonFactory;
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return members().entrySet();
+    }
+
+    @Override
+    public int size() {
+        return members().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return members().containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return members().get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return members().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return members().remove(key);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Create a lazy view on a JSON object or array. The structure of the whole document is checked once, so syntax
+     * errors are reported here and not later, while the template is processed.
+     *
+     * @param jsonFactory the factory used to create parsers
+     * @param json the JSON data (UTF-8)
+     * @return a {@link LazyJsonMap} or a {@link LazyJsonList}
+     * @throws IOException if the JSON data is invalid or is neither an object nor an array
+     */
+    static Object of(JsonFactory jsonFactory, byte[] json) throws IOException {
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            final JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "JSON data must be an object or an array, but is " + token);
+            }
+            return decodeValue(jsonFactory, json, 0, parser);
+        }
+    }
+
+    /**
+     * Decode the value at the current token. Objects and arrays are skipped and returned as lazy views.
+     */
+    static Object decodeValue(JsonFactory jsonFactory, byte[] json, int baseOffset, JsonParser parser) throws IOException {
+
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+            case START_ARRAY:
+                final boolean isObject = parser.currentToken() == JsonToken.START_OBJECT;
+                final int start = baseOffset + (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                final int end = baseOffset + (int) parser.getTokenLocation().getByteOffset() + 1;
+                return isObject
+                    ? new LazyJsonMap(jsonFactory, json, start, end - start)
+                    : new LazyJsonList(jsonFactory, json, start, end - start);
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + parser.currentToken());
+        }
+    }
+
+    private Map<String, Object> members() {
+
+        if (members == null) {
+            final Map<String, Object> decoded = new LinkedHashMap<>();
+            try (JsonParser parser = jsonFactory.createParser(json, offset, length)) {
+                parser.nextToken(); // START_OBJECT
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    decoded.put(name, decodeValue(jsonFactory, json, offset, parser));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode JSON object", e);
+            }
+            members = decoded;
+        }
+        return members;
+    }
+}
@@ -0,0 +1,75 @@
+package com.giraone.thymeleaf.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream, that buffers the content up to a limit. When the limit is exceeded, the target stream is opened,
+ * the buffered content is written to it and all further content is passed through. This keeps small content, e.g.
+ * for a cache, without buffering large content completely.
+ */
+public class PassThroughOutputStream extends OutputStream {
+
+    /**
+     * Opens the target stream, when the limit is exceeded.
+     */
+    @FunctionalInterface
+    public interface Target {
+        OutputStream open() throws IOException;
+    }
+
+    private final long limit;
+    private final Target target;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream out;
+
+    public PassThroughOutputStream(long limit, Target target) {
+        this.limit = limit;
+        this.target = target;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        if (out == null && buffer.size() + (long) len > limit) {
+            out = target.open();
+            buffer.writeTo(out);
+            buffer = null;
+        }
+        if (out != null) {
+            out.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * @return true, if the limit was exceeded and the content was passed through to the target stream
+     */
+    public boolean isPassedThrough() {
+        return out != null;
+    }
+
+    /**
+     * @return the buffered content - only, if it was not passed through
+     */
+    public byte[] toByteArray() {
+        if (out != null) {
+            throw new IllegalStateException("The content was passed through and is not buffered!");
+        }
+        return buffer.toByteArray();
+    }
+}
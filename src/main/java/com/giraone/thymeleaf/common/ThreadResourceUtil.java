@@ -0,0 +1,39 @@
+package com.giraone.thymeleaf.common;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Resources used by the current thread, as far as the JVM supports measuring them.
+ */
+public final class ThreadResourceUtil {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+    private static final boolean ALLOCATION_SUPPORTED = THREAD_MX_BEAN != null && THREAD_MX_BEAN.isThreadAllocatedMemorySupported();
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN != null
+        && THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+
+    // Hide
+    private ThreadResourceUtil() {
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far or -1, if allocation measurement is not supported
+     */
+    public static long allocatedBytes() {
+        // -1 as well, if the measurement is disabled
+        return ALLOCATION_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() : -1L;
+    }
+
+    /**
+     * @return the CPU time of the current thread so far in nanoseconds or -1, if CPU time measurement is not supported
+     */
+    public static long cpuTimeNanos() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1L;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean ? bean : null;
+    }
+}
@@ -1,6 +1,21 @@
 package com.giraone.thymeleaf.config;
 
+import com.giraone.thymeleaf.controller.HtmlStreamingConfiguration;
+import com.giraone.thymeleaf.controller.LargePayloadConfiguration;
+import com.giraone.thymeleaf.service.BatchRenderConfiguration;
+import com.giraone.thymeleaf.service.RenderMetricsConfiguration;
+import com.giraone.thymeleaf.service.asset.AssetPrefetchConfiguration;
+import com.giraone.thymeleaf.service.asset.PdfAssetCacheConfiguration;
+import com.giraone.thymeleaf.service.asset.SvgRasterCacheConfiguration;
+import com.giraone.thymeleaf.service.TemplateRegistryConfiguration;
+import com.giraone.thymeleaf.service.cache.PdfRenderCacheConfiguration;
+import com.giraone.thymeleaf.service.cache.TemplateCacheConfiguration;
 import com.giraone.thymeleaf.service.convert.Pd4mlConfiguration;
+import com.giraone.thymeleaf.service.convert.Pd4mlPoolConfiguration;
+import com.giraone.thymeleaf.service.convert.PdfRenderLimitConfiguration;
+import com.giraone.thymeleaf.service.capture.RenderCaptureConfiguration;
+import com.giraone.thymeleaf.service.jfr.JfrRecordingConfiguration;
+import com.giraone.thymeleaf.service.job.PdfJobConfiguration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -20,10 +35,59 @@ public class ApplicationProperties {
     private String htmlBase;
     /** URL passed to JSON data as "base" while rendering PDFs from JSON */
     private String htmlPdfBase;
+    /** Decode JSON data lazily - only the objects and arrays, that are used by a template, are decoded */
+    private boolean lazyDataDecoding = true;
+    /** Decode uploaded JSON data lazily too - the upload is then read completely onto the heap before it is decoded */
+    private boolean lazyStreamDecoding;
 
     /** License configuration for PD4ML */
     private Pd4mlConfiguration pd4mlConfiguration = new Pd4mlConfiguration();
 
+    /** Reuse of pre-configured PD4ML instances */
+    private Pd4mlPoolConfiguration pd4mlPool = new Pd4mlPoolConfiguration();
+
+    /** Cache for images, stylesheets and fonts loaded while rendering PDFs */
+    private PdfAssetCacheConfiguration pdfAssetCache = new PdfAssetCacheConfiguration();
+
+    /** Concurrent loading of the assets of a PDF before the layout */
+    private AssetPrefetchConfiguration pdfAssetPrefetch = new AssetPrefetchConfiguration();
+
+    /** Cache for SVG assets rasterized to PNG */
+    private SvgRasterCacheConfiguration pdfSvgRasterCache = new SvgRasterCacheConfiguration();
+
+    /** Limit for concurrent PDF renders */
+    private PdfRenderLimitConfiguration pdfRenderLimit = new PdfRenderLimitConfiguration();
+
+    /** Cache configuration for parsed Thymeleaf templates */
+    private TemplateCacheConfiguration templateCache = new TemplateCacheConfiguration();
+
+    /** Cache for rendered PDFs */
+    private PdfRenderCacheConfiguration pdfRenderCache = new PdfRenderCacheConfiguration();
+
+    /** Per stage timers and size summaries of renders */
+    private RenderMetricsConfiguration renderMetrics = new RenderMetricsConfiguration();
+
+    /** Limits for Java Flight Recorder recordings started by the actuator endpoint */
+    private JfrRecordingConfiguration jfrRecording = new JfrRecordingConfiguration();
+
+    /** Recording of anonymized render requests for an offline replay */
+    private RenderCaptureConfiguration renderCapture = new RenderCaptureConfiguration();
+
+    /** Limits for the registry of named templates */
+    private TemplateRegistryConfiguration templateRegistry = new TemplateRegistryConfiguration();
+
+    /** Streaming of rendered HTML to the response */
+    private HtmlStreamingConfiguration htmlStreaming = new HtmlStreamingConfiguration();
+
+    /** Spill files for large data parts of multipart requests */
+    private LargePayloadConfiguration largePayload = new LargePayloadConfiguration();
+
+    /** Worker pool for batch rendering of many records with one template */
+    private BatchRenderConfiguration batchRender = new BatchRenderConfiguration();
+
+    /** Queue, render pool and result store for asynchronous PDF jobs */
+    private PdfJobConfiguration pdfJobs = new PdfJobConfiguration();
+
     public boolean isShowConfigOnStartup() {
         return showConfigOnStartup;
     }
@@ -48,6 +112,22 @@ public class ApplicationProperties {
         this.htmlPdfBase = htmlPdfBase;
     }
 
+    public boolean isLazyDataDecoding() {
+        return lazyDataDecoding;
+    }
+
+    public void setLazyDataDecoding(boolean lazyDataDecoding) {
+        this.lazyDataDecoding = lazyDataDecoding;
+    }
+
+    public boolean isLazyStreamDecoding() {
+        return lazyStreamDecoding;
+    }
+
+    public void setLazyStreamDecoding(boolean lazyStreamDecoding) {
+        this.lazyStreamDecoding = lazyStreamDecoding;
+    }
+
     public Pd4mlConfiguration getPd4mlConfiguration() {
         return pd4mlConfiguration;
     }
@@ -56,13 +136,150 @@ public class ApplicationProperties {
         this.pd4mlConfiguration = pd4mlConfiguration;
     }
 
+    public Pd4mlPoolConfiguration getPd4mlPool() {
+        return pd4mlPool;
+    }
+
+    public void setPd4mlPool(Pd4mlPoolConfiguration pd4mlPool) {
+        this.pd4mlPool = pd4mlPool;
+    }
+
+    public PdfAssetCacheConfiguration getPdfAssetCache() {
+        return pdfAssetCache;
+    }
+
+    public void setPdfAssetCache(PdfAssetCacheConfiguration pdfAssetCache) {
+        this.pdfAssetCache = pdfAssetCache;
+    }
+
+    public AssetPrefetchConfiguration getPdfAssetPrefetch() {
+        return pdfAssetPrefetch;
+    }
+
+    public void setPdfAssetPrefetch(AssetPrefetchConfiguration pdfAssetPrefetch) {
+        this.pdfAssetPrefetch = pdfAssetPrefetch;
+    }
+
+    public SvgRasterCacheConfiguration getPdfSvgRasterCache() {
+        return pdfSvgRasterCache;
+    }
+
+    public void setPdfSvgRasterCache(SvgRasterCacheConfiguration pdfSvgRasterCache) {
+        this.pdfSvgRasterCache = pdfSvgRasterCache;
+    }
+
+    public PdfRenderLimitConfiguration getPdfRenderLimit() {
+        return pdfRenderLimit;
+    }
+
+    public void setPdfRenderLimit(PdfRenderLimitConfiguration pdfRenderLimit) {
+        this.pdfRenderLimit = pdfRenderLimit;
+    }
+
+    public TemplateCacheConfiguration getTemplateCache() {
+        return templateCache;
+    }
+
+    public void setTemplateCache(TemplateCacheConfiguration templateCache) {
+        this.templateCache = templateCache;
+    }
+
+    public PdfRenderCacheConfiguration getPdfRenderCache() {
+        return pdfRenderCache;
+    }
+
+    public void setPdfRenderCache(PdfRenderCacheConfiguration pdfRenderCache) {
+        this.pdfRenderCache = pdfRenderCache;
+    }
+
+    public RenderMetricsConfiguration getRenderMetrics() {
+        return renderMetrics;
+    }
+
+    public void setRenderMetrics(RenderMetricsConfiguration renderMetrics) {
+        this.renderMetrics = renderMetrics;
+    }
+
+    public JfrRecordingConfiguration getJfrRecording() {
+        return jfrRecording;
+    }
+
+    public void setJfrRecording(JfrRecordingConfiguration jfrRecording) {
+        this.jfrRecording = jfrRecording;
+    }
+
+    public RenderCaptureConfiguration getRenderCapture() {
+        return renderCapture;
+    }
+
+    public void setRenderCapture(RenderCaptureConfiguration renderCapture) {
+        this.renderCapture = renderCapture;
+    }
+
+    public TemplateRegistryConfiguration getTemplateRegistry() {
+        return templateRegistry;
+    }
+
+    public void setTemplateRegistry(TemplateRegistryConfiguration templateRegistry) {
+        this.templateRegistry = templateRegistry;
+    }
+
+    public HtmlStreamingConfiguration getHtmlStreaming() {
+        return htmlStreaming;
+    }
+
+    public void setHtmlStreaming(HtmlStreamingConfiguration htmlStreaming) {
+        this.htmlStreaming = htmlStreaming;
+    }
+
+    public LargePayloadConfiguration getLargePayload() {
+        return largePayload;
+    }
+
+    public void setLargePayload(LargePayloadConfiguration largePayload) {
+        this.largePayload = largePayload;
+    }
+
+    public BatchRenderConfiguration getBatchRender() {
+        return batchRender;
+    }
+
+    public void setBatchRender(BatchRenderConfiguration batchRender) {
+        this.batchRender = batchRender;
+    }
+
+    public PdfJobConfiguration getPdfJobs() {
+        return pdfJobs;
+    }
+
+    public void setPdfJobs(PdfJobConfiguration pdfJobs) {
+        this.pdfJobs = pdfJobs;
+    }
+
     @Override
     public String toString() {
         return "ApplicationProperties{" +
             "showConfigOnStartup=" + showConfigOnStartup +
             ", htmlBase='" + htmlBase + '\'' +
             ", htmlPdfBase='" + htmlPdfBase + '\'' +
+            ", lazyDataDecoding=" + lazyDataDecoding +
+            ", lazyStreamDecoding=" + lazyStreamDecoding +
             ", pd4mlConfiguration=" + pd4mlConfiguration +
+            ", pd4mlPool=" + pd4mlPool +
+            ", pdfAssetCache=" + pdfAssetCache +
+            ", pdfAssetPrefetch=" + pdfAssetPrefetch +
+            ", pdfSvgRasterCache=" + pdfSvgRasterCache +
+            ", pdfRenderLimit=" + pdfRenderLimit +
+            ", templateCache=" + templateCache +
+            ", pdfRenderCache=" + pdfRenderCache +
+            ", renderMetrics=" + renderMetrics +
+            ", jfrRecording=" + jfrRecording +
+            ", renderCapture=" + renderCapture +
+            ", templateRegistry=" + templateRegistry +
+            ", htmlStreaming=" + htmlStreaming +
+            ", largePayload=" + largePayload +
+            ", batchRender=" + batchRender +
+            ", pdfJobs=" + pdfJobs +
             '}';
     }
 }
@@ -0,0 +1,15 @@
+package com.giraone.thymeleaf.config;
+
+import com.giraone.thymeleaf.service.RenderMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MeterFilter renderMetricsTemplateTagLimit(ApplicationProperties applicationProperties) {
+        return RenderMetrics.templateTagLimit(applicationProperties.getRenderMetrics().getMaxTemplateTags());
+    }
+}
@@ -44,7 +44,7 @@ public class WebConfiguration implements WebMvcConfigurer {
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
             .allowedOrigins("*") // Allow CORS for every domain
-            .allowedMethods("POST")
+            .allowedMethods("GET", "POST", "PUT", "DELETE")
             .allowedHeaders("header1", "header2", "header3")
             .exposedHeaders("header1", "header2")
             // one hour
@@ -0,0 +1,347 @@
+package com.giraone.thymeleaf.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.giraone.thymeleaf.common.DirectByteArrayOutputStream;
+import com.giraone.thymeleaf.common.JsonUtil;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.BatchRenderConfiguration;
+import com.giraone.thymeleaf.service.BatchRenderService;
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.RegisteredTemplate;
+import com.giraone.thymeleaf.service.TemplateRegistry;
+import com.giraone.thymeleaf.service.convert.HtmlToPdfConverter;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.commons.text.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.thymeleaf.exceptions.TemplateInputException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.giraone.thymeleaf.controller.RenderHtmlController.*;
+import static com.giraone.thymeleaf.controller.RenderPdfController.buildPdfCreationOptions;
+import static com.giraone.thymeleaf.controller.TemplateRegistryController.templateCannotBeParsed;
+
+/**
+ * REST controller to render many data records with the same template in one request - either to HTML or to PDF.
+ * The records are passed either as a JSON array of objects or as newline delimited JSON (NDJSON).
+ */
+@RestController
+@RequestMapping("/api")
+public class BatchRenderController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchRenderController.class);
+
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    public static final String MEDIA_TYPE_ZIP = "application/zip";
+    public static final String PARAM_entryNameField = "entryNameField";
+
+    private static final Pattern UNSAFE_ENTRY_NAME_CHARS = Pattern.compile("[^A-Za-z0-9._-]");
+    private static final int MAX_ENTRY_NAME_LENGTH = 100;
+
+    private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
+    private final HtmlToPdfConverter htmlToPdfConverter;
+    private final BatchRenderService batchRenderService;
+    private final TemplateRegistry templateRegistry;
+    private final BatchRenderConfiguration batchRenderConfiguration;
+
+    @Autowired
+    public BatchRenderController(JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor, HtmlToPdfConverter htmlToPdfConverter,
+                                 BatchRenderService batchRenderService, TemplateRegistry templateRegistry,
+                                 ApplicationProperties applicationProperties) {
+        this.jsonToHtmlProcessor = jsonToHtmlProcessor;
+        this.htmlToPdfConverter = htmlToPdfConverter;
+        this.batchRenderService = batchRenderService;
+        this.templateRegistry = templateRegistry;
+        this.batchRenderConfiguration = applicationProperties.getBatchRender();
+    }
+
+    @Timed
+    @Operation(
+        summary = "Render one HTML document per data record from a variable template and css file.",
+        description = "The data file contains a JSON array of objects or NDJSON. The result is NDJSON with one line " +
+            "per record, tagged with the index of the record. The lines are written in the order of completion.")
+    @ApiResponse(responseCode = "200", description = "When the template can be parsed. Errors of single records are part of the result.")
+    @ApiResponse(responseCode = "400", description = "When the template cannot be parsed or the data is no JSON.")
+    @PostMapping(value = "/batch/json-to-html", produces = MEDIA_TYPE_NDJSON)
+    public void renderBatchToHtmlByMultipartRequest(
+        @RequestParam(PARAM_data) MultipartFile dataFile,
+        @RequestParam(PARAM_template) MultipartFile templateFile,
+        @RequestParam(value = PARAM_css, required = false) MultipartFile cssFile,
+        HttpServletResponse response) throws IOException {
+
+        LOGGER.info("BatchRenderController.renderBatchToHtmlByMultipartRequest data={}, template={}, css={}",
+            dataFile, templateFile, cssFile);
+        final PreparedTemplate template = PreparedTemplate.of(
+            new String(templateFile.getBytes(), StandardCharsets.UTF_8),
+            cssFile != null ? new String(cssFile.getBytes(), StandardCharsets.UTF_8) : null);
+        try (InputStream in = dataFile.getInputStream()) {
+            renderHtmlBatch(in, template, response);
+        }
+    }
+
+    @Timed
+    @Operation(
+        summary = "Render one HTML document per data record from a registered template.",
+        description = "The request body is a JSON array of objects or NDJSON. The result is the same as for POST /api/batch/json-to-html.")
+    @ApiResponse(responseCode = "200", description = "Errors of single records are part of the result.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID or version.")
+    @PostMapping(value = "/templates/{id}/batch/html", consumes = {MEDIA_TYPE_NDJSON, MediaType.APPLICATION_JSON_VALUE},
+        produces = MEDIA_TYPE_NDJSON)
+    public void renderBatchToHtmlByTemplateId(
+        @PathVariable String id,
+        @RequestParam(value = PARAM_version, required = false) Integer version,
+        HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+
+        LOGGER.info("BatchRenderController.renderBatchToHtmlByTemplateId id={}, version={}", id, version);
+        final RegisteredTemplate registeredTemplate = findRegisteredTemplate(templateRegistry, id, version);
+        renderHtmlBatch(request.getInputStream(), registeredTemplate.template(), response);
+    }
+
+    @Timed
+    @Operation(
+        summary = "Render one PDF per data record from a variable template and css file (mail merge).",
+        description = "The data file contains a JSON array of objects or NDJSON. The result is a ZIP archive, that is " +
+            "streamed while the PDFs are rendered. The PDF files are named by the value of the data field given in " +
+            "entryNameField. Records, that cannot be rendered, are added as *.error.html files.")
+    @ApiResponse(responseCode = "200", description = "When the template can be parsed. Errors of single records are part of the result.")
+    @ApiResponse(responseCode = "400", description = "When the template cannot be parsed or the data is no JSON.")
+    @PostMapping(value = "/batch/json-to-pdf", produces = MEDIA_TYPE_ZIP)
+    public void renderBatchToPdfByMultipartRequest(
+        @RequestParam(PARAM_data) MultipartFile dataFile,
+        @RequestParam(PARAM_template) MultipartFile templateFile,
+        @RequestParam(value = PARAM_css, required = false) MultipartFile cssFile,
+        @RequestParam(value = PARAM_entryNameField, required = false) String entryNameField,
+        HttpServletResponse response) throws IOException {
+
+        LOGGER.info("BatchRenderController.renderBatchToPdfByMultipartRequest data={}, template={}, css={}",
+            dataFile, templateFile, cssFile);
+        final PreparedTemplate template = PreparedTemplate.of(
+            new String(templateFile.getBytes(), StandardCharsets.UTF_8),
+            cssFile != null ? new String(cssFile.getBytes(), StandardCharsets.UTF_8) : null);
+        try (InputStream in = dataFile.getInputStream()) {
+            renderPdfBatch(in, template, entryNameField, response);
+        }
+    }
+
+    @Timed
+    @Operation(
+        summary = "Render one PDF per data record from a registered template (mail merge).",
+        description = "The request body is a JSON array of objects or NDJSON. The result is the same as for POST /api/batch/json-to-pdf.")
+    @ApiResponse(responseCode = "200", description = "Errors of single records are part of the result.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID or version.")
+    @PostMapping(value = "/templates/{id}/batch/pdf", consumes = {MEDIA_TYPE_NDJSON, MediaType.APPLICATION_JSON_VALUE},
+        produces = MEDIA_TYPE_ZIP)
+    public void renderBatchToPdfByTemplateId(
+        @PathVariable String id,
+        @RequestParam(value = PARAM_version, required = false) Integer version,
+        @RequestParam(value = PARAM_entryNameField, required = false) String entryNameField,
+        HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+
+        LOGGER.info("BatchRenderController.renderBatchToPdfByTemplateId id={}, version={}", id, version);
+        final RegisteredTemplate registeredTemplate = findRegisteredTemplate(templateRegistry, id, version);
+        renderPdfBatch(request.getInputStream(), registeredTemplate.template(), entryNameField, response);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void renderHtmlBatch(InputStream in, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
+        final Iterator<Map<String, Object>> records = prepareBatch(in, template);
+        response.setContentType(MEDIA_TYPE_NDJSON);
+        response.setStatus(HttpStatus.OK.value());
+        final OutputStream out = response.getOutputStream();
+        try {
+            final int count = batchRenderService.render(records,
+                (index, data) -> renderHtml(index, data, template),
+                (index, result) -> writeLine(out, result));
+            LOGGER.info("BatchRenderController.renderHtmlBatch rendered {} records", count);
+        } catch (RuntimeException e) {
+            if (!isJsonParseError(e)) {
+                throw e;
+            }
+            LOGGER.warn("BatchRenderController.renderHtmlBatch aborted: {}", e.getMessage());
+            writeLine(out, new BatchRenderResult(null, null, "Invalid JSON data: " + e.getMessage()));
+        }
+        out.flush();
+    }
+
+    private void renderPdfBatch(InputStream in, PreparedTemplate template, String entryNameField, HttpServletResponse response)
+        throws IOException {
+
+        final Iterator<Map<String, Object>> records = prepareBatch(in, template);
+        final String nameField = entryNameField != null ? entryNameField : batchRenderConfiguration.getEntryNameField();
+        final Set<String> entryNames = new HashSet<>();
+
+        response.setContentType(MEDIA_TYPE_ZIP);
+        response.setStatus(HttpStatus.OK.value());
+        // The archive is written entry by entry to the response. It is never buffered completely.
+        final ZipOutputStream zip = new ZipOutputStream(response.getOutputStream());
+        try {
+            final int count = batchRenderService.render(records,
+                (index, data) -> renderPdf(index, data, template, nameField),
+                (index, result) -> {
+                    final String entryName = uniqueEntryName(result.name(), index, entryNames);
+                    if (result.pdf() != null) {
+                        writeStoredEntry(zip, entryName + ".pdf", result.pdf());
+                    } else {
+                        writeEntry(zip, entryName + ".error.html", result.error().getBytes(StandardCharsets.UTF_8));
+                    }
+                });
+            LOGGER.info("BatchRenderController.renderPdfBatch rendered {} records", count);
+        } catch (RuntimeException e) {
+            if (!isJsonParseError(e)) {
+                throw e;
+            }
+            LOGGER.warn("BatchRenderController.renderPdfBatch aborted: {}", e.getMessage());
+            writeEntry(zip, "batch.error.txt", ("Invalid JSON data: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private Iterator<Map<String, Object>> prepareBatch(InputStream in, PreparedTemplate template) throws IOException {
+
+        try {
+            jsonToHtmlProcessor.precompile(template);
+        } catch (TemplateInputException e) {
+            throw templateCannotBeParsed(e);
+        }
+        try {
+            return JsonUtil.readJsonMaps(in);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid JSON data: " + e.getOriginalMessage());
+        }
+    }
+
+    private BatchRenderResult renderHtml(int index, Map<String, Object> data, PreparedTemplate template) {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final String error;
+        try {
+            error = jsonToHtmlProcessor.prepareTemplateWithDataForHtmlOutput(out, data, template);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return error == null
+            ? new BatchRenderResult(index, out.toString(StandardCharsets.UTF_8), null)
+            : new BatchRenderResult(index, null, error);
+    }
+
+    private PdfRenderResult renderPdf(int index, Map<String, Object> data, PreparedTemplate template, String nameField) {
+
+        final String name = entryNameOf(data, nameField);
+        final DirectByteArrayOutputStream htmlOut = new DirectByteArrayOutputStream();
+        final String error;
+        try {
+            error = jsonToHtmlProcessor.prepareTemplateWithDataForPdfOutput(htmlOut, data, template);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (error != null) {
+            return new PdfRenderResult(name, null, error);
+        }
+        final ByteArrayOutputStream pdfOut = new ByteArrayOutputStream();
+        try {
+            htmlToPdfConverter.generatePdfStreamFromHtmlStream(htmlOut.toInputStream(), null, pdfOut, buildPdfCreationOptions(data));
+        } catch (Exception e) {
+            LOGGER.error("Failed to create PDF for record {}", index, e);
+            return new PdfRenderResult(name, null, "<hr /><h3>PDF Exception:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(String.valueOf(e.getMessage())) + "</pre>");
+        }
+        return new PdfRenderResult(name, pdfOut.toByteArray(), null);
+    }
+
+    static String entryNameOf(Map<String, Object> data, String nameField) {
+
+        Object value = data;
+        for (String key : nameField.split("\\.")) {
+            value = value instanceof Map ? ((Map<?, ?>) value).get(key) : null;
+        }
+        if (value == null || value instanceof Map || value instanceof List) {
+            return null;
+        }
+        String name = UNSAFE_ENTRY_NAME_CHARS.matcher(value.toString()).replaceAll("_");
+        name = name.startsWith(".") ? "_" + name.substring(1) : name;
+        return name.length() > MAX_ENTRY_NAME_LENGTH ? name.substring(0, MAX_ENTRY_NAME_LENGTH) : name;
+    }
+
+    static String uniqueEntryName(String name, int index, Set<String> entryNames) {
+
+        final String baseName = name == null || name.isEmpty() ? "record-" + index : name;
+        String entryName = baseName;
+        // A suffix may produce the name of another record, e.g. "a-3", so the loop runs until the name is unused
+        for (int suffix = index; !entryNames.add(entryName); suffix++) {
+            entryName = baseName + "-" + suffix;
+        }
+        return entryName;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String entryName, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(entryName));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    /**
+     * Write an entry without compression. PDFs are already compressed, so deflating them again costs CPU for each
+     * record and hardly reduces the size.
+     */
+    private static void writeStoredEntry(ZipOutputStream zip, String entryName, byte[] content) throws IOException {
+
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        final ZipEntry entry = new ZipEntry(entryName);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static boolean isJsonParseError(RuntimeException e) {
+        // The iterator wraps parse errors of the data records
+        return e.getCause() instanceof JsonProcessingException;
+    }
+
+    private static void writeLine(OutputStream out, BatchRenderResult result) throws IOException {
+        out.write(JsonUtil.convertObjectToJsonBytes(result));
+        out.write('\n');
+    }
+
+    private record PdfRenderResult(String name, byte[] pdf, String error) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.giraone.thymeleaf.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of the NDJSON result of a batch rendering. Either {@code html} or {@code error} is set.
+ * When the batch is aborted, because a record cannot be parsed, the last line contains only the error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchRenderResult(Integer index, String html, String error) {
+}
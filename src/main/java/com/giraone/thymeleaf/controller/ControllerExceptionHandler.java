@@ -0,0 +1,30 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.service.convert.PdfRenderRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps service exceptions, that are not handled by the controllers themselves, to HTTP responses.
+ */
+@RestControllerAdvice
+public class ControllerExceptionHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ControllerExceptionHandler.class);
+
+    @ExceptionHandler(PdfRenderRejectedException.class)
+    public ResponseEntity<String> handlePdfRenderRejected(PdfRenderRejectedException e) {
+
+        LOGGER.warn("PDF render rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+            .contentType(MediaType.TEXT_PLAIN)
+            .body(e.getMessage());
+    }
+}
@@ -0,0 +1,38 @@
+package com.giraone.thymeleaf.controller;
+
+import org.springframework.util.unit.DataSize;
+
+public class HtmlStreamingConfiguration {
+
+    /** Write rendered HTML directly to the response instead of rendering it into memory first. */
+    private boolean enabled = true;
+    /**
+     * Size of the response buffer in streaming mode. Errors, that are detected before this amount of HTML is written,
+     * are still reported with status 400. Later errors can only be appended to the already sent output.
+     */
+    private DataSize responseBufferSize = DataSize.ofKilobytes(64);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getResponseBufferSize() {
+        return responseBufferSize;
+    }
+
+    public void setResponseBufferSize(DataSize responseBufferSize) {
+        this.responseBufferSize = responseBufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return "HtmlStreamingConfiguration{" +
+            "enabled=" + enabled +
+            ", responseBufferSize=" + responseBufferSize +
+            '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.giraone.thymeleaf.controller;
+
+import org.springframework.util.unit.DataSize;
+
+public class LargePayloadConfiguration {
+
+    /** Read large data parts of multipart requests from a spill file instead of the heap. */
+    private boolean enabled = false;
+    /**
+     * Data parts of at least this size are moved to a spill file and parsed while they are read. They are not decoded
+     * lazily and not put into the PDF render cache.
+     */
+    private DataSize threshold = DataSize.ofMegabytes(8);
+    /** Read the spill file through a memory-mapped channel - otherwise through a buffered channel. */
+    private boolean memoryMapped = true;
+    /**
+     * Directory for the spill files. Null means java.io.tmpdir. On the same file system as the multipart location,
+     * the parts are moved instead of copied.
+     */
+    private String directory;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(DataSize threshold) {
+        this.threshold = threshold;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String toString() {
+        return "LargePayloadConfiguration{" +
+            "enabled=" + enabled +
+            ", threshold=" + threshold +
+            ", memoryMapped=" + memoryMapped +
+            ", directory='" + directory + '\'' +
+            '}';
+    }
+}
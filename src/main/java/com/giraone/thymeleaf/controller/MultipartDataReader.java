@@ -0,0 +1,185 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.common.ByteBufferInputStream;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Parses the JSON data part of multipart requests. With {@code application.large-payload} enabled, data parts above
+ * the threshold are moved to a spill file, which is parsed through a memory-mapped or buffered channel, so the data
+ * is never completely on the heap. The mapping is released and the spill file is deleted, when the data is parsed.
+ */
+@Component
+public class MultipartDataReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipartDataReader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Releases a mapping, see unmap(). Without it, the spill files are read through a buffered channel.
+    private static final Object UNSAFE = findUnsafe();
+    private static final Method UNMAPPER = findUnmapper(UNSAFE);
+
+    private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
+    private final LargePayloadConfiguration largePayloadConfiguration;
+    private final Path spillDirectory;
+
+    @Autowired
+    public MultipartDataReader(JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor, ApplicationProperties applicationProperties) {
+        this.jsonToHtmlProcessor = jsonToHtmlProcessor;
+        this.largePayloadConfiguration = applicationProperties.getLargePayload();
+        this.spillDirectory = Paths.get(largePayloadConfiguration.getDirectory() != null
+            ? largePayloadConfiguration.getDirectory() : System.getProperty("java.io.tmpdir"));
+        if (largePayloadConfiguration.isEnabled()) {
+            LOGGER.info("Large payloads are read from spill files in {} with {}", spillDirectory, largePayloadConfiguration);
+            if (largePayloadConfiguration.isMemoryMapped() && UNMAPPER == null) {
+                LOGGER.warn("Memory-mapped spill files cannot be released - they are read through a buffered channel");
+            }
+        }
+    }
+
+    /**
+     * @param dataFile the data part
+     * @return true, if the data part is read from a spill file
+     */
+    public boolean isLarge(MultipartFile dataFile) {
+        return largePayloadConfiguration.isEnabled() && dataFile.getSize() >= largePayloadConfiguration.getThreshold().toBytes();
+    }
+
+    /**
+     * Parse the data part.
+     *
+     * @param dataFile the data part
+     * @return a mutable map with the data
+     * @throws IOException on invalid JSON or when reading the part fails
+     */
+    public Map<String, Object> readData(MultipartFile dataFile) throws IOException {
+
+        if (!isLarge(dataFile)) {
+            try (InputStream in = dataFile.getInputStream()) {
+                return jsonToHtmlProcessor.convertDataJsonToMap(in);
+            }
+        }
+        Files.createDirectories(spillDirectory);
+        final Path spillFile = spillDirectory.resolve("data-" + UUID.randomUUID() + ".json");
+        try {
+            // Unlike transferTo(Path), which copies the content, transferTo(File) lets the servlet container move a
+            // part, that is already written to disk. On the same file system, this is a rename.
+            dataFile.transferTo(spillFile.toFile());
+            return parse(spillFile);
+        } finally {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    /**
+     * The data for the error message of invalid JSON. Large data is not read a second time - it was moved to the
+     * deleted spill file and the location in the exception message is more helpful anyway. Other data is cut after
+     * {@link JsonToHtmlProcessorUsingStringTemplates#MAX_DATA_DUMP_LENGTH} bytes.
+     *
+     * @param dataFile the data part
+     * @return the data or a hint for large data
+     * @throws IOException when reading the part fails
+     */
+    public String dataForErrorMessage(MultipartFile dataFile) throws IOException {
+
+        if (isLarge(dataFile)) {
+            return "(" + dataFile.getSize() + " bytes - see the location in the parsing exception)";
+        }
+        try (InputStream in = dataFile.getInputStream()) {
+            return dataForErrorMessage(in.readNBytes(JsonToHtmlProcessorUsingStringTemplates.MAX_DATA_DUMP_LENGTH + 1), dataFile.getSize());
+        }
+    }
+
+    /**
+     * The data of a request body for the error message of invalid JSON. It is cut after
+     * {@link JsonToHtmlProcessorUsingStringTemplates#MAX_DATA_DUMP_LENGTH} bytes.
+     *
+     * @param data the request body
+     * @return the data
+     */
+    public String dataForErrorMessage(byte[] data) {
+        return dataForErrorMessage(data, data.length);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static String dataForErrorMessage(byte[] data, long size) {
+
+        final int maxLength = JsonToHtmlProcessorUsingStringTemplates.MAX_DATA_DUMP_LENGTH;
+        return data.length > maxLength
+            ? new String(data, 0, maxLength, StandardCharsets.UTF_8) + "... (" + size + " bytes)"
+            : new String(data, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> parse(Path spillFile) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            // A single mapping is limited to 2 GB
+            if (UNMAPPER != null && largePayloadConfiguration.isMemoryMapped() && channel.size() <= Integer.MAX_VALUE) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+                try {
+                    // The data is decoded completely, so nothing refers to the buffer, when it is released
+                    return jsonToHtmlProcessor.convertDataJsonToMap(new ByteBufferInputStream(buffer), false);
+                } finally {
+                    unmap(buffer);
+                }
+            }
+            try (InputStream in = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE)) {
+                return jsonToHtmlProcessor.convertDataJsonToMap(in, false);
+            }
+        }
+    }
+
+    /**
+     * Release the mapping immediately instead of on garbage collection. Windows cannot delete a file, as long as it
+     * is mapped.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            UNMAPPER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Cannot release memory-mapped spill file: {}", e.toString());
+        }
+    }
+
+    private static Object findUnsafe() {
+        try {
+            final Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Method findUnmapper(Object unsafe) {
+        try {
+            return unsafe == null ? null : unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
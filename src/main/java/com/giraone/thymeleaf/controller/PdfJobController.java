@@ -0,0 +1,176 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.RegisteredTemplate;
+import com.giraone.thymeleaf.service.TemplateRegistry;
+import com.giraone.thymeleaf.service.job.PdfJob;
+import com.giraone.thymeleaf.service.job.PdfJobService;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.giraone.thymeleaf.controller.RenderHtmlController.*;
+import static com.giraone.thymeleaf.controller.RenderPdfController.buildPdfCreationOptions;
+
+/**
+ * REST controller for asynchronous PDF jobs. A job is submitted with the same input as POST /api/json-to-pdf, but the
+ * request returns immediately with a job ID. The PDF is downloaded later using GET /api/jobs/{jobId}/pdf.
+ */
+@RestController
+@RequestMapping("/api")
+public class PdfJobController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfJobController.class);
+
+    private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
+    private final PdfJobService pdfJobService;
+    private final TemplateRegistry templateRegistry;
+    private final MultipartDataReader multipartDataReader;
+
+    @Autowired
+    public PdfJobController(JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor, PdfJobService pdfJobService,
+                            TemplateRegistry templateRegistry, MultipartDataReader multipartDataReader) {
+        this.jsonToHtmlProcessor = jsonToHtmlProcessor;
+        this.pdfJobService = pdfJobService;
+        this.templateRegistry = templateRegistry;
+        this.multipartDataReader = multipartDataReader;
+    }
+
+    @Timed
+    @Operation(
+        summary = "Submit a PDF job with a variable template, css file and variable JSON data.",
+        description = "The files are passed in a multipart request. The status of the job is available at the returned location.")
+    @ApiResponse(responseCode = "202", description = "When the job is queued.")
+    @ApiResponse(responseCode = "400", description = "When the data is no JSON.")
+    @ApiResponse(responseCode = "503", description = "When the job queue is full. The Retry-After header contains the seconds to wait.")
+    @PostMapping("/jobs/json-to-pdf")
+    public ResponseEntity<PdfJob> submitPdfJobByMultipartRequest(
+        @RequestParam(PARAM_data) MultipartFile dataFile,
+        @RequestParam(PARAM_template) MultipartFile templateFile,
+        @RequestParam(value = PARAM_css, required = false) MultipartFile cssFile) throws IOException {
+
+        LOGGER.info("PdfJobController.submitPdfJobByMultipartRequest data={}, template={}, css={}", dataFile, templateFile, cssFile);
+        final PreparedTemplate template = PreparedTemplate.of(
+            new String(templateFile.getBytes(), StandardCharsets.UTF_8),
+            cssFile != null ? new String(cssFile.getBytes(), StandardCharsets.UTF_8) : null);
+        final Map<String, Object> dataMap = parseData(() -> multipartDataReader.readData(dataFile));
+        return submit(template, dataMap);
+    }
+
+    @Timed
+    @Operation(
+        summary = "Submit a PDF job with a registered template and variable JSON data.",
+        description = "Only the JSON data is passed as the request body.")
+    @ApiResponse(responseCode = "202", description = "When the job is queued.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID or version.")
+    @ApiResponse(responseCode = "503", description = "When the job queue is full. The Retry-After header contains the seconds to wait.")
+    @PostMapping(value = "/templates/{id}/jobs/pdf", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PdfJob> submitPdfJobByTemplateId(
+        @PathVariable String id,
+        @RequestParam(value = PARAM_version, required = false) Integer version,
+        @RequestBody byte[] dataBytes) throws IOException {
+
+        LOGGER.info("PdfJobController.submitPdfJobByTemplateId id={}, version={}", id, version);
+        final RegisteredTemplate registeredTemplate = findRegisteredTemplate(templateRegistry, id, version);
+        return submit(registeredTemplate.template(), parseData(() -> jsonToHtmlProcessor.convertDataJsonToMap(dataBytes)));
+    }
+
+    @Operation(summary = "Get the status of a PDF job.")
+    @ApiResponse(responseCode = "404", description = "When there is no job with the given ID or the job is expired.")
+    @GetMapping("/jobs/{jobId}")
+    public PdfJob getJob(@PathVariable String jobId) {
+        return findJob(jobId);
+    }
+
+    @Operation(summary = "Download the PDF of a job.")
+    @ApiResponse(responseCode = "200", description = "When the job is done.")
+    @ApiResponse(responseCode = "400", description = "When the job failed. The body contains the HTML error message.")
+    @ApiResponse(responseCode = "404", description = "When there is no job with the given ID or the job is expired.")
+    @ApiResponse(responseCode = "409", description = "When the job is not yet finished.")
+    @GetMapping("/jobs/{jobId}/pdf")
+    public ResponseEntity<Resource> getJobResult(@PathVariable String jobId) {
+
+        final PdfJob job = findJob(jobId);
+        if (job.status() == PdfJob.Status.FAILED) {
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.parseMediaType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8"))
+                .body(new ByteArrayResource(job.error().getBytes(StandardCharsets.UTF_8)));
+        }
+        final Path pdf = pdfJobService.findResult(jobId).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.CONFLICT, "Job \"" + jobId + "\" is " + job.status() + "!"));
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_PDF)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+            .body(new FileSystemResource(pdf));
+    }
+
+    @Operation(summary = "Remove a PDF job and its result.")
+    @ApiResponse(responseCode = "204", description = "On successful removal.")
+    @ApiResponse(responseCode = "404", description = "When there is no job with the given ID.")
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<Void> deleteJob(@PathVariable String jobId) {
+        return pdfJobService.delete(jobId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface DataParser {
+        Map<String, Object> parse() throws IOException;
+    }
+
+    private static Map<String, Object> parseData(DataParser dataParser) {
+        try {
+            return dataParser.parse();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid JSON data: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<PdfJob> submit(PreparedTemplate template, Map<String, Object> dataMap) {
+
+        final PdfJob job;
+        try {
+            job = pdfJobService.submit(template, dataMap, buildPdfCreationOptions(dataMap));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("PdfJobController.submit rejected, queue is full");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(pdfJobService.estimateRetryAfterSeconds()))
+                .build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.id())).body(job);
+    }
+
+    private PdfJob findJob(String jobId) {
+        return pdfJobService.find(jobId).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.NOT_FOUND, "Job \"" + jobId + "\" not found!"));
+    }
+}
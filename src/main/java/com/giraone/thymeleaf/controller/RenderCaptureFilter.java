@@ -0,0 +1,157 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.RegisteredTemplate;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import com.giraone.thymeleaf.service.TemplateRegistry;
+import com.giraone.thymeleaf.service.capture.CapturedRender;
+import com.giraone.thymeleaf.service.capture.RenderCaptureService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Captures sampled render requests with {@link RenderCaptureService}, when {@code application.render-capture} is
+ * enabled. The filter runs within {@link RenderTimingFilter}, so the measured stages of the request are captured too.
+ * Request bodies, that are not multipart, are cached while the controller reads them.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class RenderCaptureFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderCaptureFilter.class);
+
+    private static final String RENDER_PATH_PREFIX = "/api/";
+    private static final Pattern TEMPLATE_ID = Pattern.compile("^/api/templates/([^/]+)/");
+
+    private final RenderCaptureService renderCaptureService;
+    private final TemplateRegistry templateRegistry;
+
+    @Autowired
+    public RenderCaptureFilter(RenderCaptureService renderCaptureService, TemplateRegistry templateRegistry) {
+        this.renderCaptureService = renderCaptureService;
+        this.templateRegistry = templateRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !renderCaptureService.isEnabled()
+            || !HttpMethod.POST.matches(request.getMethod()) || !request.getRequestURI().startsWith(RENDER_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+
+        if (!renderCaptureService.sample()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        final String contentType = request.getContentType();
+        final boolean multipart = contentType != null && contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+        final Instant time = Instant.now();
+        if (multipart) {
+            // The parts are deleted, when the request is dispatched
+            final Input input = readParts(request);
+            final long start = System.nanoTime();
+            filterChain.doFilter(request, response);
+            capture(request, response.getStatus(), time, System.nanoTime() - start, input);
+        } else {
+            final ContentCachingRequestWrapper cachingRequest = new ContentCachingRequestWrapper(request, renderCaptureService.getMaxDataSize());
+            final long start = System.nanoTime();
+            filterChain.doFilter(cachingRequest, response);
+            capture(request, response.getStatus(), time, System.nanoTime() - start, readBody(cachingRequest));
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private Input readParts(HttpServletRequest request) {
+
+        try {
+            final Part dataPart = request.getPart(RenderHtmlController.PARAM_data);
+            final Part templatePart = request.getPart(RenderHtmlController.PARAM_template);
+            final Part cssPart = request.getPart(RenderHtmlController.PARAM_css);
+            final PreparedTemplate template = templatePart != null
+                ? PreparedTemplate.of(readString(templatePart), cssPart != null ? readString(cssPart) : null) : null;
+            final long dataSize = dataPart != null ? dataPart.getSize() : 0L;
+            final byte[] data = dataPart != null && dataSize <= renderCaptureService.getMaxDataSize() ? readBytes(dataPart) : null;
+            return new Input(true, dataPart != null ? dataPart.getContentType() : null, template, data, dataSize);
+        } catch (IOException | ServletException | RuntimeException e) {
+            LOGGER.warn("Cannot read parts of render request {}", request.getRequestURI(), e);
+            return null;
+        }
+    }
+
+    private Input readBody(ContentCachingRequestWrapper request) {
+
+        final byte[] body = request.getContentAsByteArray();
+        final long dataSize = Math.max(request.getContentLengthLong(), body.length);
+        final PreparedTemplate template = findRegisteredTemplate(request.getRequestURI(),
+            request.getParameter(RenderHtmlController.PARAM_version));
+        return new Input(false, request.getContentType(), template,
+            dataSize <= renderCaptureService.getMaxDataSize() ? body : null, dataSize);
+    }
+
+    private void capture(HttpServletRequest request, int status, Instant time, long nanos, Input input) {
+
+        if (input == null) {
+            return;
+        }
+        final RenderMetrics.Tags tags = RenderMetrics.currentTags();
+        final CapturedRender render = new CapturedRender(time, tags != null ? tags.endpoint() : request.getRequestURI(),
+            request.getRequestURI(), request.getQueryString(), input.multipart(), input.dataContentType(), null, null,
+            input.dataSize(), status, nanos / 1_000_000.0, tags != null ? tags.serverTiming() : null);
+        renderCaptureService.capture(render, input.template(), input.data());
+    }
+
+    private PreparedTemplate findRegisteredTemplate(String path, String version) {
+
+        final Matcher matcher = TEMPLATE_ID.matcher(path);
+        if (!matcher.find()) {
+            return null;
+        }
+        final Integer versionNumber;
+        try {
+            versionNumber = version != null ? Integer.valueOf(version) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return templateRegistry.find(matcher.group(1), versionNumber).map(RegisteredTemplate::template).orElse(null);
+    }
+
+    private static byte[] readBytes(Part part) throws IOException {
+        try (InputStream in = part.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String readString(Part part) throws IOException {
+        return new String(readBytes(part), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The render inputs of a captured request - data is null, if it is larger than the maximum data size.
+     */
+    private record Input(boolean multipart, String dataContentType, PreparedTemplate template, byte[] data, long dataSize) {
+    }
+}
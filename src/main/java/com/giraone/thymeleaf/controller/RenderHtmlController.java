@@ -1,6 +1,12 @@
 package com.giraone.thymeleaf.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.giraone.thymeleaf.config.ApplicationProperties;
 import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.RegisteredTemplate;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import com.giraone.thymeleaf.service.TemplateRegistry;
 import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,11 +16,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayOutputStream;
@@ -32,12 +41,20 @@ public class RenderHtmlController {
     public static final String PARAM_data = "data";
     public static final String PARAM_template = "template";
     public static final String PARAM_css = "css";
+    public static final String PARAM_version = "version";
 
     private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
+    private final TemplateRegistry templateRegistry;
+    private final HtmlStreamingConfiguration htmlStreamingConfiguration;
+    private final MultipartDataReader multipartDataReader;
 
     @Autowired
-    public RenderHtmlController(JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor) {
+    public RenderHtmlController(JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor, TemplateRegistry templateRegistry,
+                                ApplicationProperties applicationProperties, MultipartDataReader multipartDataReader) {
         this.jsonToHtmlProcessor = jsonToHtmlProcessor;
+        this.templateRegistry = templateRegistry;
+        this.htmlStreamingConfiguration = applicationProperties.getHtmlStreaming();
+        this.multipartDataReader = multipartDataReader;
     }
 
     @Timed
@@ -55,44 +72,132 @@ public class RenderHtmlController {
 
         LOGGER.warn("RenderHtmlController.renderToHtmlByMultipartRequest data={}, template={}, css={}",
             dataFile, templateFile, cssFile);
-        byte[] dataBytes = dataFile.getBytes();
         byte[] htmlTemplateBytes = templateFile.getBytes();
         byte[] cssBytes = cssFile != null ? cssFile.getBytes() : null;
 
-        final String dataString = new String(dataBytes, StandardCharsets.UTF_8);
+        final PreparedTemplate template = PreparedTemplate.of(
+            new String(htmlTemplateBytes, StandardCharsets.UTF_8),
+            cssBytes != null ? new String(cssBytes, StandardCharsets.UTF_8) : null);
+        renderHtml(dataFile, template, response);
+    }
+
+    @Timed
+    @Operation(
+        summary = "Render an HTML report from a registered template and variable JSON data.",
+        description = "The template and CSS file are registered once using PUT /api/templates/{id}. " +
+            "Only the JSON data is passed as the request body.")
+    @ApiResponse(responseCode = "200", description = "On successful generation of the HTML.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID or version.")
+    @PostMapping(value = "/templates/{id}/html", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void renderToHtmlByTemplateId(
+        @PathVariable String id,
+        @RequestParam(value = PARAM_version, required = false) Integer version,
+        @RequestBody byte[] dataBytes,
+        HttpServletResponse response) throws IOException {
+
+        LOGGER.info("RenderHtmlController.renderToHtmlByTemplateId id={}, version={}", id, version);
+        final RegisteredTemplate registeredTemplate = findRegisteredTemplate(templateRegistry, id, version);
+        renderHtml(dataBytes, registeredTemplate.template(), response);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    static RegisteredTemplate findRegisteredTemplate(TemplateRegistry templateRegistry, String id, Integer version) {
+        RenderMetrics.tagTemplateId(id);
+        return templateRegistry.find(id, version).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+            "Template \"" + id + "\"" + (version != null ? " in version " + version : "") + " not found!"));
+    }
+
+    static void sendJsonParsingError(IOException e, String dataString, HttpServletResponse response) throws IOException {
+
+        LOGGER.error("Failed to parse JSON data\r\n" + dataString, e);
+        response.setContentType(MediaType.TEXT_HTML_VALUE);
+        response.sendError(HttpStatus.BAD_REQUEST.value(),
+            "<hr /><h3>JSON Parsing Exception:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(e.getMessage()) + "</pre>"
+                + "<h3>JSON Data:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(dataString) + "</pre>");
+    }
+
+    private void renderHtml(MultipartFile dataFile, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
+        final Map<String, Object> dataMap;
+        try {
+            dataMap = multipartDataReader.readData(dataFile);
+        } catch (JsonProcessingException e) {
+            // The data is read a second time only for the error message
+            sendJsonParsingError(e, multipartDataReader.dataForErrorMessage(dataFile), response);
+            return;
+        }
+        renderHtml(dataMap, template, response);
+    }
+
+    private void renderHtml(byte[] dataBytes, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
         final Map<String, Object> dataMap;
         try {
-            dataMap = JsonToHtmlProcessorUsingStringTemplates.convertDataJsonStringToMap(dataString);
+            dataMap = jsonToHtmlProcessor.convertDataJsonToMap(dataBytes);
         } catch (IOException e) {
-            LOGGER.error("Failed to parse JSON data\r\n" + dataString, e);
-            response.setContentType(MediaType.TEXT_HTML_VALUE);
-            response.sendError(HttpStatus.BAD_REQUEST.value(),
-                "<hr /><h3>JSON Parsing Exception:</h3>"
-                    + "<pre>" + StringEscapeUtils.escapeHtml4(e.getMessage()) + "</pre>"
-                    + "<h3>JSON Data:</h3>"
-                    + "<pre>" + dataString + "</pre>");
+            sendJsonParsingError(e, multipartDataReader.dataForErrorMessage(dataBytes), response);
             return;
         }
+        renderHtml(dataMap, template, response);
+    }
 
-        final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        String error = jsonToHtmlProcessor.prepareTemplateWithContentAndDataForHtmlOutput(
-                out, dataMap,
-                new String(htmlTemplateBytes, StandardCharsets.UTF_8),
-                cssBytes != null ? new String(cssBytes, StandardCharsets.UTF_8) : null);
+    private void renderHtml(Map<String, Object> dataMap, PreparedTemplate template, HttpServletResponse response) throws IOException {
 
         response.setContentType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8");
+        if (htmlStreamingConfiguration.isEnabled()) {
+            renderHtmlStreaming(dataMap, template, response);
+        } else {
+            renderHtmlBuffered(dataMap, template, response);
+        }
+    }
+
+    private void renderHtmlBuffered(Map<String, Object> dataMap, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String error = jsonToHtmlProcessor.prepareTemplateWithDataForHtmlOutput(out, dataMap, template);
+
         if (error == null) {
             response.setStatus(HttpStatus.OK.value());
             try (OutputStream responseOut = response.getOutputStream()) {
-                responseOut.write(out.toByteArray());
+                out.writeTo(responseOut);
                 responseOut.flush();
             }
         } else {
-            response.setStatus(HttpStatus.BAD_REQUEST.value());
-            try (OutputStream responseOut = response.getOutputStream()) {
-                responseOut.write(error.getBytes(StandardCharsets.UTF_8));
-                responseOut.flush();
-            }
+            writeError(error, response);
+        }
+    }
+
+    private void renderHtmlStreaming(Map<String, Object> dataMap, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
+        // The servlet container sends the output in chunks, as soon as the response buffer is full.
+        response.setBufferSize((int) htmlStreamingConfiguration.getResponseBufferSize().toBytes());
+        response.setStatus(HttpStatus.OK.value());
+        final OutputStream responseOut = response.getOutputStream();
+        String error = jsonToHtmlProcessor.prepareTemplateWithDataForHtmlOutput(responseOut, dataMap, template);
+
+        if (error == null) {
+            responseOut.close();
+        } else if (!response.isCommitted()) {
+            // Nothing was sent yet, so the partial output can be replaced by the error page
+            response.resetBuffer();
+            writeError(error, response);
+        } else {
+            LOGGER.warn("Template error after the first {} of the response were sent. Error is appended to the output.",
+                htmlStreamingConfiguration.getResponseBufferSize());
+            responseOut.write(error.getBytes(StandardCharsets.UTF_8));
+            responseOut.close();
+        }
+    }
+
+    private static void writeError(String error, HttpServletResponse response) throws IOException {
+
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        try (OutputStream responseOut = response.getOutputStream()) {
+            responseOut.write(error.getBytes(StandardCharsets.UTF_8));
+            responseOut.flush();
         }
     }
-}
\ No newline at end of file
+}
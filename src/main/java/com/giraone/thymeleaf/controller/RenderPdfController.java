@@ -1,31 +1,41 @@
 package com.giraone.thymeleaf.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.giraone.thymeleaf.common.DirectByteArrayOutputStream;
+import com.giraone.thymeleaf.common.PassThroughOutputStream;
 import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.RegisteredTemplate;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import com.giraone.thymeleaf.service.TemplateRegistry;
+import com.giraone.thymeleaf.service.cache.PdfRenderCache;
 import com.giraone.thymeleaf.service.convert.HtmlToPdfConverter;
 import com.giraone.thymeleaf.service.convert.PdfCreationOptions;
 import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
-import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.giraone.thymeleaf.controller.RenderHtmlController.*;
 
@@ -45,12 +55,24 @@ public class RenderPdfController {
 
     private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
     private final HtmlToPdfConverter htmlToPdfConverter;
+    private final TemplateRegistry templateRegistry;
+    private final PdfRenderCache renderCache;
+    private final RenderMetrics renderMetrics;
+    private final MultipartDataReader multipartDataReader;
 
     @Autowired
     public RenderPdfController(JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor,
-                               HtmlToPdfConverter htmlToPdfConverter) {
+                               HtmlToPdfConverter htmlToPdfConverter,
+                               TemplateRegistry templateRegistry,
+                               PdfRenderCache renderCache,
+                               RenderMetrics renderMetrics,
+                               MultipartDataReader multipartDataReader) {
         this.jsonToHtmlProcessor = jsonToHtmlProcessor;
         this.htmlToPdfConverter = htmlToPdfConverter;
+        this.templateRegistry = templateRegistry;
+        this.renderCache = renderCache;
+        this.renderMetrics = renderMetrics;
+        this.multipartDataReader = multipartDataReader;
     }
 
     @Timed
@@ -59,51 +81,199 @@ public class RenderPdfController {
         description = "This endpoint is intended to be used from an editor. " +
             "The file are passed in a multipart request.")
     @ApiResponse(responseCode = "200", description = "On successful generation of the PDF.")
+    @ApiResponse(responseCode = "304", description = "When If-None-Match contains the ETag of the same inputs.")
     @PostMapping("/json-to-pdf")
     public void renderToPdfByMultipartRequest(
         @Parameter(description = DESCRIPTION_jsonData) @RequestParam(PARAM_data) MultipartFile dataFile,
         @Parameter(description = DESCRIPTION_template) @RequestParam(PARAM_template) MultipartFile templateFile,
         @Parameter(description = DESCRIPTION_css) @RequestParam(value = PARAM_css, required = false) MultipartFile cssFile,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
         HttpServletResponse response) throws IOException {
 
         LOGGER.info("RenderPdfController.renderToPdfByMultipartRequest data={}, template={}, css={}",
             dataFile, templateFile, cssFile);
-        byte[] dataBytes = dataFile.getBytes();
         byte[] htmlTemplateBytes = templateFile.getBytes();
         byte[] cssBytes = cssFile != null ? cssFile.getBytes() : null;
 
-        final String dataString = new String(dataBytes, StandardCharsets.UTF_8);
+        final PreparedTemplate template = PreparedTemplate.of(
+            new String(htmlTemplateBytes, StandardCharsets.UTF_8),
+            cssBytes != null ? new String(cssBytes, StandardCharsets.UTF_8) : null);
+        if (renderCache.isEnabled() && !multipartDataReader.isLarge(dataFile)) {
+            // The data bytes are needed for the cache key - large data is not cached
+            renderPdf(dataFile.getBytes(), template, ifNoneMatch, response);
+        } else {
+            renderPdf(dataFile, template, response);
+        }
+    }
+
+    @Timed
+    @Operation(
+        summary = "Render a PDF report from a registered template and variable JSON data.",
+        description = "The template and CSS file are registered once using PUT /api/templates/{id}. " +
+            "Only the JSON data is passed as the request body.")
+    @ApiResponse(responseCode = "200", description = "On successful generation of the PDF.")
+    @ApiResponse(responseCode = "304", description = "When If-None-Match contains the ETag of the same inputs.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID or version.")
+    @PostMapping(value = "/templates/{id}/pdf", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void renderToPdfByTemplateId(
+        @PathVariable String id,
+        @RequestParam(value = PARAM_version, required = false) Integer version,
+        @Parameter(description = DESCRIPTION_jsonData) @RequestBody byte[] dataBytes,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        HttpServletResponse response) throws IOException {
+
+        LOGGER.info("RenderPdfController.renderToPdfByTemplateId id={}, version={}", id, version);
+        final RegisteredTemplate registeredTemplate = findRegisteredTemplate(templateRegistry, id, version);
+        renderPdf(dataBytes, registeredTemplate.template(), ifNoneMatch, response);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void renderPdf(MultipartFile dataFile, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
+        final Map<String, Object> dataMap;
+        try {
+            dataMap = multipartDataReader.readData(dataFile);
+        } catch (JsonProcessingException e) {
+            // The data is read a second time only for the error message
+            sendJsonParsingError(e, multipartDataReader.dataForErrorMessage(dataFile), response);
+            return;
+        }
+        renderPdf(dataMap, template, response);
+    }
+
+    private void renderPdf(byte[] dataBytes, PreparedTemplate template, String ifNoneMatch, HttpServletResponse response)
+        throws IOException {
+
+        if (!renderCache.isEnabled()) {
+            renderPdfUncached(dataBytes, template, response);
+            return;
+        }
+
+        final String cacheKey = renderCache.keyOf(template, dataBytes);
+        final String etag = PdfRenderCache.etagOf(cacheKey);
+        if (renderCache.isNotModified(ifNoneMatch, etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        byte[] pdf = renderCache.get(cacheKey);
+        if (pdf == null) {
+            // Concurrent requests with the same inputs wait for the first one and share its result
+            final AtomicBoolean sent = new AtomicBoolean();
+            final PdfResult result = renderCache.coalesce(cacheKey,
+                () -> renderPdfToCache(dataBytes, template, cacheKey, etag, response, sent));
+            if (result.jsonError() != null) {
+                sendJsonParsingError(result.jsonError(), multipartDataReader.dataForErrorMessage(dataBytes), response);
+                return;
+            }
+            if (result.templateError() != null) {
+                sendTemplateError(result.templateError(), response);
+                return;
+            }
+            if (result.pdf() == null) {
+                // Too large for the cache: the rendering request has sent it already, coalesced requests render it again
+                if (!sent.get()) {
+                    renderPdfUncached(dataBytes, template, response);
+                }
+                return;
+            }
+            pdf = result.pdf();
+        }
+        sendPdf(pdf, etag, response);
+    }
+
+    private void renderPdfUncached(byte[] dataBytes, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
         final Map<String, Object> dataMap;
         try {
-            dataMap = JsonToHtmlProcessorUsingStringTemplates.convertDataJsonStringToMap(dataString);
+            dataMap = jsonToHtmlProcessor.convertDataJsonToMap(dataBytes);
         } catch (IOException e) {
-            LOGGER.error("Failed to parse JSON data\r\n" + dataString, e);
-            response.setContentType(MediaType.TEXT_HTML_VALUE);
-            response.sendError(HttpStatus.BAD_REQUEST.value(),
-                "<hr /><h3>JSON Parsing Exception:</h3>"
-                + "<pre>" + StringEscapeUtils.escapeHtml4(e.getMessage()) + "</pre>"
-                + "<h3>JSON Data:</h3>"
-                + "<pre>" + dataString + "</pre>");
+            sendJsonParsingError(e, multipartDataReader.dataForErrorMessage(dataBytes), response);
             return;
         }
+        renderPdf(dataMap, template, response);
+    }
 
-        final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        String error = jsonToHtmlProcessor.prepareTemplateWithContentAndDataForPdfOutput(
-            out,
-            dataMap,
-            new String(htmlTemplateBytes, StandardCharsets.UTF_8),
-            cssBytes != null ? new String(cssBytes, StandardCharsets.UTF_8) : null);
+    private PdfResult renderPdfToCache(byte[] dataBytes, PreparedTemplate template, String cacheKey, String etag,
+                                       HttpServletResponse response, AtomicBoolean sent) throws IOException {
+
+        final Map<String, Object> dataMap;
+        try {
+            dataMap = jsonToHtmlProcessor.convertDataJsonToMap(dataBytes);
+        } catch (IOException e) {
+            return new PdfResult(null, null, e);
+        }
+        final DirectByteArrayOutputStream out = new DirectByteArrayOutputStream();
+        final String error = jsonToHtmlProcessor.prepareTemplateWithDataForPdfOutput(out, dataMap, template);
+        if (error != null) {
+            return new PdfResult(null, error, null);
+        }
+        // Only PDFs, that can be cached, are buffered. Larger ones are sent, while they are written.
+        final PassThroughOutputStream pdfOut = new PassThroughOutputStream(renderCache.getMaxPdfSize(), () -> {
+            setPdfHeaders(etag, response);
+            return response.getOutputStream();
+        });
+        htmlToPdfConverter.generatePdfStreamFromHtmlStream(out.toInputStream(), null, pdfOut, buildPdfCreationOptions(dataMap));
+        if (pdfOut.isPassedThrough()) {
+            response.flushBuffer();
+            sent.set(true);
+            return new PdfResult(null, null, null);
+        }
+        final byte[] pdf = pdfOut.toByteArray();
+        renderCache.put(cacheKey, pdf);
+        return new PdfResult(pdf, null, null);
+    }
+
+    private void renderPdf(Map<String, Object> dataMap, PreparedTemplate template, HttpServletResponse response) throws IOException {
+
+        final DirectByteArrayOutputStream out = new DirectByteArrayOutputStream();
+        String error = jsonToHtmlProcessor.prepareTemplateWithDataForPdfOutput(out, dataMap, template);
 
         if (error != null) {
-            response.setContentType(MediaType.TEXT_HTML_VALUE);
-            response.setStatus(HttpStatus.BAD_REQUEST.value());
-            try (OutputStream responseOut = response.getOutputStream()) {
-                responseOut.write(error.getBytes(StandardCharsets.UTF_8));
-                responseOut.flush();
-            }
+            sendTemplateError(error, response);
+            return;
+        }
+
+        final PdfCreationOptions pdfCreationOptions = buildPdfCreationOptions(dataMap);
+
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.addHeader(HttpHeaders.CONTENT_DISPOSITION, CONTENT_DISPOSITION_VALUE);
+
+        final OutputStream pdfOutputStream = response.getOutputStream();
+        // The UTF-8 bytes of the template output are passed to PD4ML as they are
+        htmlToPdfConverter.generatePdfStreamFromHtmlStream(out.toInputStream(), null, pdfOutputStream, pdfCreationOptions);
+        response.flushBuffer();
+    }
+
+    private static void sendTemplateError(String error, HttpServletResponse response) throws IOException {
+
+        response.setContentType(MediaType.TEXT_HTML_VALUE);
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        try (OutputStream responseOut = response.getOutputStream()) {
+            responseOut.write(error.getBytes(StandardCharsets.UTF_8));
+            responseOut.flush();
         }
+    }
+
+    private void sendPdf(byte[] pdf, String etag, HttpServletResponse response) throws IOException {
 
-        String htmlString = out.toString(StandardCharsets.UTF_8);
+        setPdfHeaders(etag, response);
+        response.setContentLength(pdf.length);
+        final RenderMetrics.Sample start = renderMetrics.start();
+        response.getOutputStream().write(pdf);
+        response.flushBuffer();
+        renderMetrics.stop(RenderMetrics.Stage.RESPONSE_WRITE, start);
+    }
+
+    private static void setPdfHeaders(String etag, HttpServletResponse response) {
+
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.addHeader(HttpHeaders.CONTENT_DISPOSITION, CONTENT_DISPOSITION_VALUE);
+        response.setHeader(HttpHeaders.ETAG, etag);
+    }
+
+    static PdfCreationOptions buildPdfCreationOptions(Map<String, Object> dataMap) {
 
         PdfCreationOptions pdfCreationOptions = new PdfCreationOptions();
         pdfCreationOptions.setPdfA(USE_PDF_A);
@@ -116,12 +286,13 @@ public class RenderPdfController {
             pdfCreationOptions.setDocumentKeywords((String) metadata.get("keywords"));
             pdfCreationOptions.setDocumentCreator((String) metadata.get("creator"));
         }
+        return pdfCreationOptions;
+    }
 
-        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
-        response.addHeader(HttpHeaders.CONTENT_DISPOSITION, CONTENT_DISPOSITION_VALUE);
-
-        final OutputStream pdfOutputStream = response.getOutputStream();
-        htmlToPdfConverter.generatePdfStreamFromHtmlString(htmlString, pdfOutputStream, pdfCreationOptions);
-        response.flushBuffer();
+    /**
+     * Result of a render, that is shared by coalesced requests - at most one of the fields is set. None is set, when
+     * the PDF was too large for the cache and sent directly by the rendering request.
+     */
+    private record PdfResult(byte[] pdf, String templateError, IOException jsonError) {
     }
 }
@@ -0,0 +1,119 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Opens the {@link RenderMetrics} scope for render requests, so all stage timers of a request carry its endpoint.
+ * The endpoint tag is one of the known render endpoints or {@code other}, so clients cannot create new meters.
+ * Multipart requests are parsed here, before they are dispatched, so the parsing is measured as a stage of its own.
+ * If the parsing fails, e.g. because of the size limits, the request is dispatched anyway and Spring MVC reports the
+ * failure. The sizes of the data and template inputs are recorded from the parts or from the content length.
+ * Optionally the measured stages are sent in a {@code Server-Timing} header.
+ */
+@Component
+// Before RenderCaptureFilter, so the captured requests contain the measured stages
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RenderTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderTimingFilter.class);
+
+    private static final String RENDER_PATH_PREFIX = "/api/";
+    // Template IDs are replaced, so the number of endpoint tag values is bounded
+    private static final Pattern TEMPLATE_ID = Pattern.compile("^/api/templates/[^/]+/");
+    private static final Set<String> RENDER_ENDPOINTS = Set.of(
+        "/api/json-to-html", "/api/json-to-pdf",
+        "/api/templates/{id}/html", "/api/templates/{id}/pdf",
+        "/api/batch/json-to-html", "/api/batch/json-to-pdf",
+        "/api/templates/{id}/batch/html", "/api/templates/{id}/batch/pdf",
+        "/api/jobs/json-to-pdf", "/api/templates/{id}/jobs/pdf");
+    static final String OTHER_ENDPOINT = "other";
+
+    private final RenderMetrics renderMetrics;
+    private final boolean serverTimingHeader;
+
+    @Autowired
+    public RenderTimingFilter(RenderMetrics renderMetrics, ApplicationProperties applicationProperties) {
+        this.renderMetrics = renderMetrics;
+        this.serverTimingHeader = applicationProperties.getRenderMetrics().isServerTimingHeader();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || !request.getRequestURI().startsWith(RENDER_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+
+        final RenderMetrics.Tags tags = new RenderMetrics.Tags(endpointOf(request.getRequestURI()), null);
+        try (RenderMetrics.Scope ignored = RenderMetrics.open(tags)) {
+            final String contentType = request.getContentType();
+            if (contentType != null && contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+                recordParts(request);
+            } else if (request.getContentLengthLong() >= 0) {
+                renderMetrics.recordSize(RenderMetrics.Size.DATA, request.getContentLengthLong());
+            }
+            if (serverTimingHeader) {
+                final ServerTimingResponseWrapper responseWrapper = new ServerTimingResponseWrapper(response, tags);
+                filterChain.doFilter(request, responseWrapper);
+                responseWrapper.updateHeader();
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    static String endpointOf(String requestUri) {
+
+        final String endpoint = TEMPLATE_ID.matcher(requestUri).replaceFirst("/api/templates/{id}/");
+        return RENDER_ENDPOINTS.contains(endpoint) ? endpoint : OTHER_ENDPOINT;
+    }
+
+    private void recordParts(HttpServletRequest request) {
+
+        final RenderMetrics.Sample start = renderMetrics.start();
+        final Collection<Part> parts;
+        try {
+            parts = request.getParts();
+        } catch (IOException | ServletException | IllegalStateException e) {
+            // The container keeps the failure, so the multipart resolver of Spring MVC fails and reports it the same way
+            LOGGER.debug("Cannot parse multipart request {}: {}", request.getRequestURI(), e.getMessage());
+            return;
+        }
+        long templateSize = 0;
+        for (Part part : parts) {
+            switch (part.getName()) {
+                case RenderHtmlController.PARAM_data -> renderMetrics.recordSize(RenderMetrics.Size.DATA, part.getSize());
+                case RenderHtmlController.PARAM_template, RenderHtmlController.PARAM_css -> templateSize += part.getSize();
+                default -> { /* not a render input */ }
+            }
+        }
+        renderMetrics.stop(RenderMetrics.Stage.MULTIPART, start);
+        if (templateSize > 0) {
+            renderMetrics.recordSize(RenderMetrics.Size.TEMPLATE, templateSize);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.service.RenderMetrics;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Keeps a {@code Server-Timing} header with the render stages up to date, until the response is committed. Rendered
+ * output is streamed, so stages, that end after the response buffer is sent, are not part of the header.
+ */
+class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private final RenderMetrics.Tags tags;
+    private int version = -1;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    ServerTimingResponseWrapper(HttpServletResponse response, RenderMetrics.Tags tags) {
+        super(response);
+        this.tags = tags;
+    }
+
+    /**
+     * Set the header to the stages measured so far, if the response is not committed yet.
+     */
+    void updateHeader() {
+
+        final int currentVersion = tags.stageTotalsVersion();
+        if (currentVersion != version && !isCommitted()) {
+            version = currentVersion;
+            setHeader(SERVER_TIMING, tags.serverTiming());
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new HeaderUpdatingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new HeaderUpdatingWriter(super.getWriter()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        updateHeader();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        updateHeader();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        updateHeader();
+        super.sendError(sc);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private final class HeaderUpdatingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private HeaderUpdatingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            updateHeader();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            updateHeader();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            updateHeader();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            updateHeader();
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    private final class HeaderUpdatingWriter extends Writer {
+
+        private final Writer delegate;
+
+        private HeaderUpdatingWriter(Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            updateHeader();
+            delegate.write(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            updateHeader();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            updateHeader();
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.service.RegisteredTemplate;
+import com.giraone.thymeleaf.service.TemplateRegistry;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.thymeleaf.exceptions.TemplateInputException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.giraone.thymeleaf.controller.RenderHtmlController.PARAM_css;
+import static com.giraone.thymeleaf.controller.RenderHtmlController.PARAM_template;
+
+/**
+ * REST controller to manage named templates. Registered templates are rendered using
+ * POST /api/templates/{id}/html and POST /api/templates/{id}/pdf.
+ */
+@RestController
+@RequestMapping("/api")
+public class TemplateRegistryController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemplateRegistryController.class);
+
+    private final TemplateRegistry templateRegistry;
+
+    @Autowired
+    public TemplateRegistryController(TemplateRegistry templateRegistry) {
+        this.templateRegistry = templateRegistry;
+    }
+
+    @Timed
+    @Operation(
+        summary = "Register a new version of a template and its css file.",
+        description = "The template is parsed once. The files are passed in a multipart request.")
+    @ApiResponse(responseCode = "201", description = "On successful registration of the template.")
+    @ApiResponse(responseCode = "400", description = "When the ID is invalid or the template cannot be parsed.")
+    @PutMapping("/templates/{id}")
+    public ResponseEntity<RegisteredTemplate> registerTemplate(
+        @PathVariable String id,
+        @RequestParam(PARAM_template) MultipartFile templateFile,
+        @RequestParam(value = PARAM_css, required = false) MultipartFile cssFile) throws IOException {
+
+        LOGGER.info("TemplateRegistryController.registerTemplate id={}, template={}, css={}", id, templateFile, cssFile);
+        final String templateContent = new String(templateFile.getBytes(), StandardCharsets.UTF_8);
+        final String cssContent = cssFile != null ? new String(cssFile.getBytes(), StandardCharsets.UTF_8) : null;
+
+        final RegisteredTemplate registeredTemplate;
+        try {
+            registeredTemplate = templateRegistry.register(id, templateContent, cssContent);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.INSUFFICIENT_STORAGE, e.getMessage());
+        } catch (TemplateInputException e) {
+            throw templateCannotBeParsed(e);
+        }
+        return ResponseEntity
+            .created(URI.create("/api/templates/" + id + "?" + RenderHtmlController.PARAM_version + "=" + registeredTemplate.version()))
+            .body(registeredTemplate);
+    }
+
+    @Operation(summary = "List the latest version of all registered templates.")
+    @GetMapping("/templates")
+    public List<RegisteredTemplate> getTemplates() {
+        return templateRegistry.findAllLatest();
+    }
+
+    @Operation(summary = "List all versions of a registered template.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID.")
+    @GetMapping("/templates/{id}")
+    public List<RegisteredTemplate> getTemplateVersions(@PathVariable String id) {
+
+        final List<RegisteredTemplate> versions = templateRegistry.findAllVersions(id);
+        if (versions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Template \"" + id + "\" not found!");
+        }
+        return versions;
+    }
+
+    @Operation(summary = "Remove all versions of a registered template.")
+    @ApiResponse(responseCode = "204", description = "On successful removal.")
+    @ApiResponse(responseCode = "404", description = "When there is no template with the given ID.")
+    @DeleteMapping("/templates/{id}")
+    public ResponseEntity<Void> deleteTemplate(@PathVariable String id) {
+
+        LOGGER.info("TemplateRegistryController.deleteTemplate id={}", id);
+        return templateRegistry.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    static ResponseStatusException templateCannotBeParsed(TemplateInputException e) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "Template cannot be parsed: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.giraone.thymeleaf.service;
+
+public class BatchRenderConfiguration {
+
+    /** Number of worker threads for batch rendering. 0 means one thread per available processor. */
+    private int threads = 0;
+    /** Maximum number of records of one batch request, that are parsed and rendered, but not yet written. */
+    private int maxRecordsInFlight = 64;
+    /** Data field (or dot separated path), whose value is used as the name of the PDF files in a ZIP archive. */
+    private String entryNameField = "fileName";
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getMaxRecordsInFlight() {
+        return maxRecordsInFlight;
+    }
+
+    public void setMaxRecordsInFlight(int maxRecordsInFlight) {
+        this.maxRecordsInFlight = maxRecordsInFlight;
+    }
+
+    public String getEntryNameField() {
+        return entryNameField;
+    }
+
+    public void setEntryNameField(String entryNameField) {
+        this.entryNameField = entryNameField;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchRenderConfiguration{" +
+            "threads=" + threads +
+            ", maxRecordsInFlight=" + maxRecordsInFlight +
+            ", entryNameField='" + entryNameField + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,144 @@
+package com.giraone.thymeleaf.service;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Render many data records with the same template on a shared pool of worker threads.
+ * The records are read and the results are written on the calling thread, so the request's
+ * input and output streams are never used concurrently.
+ */
+@Service
+public class BatchRenderService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchRenderService.class);
+
+    /**
+     * Renders one record on a worker thread.
+     *
+     * @param <T> the type of the rendered result
+     */
+    @FunctionalInterface
+    public interface RecordRenderer<T> {
+        T render(int index, Map<String, Object> data);
+    }
+
+    /**
+     * Writes one rendered record on the calling thread.
+     *
+     * @param <T> the type of the rendered result
+     */
+    @FunctionalInterface
+    public interface ResultWriter<T> {
+        void write(int index, T result) throws IOException;
+    }
+
+    private final BatchRenderConfiguration batchRenderConfiguration;
+    private ExecutorService executorService;
+
+    @Autowired
+    public BatchRenderService(ApplicationProperties applicationProperties) {
+        this.batchRenderConfiguration = applicationProperties.getBatchRender();
+    }
+
+    @PostConstruct
+    public void init() {
+        final int threads = batchRenderConfiguration.getThreads() > 0
+            ? batchRenderConfiguration.getThreads() : Runtime.getRuntime().availableProcessors();
+        executorService = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("batch-render-"));
+        LOGGER.info("BatchRenderService initialized with {} threads and {}", threads, batchRenderConfiguration);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Render all records. The results are passed to the writer in the order of their completion, not in the order of
+     * the records. At most {@code maxRecordsInFlight} records are read ahead of the writer.
+     *
+     * @param records the data records - read only on the calling thread
+     * @param renderer the renderer, that is called on the worker threads
+     * @param writer the writer, that is called on the calling thread for each rendered record
+     * @param <T> the type of the rendered result
+     * @return the number of rendered records
+     * @throws IOException if the writer fails
+     */
+    public <T> int render(Iterator<Map<String, Object>> records, RecordRenderer<T> renderer, ResultWriter<T> writer)
+        throws IOException {
+
+        final CompletionService<IndexedResult<T>> completionService = new ExecutorCompletionService<>(executorService);
+        final List<Future<IndexedResult<T>>> inFlight = new ArrayList<>();
+        final int maxRecordsInFlight = Math.max(1, batchRenderConfiguration.getMaxRecordsInFlight());
+        int submitted = 0;
+        int written = 0;
+        try {
+            while (records.hasNext()) {
+                final int index = submitted++;
+                final Map<String, Object> data = records.next();
+                final RenderMetrics.Tags tags = RenderMetrics.currentTags();
+                inFlight.add(completionService.submit(() -> {
+                    try (RenderMetrics.Scope ignored = RenderMetrics.open(tags)) {
+                        return new IndexedResult<>(index, renderer.render(index, data));
+                    }
+                }));
+                if (submitted - written >= maxRecordsInFlight) {
+                    writeNext(completionService, inFlight, writer);
+                    written++;
+                }
+            }
+            while (written < submitted) {
+                writeNext(completionService, inFlight, writer);
+                written++;
+            }
+            return submitted;
+        } finally {
+            if (written < submitted) {
+                inFlight.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static <T> void writeNext(CompletionService<IndexedResult<T>> completionService,
+                                      List<Future<IndexedResult<T>>> inFlight,
+                                      ResultWriter<T> writer) throws IOException {
+
+        final Future<IndexedResult<T>> future;
+        final IndexedResult<T> result;
+        try {
+            future = completionService.take();
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch rendering interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch rendering failed", e.getCause());
+        }
+        inFlight.remove(future);
+        writer.write(result.index(), result.result());
+    }
+
+    private record IndexedResult<T>(int index, T result) {
+    }
+}
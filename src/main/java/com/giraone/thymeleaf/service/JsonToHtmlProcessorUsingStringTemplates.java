@@ -1,7 +1,13 @@
 package com.giraone.thymeleaf.service;
 
+import com.giraone.thymeleaf.common.CountingOutputStream;
 import com.giraone.thymeleaf.common.JsonUtil;
 import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.cache.CaffeineTemplateCache;
+import com.giraone.thymeleaf.service.cache.CaffeineTemplateCacheManager;
+import com.giraone.thymeleaf.service.jfr.HtmlRenderEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,19 +15,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.exceptions.TemplateInputException;
+import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.extras.java8time.dialect.Java8TimeDialect;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 import org.thymeleaf.templatemode.TemplateMode;
-import org.thymeleaf.templateresolver.StringTemplateResolver;
+import org.thymeleaf.templateparser.markup.HTMLTemplateParser;
+import org.thymeleaf.templateresource.StringTemplateResource;
 
 import javax.annotation.PostConstruct;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -30,28 +41,48 @@ import java.util.Map;
 @Service
 public class JsonToHtmlProcessorUsingStringTemplates {
 
+    /** Data of error messages and logs is cut after this length, e.g. for large data read from a spill file */
+    public static final int MAX_DATA_DUMP_LENGTH = 64 * 1024;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonToHtmlProcessorUsingStringTemplates.class);
-    private static final long ONE_HOUR = 3_600_000L;
+    private static final String TEMPLATE_CACHE_NAME = "thymeleaf.templates";
+
+    // The template, which is currently processed by a thread. Needed to resolve the content of a template key on a cache miss.
+    private static final ThreadLocal<PreparedTemplate> CURRENT_TEMPLATE = new ThreadLocal<>();
+
+    // Parses templates for precompile() only - the template engine parses templates with its own parser.
+    private static final HTMLTemplateParser TEMPLATE_PARSER = new HTMLTemplateParser(8, 2048);
 
     private final ApplicationProperties applicationProperties;
+    private final MeterRegistry meterRegistry;
+    private final RenderMetrics renderMetrics;
     private SpringTemplateEngine templateEngine;
 
     @Autowired
-    public JsonToHtmlProcessorUsingStringTemplates(ApplicationProperties applicationProperties) {
+    public JsonToHtmlProcessorUsingStringTemplates(ApplicationProperties applicationProperties, MeterRegistry meterRegistry,
+                                                   RenderMetrics renderMetrics) {
         this.applicationProperties = applicationProperties;
+        this.meterRegistry = meterRegistry;
+        this.renderMetrics = renderMetrics;
     }
 
     @PostConstruct
     private void init() {
 
-        final StringTemplateResolver resolver = new StringTemplateResolver();
+        // The template name is a hash of template and CSS content, so the cache keys are small and a template
+        // is parsed only once, as long as it is not evicted.
+        final KeyedStringTemplateResolver resolver = new KeyedStringTemplateResolver(this::lookupTemplateContent);
         resolver.setTemplateMode(TemplateMode.HTML);
-        resolver.setCacheTTLMs(ONE_HOUR);
+        resolver.setCacheable(true);
+        final CaffeineTemplateCache templateCache = new CaffeineTemplateCache(applicationProperties.getTemplateCache());
+        CaffeineCacheMetrics.monitor(meterRegistry, templateCache.getNativeCache(), TEMPLATE_CACHE_NAME);
         templateEngine = new SpringTemplateEngine();
         templateEngine.addDialect(new Java8TimeDialect()); // to use #dates object
         templateEngine.setTemplateResolver(resolver);
+        templateEngine.setCacheManager(new CaffeineTemplateCacheManager(templateCache));
         // templateEngine.setLinkBuilder(new CustomLinkBuilder());
-        LOGGER.info("SpringTemplateEngine using StringTemplateResolver for JsonToHtmlProcessor initialized");
+        LOGGER.info("SpringTemplateEngine using KeyedStringTemplateResolver for JsonToHtmlProcessor initialized with {}",
+            applicationProperties.getTemplateCache());
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -66,14 +97,24 @@ public class JsonToHtmlProcessorUsingStringTemplates {
         return prepareTemplateWithContentAndData(out, data, templateContent, cssContent, applicationProperties.getHtmlBase() );
     }
 
+    public String prepareTemplateWithDataForPdfOutput(
+        OutputStream out, Map<String, Object> data, PreparedTemplate template) throws IOException {
+        return prepareTemplateWithData(out, data, template, applicationProperties.getHtmlPdfBase());
+    }
+
+    public String prepareTemplateWithDataForHtmlOutput(
+        OutputStream out, Map<String, Object> data, PreparedTemplate template) throws IOException {
+        return prepareTemplateWithData(out, data, template, applicationProperties.getHtmlBase());
+    }
+
     public String prepareTemplateWithContentAndData(
         OutputStream out, Map<String, Object> data, String templateContent, String cssContent, String basePath) throws IOException {
 
-        if (cssContent != null) {
-            templateContent = templateContent.replace(
-                "<style></style>",
-                "<style>" + cssContent + "</style>");
-        }
+        return prepareTemplateWithData(out, data, PreparedTemplate.of(templateContent, cssContent), basePath);
+    }
+
+    public String prepareTemplateWithData(
+        OutputStream out, Map<String, Object> data, PreparedTemplate template, String basePath) throws IOException {
 
         final HashMap<String, Object> staticData = new HashMap<>();
         if (basePath != null && basePath.trim().length() > 0) {
@@ -85,34 +126,76 @@ public class JsonToHtmlProcessorUsingStringTemplates {
         data.put("_static", staticData);
 
         final Context context = new Context(Locale.GERMAN, data);
-        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out))) {
-            try {
-                templateEngine.process(templateContent, context, writer);
-                return null;
-
-            } catch (TemplateInputException templateInputException) {
-                LOGGER.error("Failed to process\r\n" + templateContent + "\r\n" + data, templateInputException);
-                return "<hr /><h3>Template Input Exception:</h3>"
-                    + "<pre>" + StringEscapeUtils.escapeHtml4(templateInputException.getCause().getMessage()) + "</pre>"
-                    + "<h3>JSON Data:</h3>"
-                    + "<pre>" + JsonUtil.convertObjectToJsonString(data) + "</pre>";
-            } catch (Exception exception) {
-                LOGGER.error("Failed to process\r\n" + templateContent + "\r\n" + data, exception);
-
-                StringWriter stringWriter = new StringWriter();
-                PrintWriter printWriter = new PrintWriter(stringWriter);
-                exception.printStackTrace(printWriter);
-
-                return "<hr /><h3>Exception:</h3>"
-                    + "<pre>" + StringEscapeUtils.escapeHtml4(exception.getMessage()) + "</pre>"
-                    + "<h3>JSON Data:</h3>"
-                    + "<pre>" + JsonUtil.convertObjectToJsonString(data) + "</pre>"
-                    + "<h3>Stack Trace:</h3>"
-                    + "<pre>" + StringEscapeUtils.escapeHtml4(stringWriter.toString()) + "</pre>";
+        // The writer is not closed, because the output stream is owned by the caller. On errors, the partial output is
+        // written to the stream too, so a caller, that has already sent parts of it, can append the error message
+        // without a gap. The stream itself is flushed on success only, so an uncommitted response can still be reset.
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(out) {
+            @Override
+            public void flush() {
+                // the stream of the caller is flushed explicitly
             }
+        };
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(countingOutputStream, StandardCharsets.UTF_8));
+        CURRENT_TEMPLATE.set(template);
+        RenderMetrics.tagTemplateIfAbsent(template);
+        final HtmlRenderEvent event = HtmlRenderEvent.started();
+        final RenderMetrics.Sample start = renderMetrics.start();
+        boolean success = false;
+        try {
+            templateEngine.process(template.key(), context, writer);
+            writer.flush();
+            out.flush();
+            renderMetrics.stop(RenderMetrics.Stage.THYMELEAF, start);
+            renderMetrics.recordSize(RenderMetrics.Size.HTML, countingOutputStream.getCount());
+            success = true;
+            return null;
+
+        } catch (TemplateProcessingException templateProcessingException) {
+            // Cached templates are parsed before they are processed, so expression errors are no longer
+            // wrapped into a TemplateInputException. Both are reported the same way.
+            final String dataDump = JsonUtil.convertObjectToJsonString(data, MAX_DATA_DUMP_LENGTH);
+            LOGGER.error("Failed to process\r\n" + template.mergedContent() + "\r\n" + dataDump, templateProcessingException);
+            final Throwable reason = templateProcessingException instanceof TemplateInputException
+                && templateProcessingException.getCause() != null ? templateProcessingException.getCause() : templateProcessingException;
+            return "<hr /><h3>Template Input Exception:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(reason.getMessage()) + "</pre>"
+                + "<h3>JSON Data:</h3>"
+                + "<pre>" + dataDump + "</pre>";
+        } catch (Exception exception) {
+            final String dataDump = JsonUtil.convertObjectToJsonString(data, MAX_DATA_DUMP_LENGTH);
+            LOGGER.error("Failed to process\r\n" + template.mergedContent() + "\r\n" + dataDump, exception);
+
+            StringWriter stringWriter = new StringWriter();
+            PrintWriter printWriter = new PrintWriter(stringWriter);
+            exception.printStackTrace(printWriter);
+
+            return "<hr /><h3>Exception:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(exception.getMessage()) + "</pre>"
+                + "<h3>JSON Data:</h3>"
+                + "<pre>" + dataDump + "</pre>"
+                + "<h3>Stack Trace:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(stringWriter.toString()) + "</pre>";
+        } finally {
+            if (!success) {
+                flushPartialOutput(writer);
+            }
+            CURRENT_TEMPLATE.remove();
+            event.finish(template.key(), countingOutputStream.getCount(), !success);
         }
     }
 
+    /**
+     * Parse a template and check the syntax of its expressions, without processing it.
+     *
+     * @param template the template to parse
+     * @throws TemplateInputException if the template or one of its expressions cannot be parsed
+     */
+    public void precompile(PreparedTemplate template) {
+        TEMPLATE_PARSER.parseStandalone(templateEngine.getConfiguration(), null, template.key(), null,
+            new StringTemplateResource(template.mergedContent()), TemplateMode.HTML, false,
+            new TemplateExpressionValidator(templateEngine.getConfiguration()));
+    }
+
     public static Map<String, Object> convertDataJsonStringToMap(String dataJsonString) throws IOException {
         final Map<String, Object> data;
         if (dataJsonString.trim().startsWith("[")) {
@@ -124,4 +207,90 @@ public class JsonToHtmlProcessorUsingStringTemplates {
         }
         return data;
     }
+
+    /**
+     * Parse JSON data directly from a stream. A top-level array is passed to the template as "list".
+     *
+     * @param dataJsonStream the JSON data stream - it is not closed
+     * @return a mutable map with the data
+     * @throws IOException on invalid JSON or when reading the stream fails
+     */
+    public static Map<String, Object> convertDataJsonStreamToMap(InputStream dataJsonStream) throws IOException {
+        return toDataMap(JsonUtil.convertToJsonMapOrList(dataJsonStream));
+    }
+
+    /**
+     * Parse JSON data from a stream. The data is decoded completely while the stream is read, unless
+     * {@code application.lazy-stream-decoding} is set: lazy decoding needs all bytes of the stream on the heap.
+     *
+     * @param dataJsonStream the JSON data stream - it is not closed
+     * @return a mutable map with the data
+     * @throws IOException on invalid JSON or when reading the stream fails
+     */
+    public Map<String, Object> convertDataJsonToMap(InputStream dataJsonStream) throws IOException {
+        return convertDataJsonToMap(dataJsonStream, applicationProperties.isLazyStreamDecoding());
+    }
+
+    /**
+     * Parse JSON data from a stream. Lazy decoding needs all bytes on the heap, so it is used only, when it is allowed
+     * and {@code application.lazy-data-decoding} is set.
+     *
+     * @param dataJsonStream the JSON data stream - it is not closed
+     * @param allowLazy      true to read the stream onto the heap and decode it lazily, false to decode the data
+     *                       completely while reading the stream
+     * @return a mutable map with the data
+     * @throws IOException on invalid JSON or when reading the stream fails
+     */
+    public Map<String, Object> convertDataJsonToMap(InputStream dataJsonStream, boolean allowLazy) throws IOException {
+        final RenderMetrics.Sample start = renderMetrics.start();
+        final Map<String, Object> data = allowLazy && applicationProperties.isLazyDataDecoding()
+            ? toDataMap(JsonUtil.convertToLazyJsonMapOrList(dataJsonStream.readAllBytes()))
+            : convertDataJsonStreamToMap(dataJsonStream);
+        renderMetrics.stop(RenderMetrics.Stage.JSON, start);
+        return data;
+    }
+
+    /**
+     * Parse JSON data - either lazily or completely, depending on {@code application.lazy-data-decoding}.
+     *
+     * @param dataJson the JSON data (UTF-8)
+     * @return a mutable map with the data
+     * @throws IOException on invalid JSON
+     */
+    public Map<String, Object> convertDataJsonToMap(byte[] dataJson) throws IOException {
+        final RenderMetrics.Sample start = renderMetrics.start();
+        final Map<String, Object> data = applicationProperties.isLazyDataDecoding()
+            ? toDataMap(JsonUtil.convertToLazyJsonMapOrList(dataJson))
+            : convertDataJsonStreamToMap(new ByteArrayInputStream(dataJson));
+        renderMetrics.stop(RenderMetrics.Stage.JSON, start);
+        return data;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static void flushPartialOutput(Writer writer) {
+        try {
+            writer.flush();
+        } catch (IOException ioException) {
+            // The error message is returned anyway - typically the client has gone
+            LOGGER.debug("Cannot flush the partial output: {}", ioException.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toDataMap(Object mapOrList) {
+        final Map<String, Object> data;
+        if (mapOrList instanceof List) {
+            data = new HashMap<>(); // must be a mutable map - do not use Map.of
+            data.put("list", mapOrList);
+        } else {
+            data = (Map<String, Object>) mapOrList;
+        }
+        return data;
+    }
+
+    private String lookupTemplateContent(String key) {
+        final PreparedTemplate template = CURRENT_TEMPLATE.get();
+        return template != null && template.key().equals(key) ? template.mergedContent() : null;
+    }
 }
@@ -0,0 +1,35 @@
+package com.giraone.thymeleaf.service;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.StringTemplateResource;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A {@link StringTemplateResolver}, where the template name is a content key and not the template content itself.
+ * The content for a key is looked up only, when the template is not found in the template cache.
+ * Template names, for which no content is found, are treated as template content, like the standard
+ * {@link StringTemplateResolver} does it (e.g. for fragment expressions).
+ */
+public class KeyedStringTemplateResolver extends StringTemplateResolver {
+
+    private final Function<String, String> contentLookup;
+
+    public KeyedStringTemplateResolver(Function<String, String> contentLookup) {
+        this.contentLookup = contentLookup;
+    }
+
+    @Override
+    protected ITemplateResource computeTemplateResource(IEngineConfiguration configuration, String ownerTemplate, String template,
+                                                        Map<String, Object> templateResolutionAttributes) {
+
+        final String content = contentLookup.apply(template);
+        if (content == null) {
+            return super.computeTemplateResource(configuration, ownerTemplate, template, templateResolutionAttributes);
+        }
+        return new StringTemplateResource(content);
+    }
+}
@@ -0,0 +1,41 @@
+package com.giraone.thymeleaf.service;
+
+import com.giraone.thymeleaf.common.HashUtil;
+
+/**
+ * A Thymeleaf template together with its (optional) CSS content. The key is a content hash of both, which is used as
+ * the template name within the template engine, so the template cache holds short keys instead of complete templates.
+ *
+ * @param key             SHA-256 hash of template and CSS content
+ * @param templateContent the HTML template
+ * @param cssContent      the CSS content or null
+ */
+public record PreparedTemplate(String key, String templateContent, String cssContent) {
+
+    static final String STYLE_PLACEHOLDER = "<style></style>";
+
+    public static PreparedTemplate of(String templateContent, String cssContent) {
+        return new PreparedTemplate(HashUtil.sha256Hex(templateContent, cssContent), templateContent, cssContent);
+    }
+
+    /**
+     * Merge the CSS content into the empty style tag of the template.
+     *
+     * @return the template content with the CSS content within its style tag
+     */
+    public String mergedContent() {
+        if (cssContent == null) {
+            return templateContent;
+        }
+        return templateContent.replace(STYLE_PLACEHOLDER, "<style>" + cssContent + "</style>");
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedTemplate{" +
+            "key='" + key + '\'' +
+            ", templateLength=" + templateContent.length() +
+            ", cssLength=" + (cssContent != null ? cssContent.length() : 0) +
+            '}';
+    }
+}
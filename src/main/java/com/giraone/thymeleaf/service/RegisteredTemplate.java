@@ -0,0 +1,17 @@
+package com.giraone.thymeleaf.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * One version of a template stored in the {@link TemplateRegistry}.
+ *
+ * @param id       the template ID chosen by the client
+ * @param version  the version number - starting with 1
+ * @param hash     the content hash of template and CSS
+ * @param created  the time, when this version was registered
+ * @param template the template and CSS content
+ */
+public record RegisteredTemplate(String id, int version, String hash, Instant created, @JsonIgnore PreparedTemplate template) {
+}
@@ -0,0 +1,333 @@
+package com.giraone.thymeleaf.service;
+
+import com.giraone.thymeleaf.common.ThreadResourceUtil;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Timers for the stages of a render and size summaries for its inputs and outputs. All meters are tagged with the
+ * endpoint and the template (ID of a registered template or a short hash of an ad hoc template) of the current render.
+ * These tags are kept in a thread local {@link Scope}, which is opened per request by the
+ * {@link com.giraone.thymeleaf.controller.RenderTimingFilter} and passed on to worker threads with {@link #currentTags()}.
+ */
+@Component
+public class RenderMetrics {
+
+    public static final String STAGE_TIMER = "render.stage";
+    public static final String STAGE_CPU_TIMER = "render.stage.cpu";
+    public static final String STAGE_ALLOCATION_SUMMARY = "render.stage.allocated";
+    public static final String SIZE_SUMMARY = "render.size";
+    public static final String TAG_ENDPOINT = "endpoint";
+    public static final String TAG_TEMPLATE = "template";
+    static final String UNKNOWN = "none";
+    static final String OTHER = "other";
+    private static final int TEMPLATE_HASH_LENGTH = 12;
+
+    public enum Stage {
+        MULTIPART("multipart"),
+        JSON("json"),
+        THYMELEAF("thymeleaf"),
+        ASSET_PREFETCH("asset.prefetch"),
+        PD4ML_READ("pd4ml.read"),
+        PD4ML_WRITE("pd4ml.write"),
+        PDFA_STATUS("pdfa.status"),
+        RESPONSE_WRITE("response.write");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    public enum Size {
+        DATA, TEMPLATE, HTML, PDF
+    }
+
+    /**
+     * The tags of the current render.
+     */
+    public static final class Tags {
+
+        private final String endpoint;
+        private volatile String template;
+        private volatile String templateKey;
+        private volatile long dataSize = -1L;
+        // Duration, CPU time and allocated bytes per stage, summed up over all threads of the request
+        private final Map<Stage, long[]> stageTotals = new EnumMap<>(Stage.class);
+        private volatile int stageTotalsVersion;
+
+        public Tags(String endpoint, String template) {
+            this.endpoint = endpoint;
+            this.template = template;
+        }
+
+        public String endpoint() {
+            return endpoint;
+        }
+
+        public String template() {
+            return template;
+        }
+
+        /**
+         * @return the content hash of the template of the current render or null
+         */
+        public String templateKey() {
+            return templateKey;
+        }
+
+        /**
+         * @return the size of the request data in bytes or -1, if unknown
+         */
+        public long dataSize() {
+            return dataSize;
+        }
+
+        /**
+         * @return the stages measured so far in the format of a {@code Server-Timing} header, e.g.
+         * {@code json;dur=1.2;desc="cpu=1.1ms alloc=120KB", thymeleaf;dur=5.3;desc="cpu=5.0ms alloc=2048KB"}
+         */
+        public synchronized String serverTiming() {
+
+            final StringBuilder header = new StringBuilder();
+            for (Map.Entry<Stage, long[]> entry : stageTotals.entrySet()) {
+                final long[] totals = entry.getValue();
+                if (header.length() > 0) {
+                    header.append(", ");
+                }
+                header.append(entry.getKey().tagValue).append(";dur=").append(millis(totals[0]));
+                if (totals[1] >= 0 || totals[2] >= 0) {
+                    header.append(";desc=\"cpu=").append(millis(totals[1])).append("ms alloc=").append(totals[2] / 1024L).append("KB\"");
+                }
+            }
+            return header.toString();
+        }
+
+        synchronized void add(Stage stage, long nanos, long cpuNanos, long allocatedBytes) {
+            final long[] totals = stageTotals.computeIfAbsent(stage, key -> new long[]{0L, cpuNanos < 0 ? -1L : 0L, allocatedBytes < 0 ? -1L : 0L});
+            totals[0] += nanos;
+            if (totals[1] >= 0 && cpuNanos >= 0) {
+                totals[1] += cpuNanos;
+            }
+            if (totals[2] >= 0 && allocatedBytes >= 0) {
+                totals[2] += allocatedBytes;
+            }
+            stageTotalsVersion++;
+        }
+
+        /**
+         * @return a number, that changes whenever a stage is added
+         */
+        public int stageTotalsVersion() {
+            return stageTotalsVersion;
+        }
+
+        private static String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+        }
+    }
+
+    /**
+     * The start of a stage: wall clock, CPU time and allocated bytes of the current thread - the latter two are -1,
+     * if they are not measured.
+     */
+    public record Sample(long startNanos, long cpuNanos, long allocatedBytes) {
+    }
+
+    /**
+     * Closing a scope restores the tags of the enclosing scope.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Tags previous;
+
+        private Scope(Tags previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    private static final ThreadLocal<Tags> CURRENT = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistograms;
+    private final boolean threadResources;
+
+    @Autowired
+    public RenderMetrics(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistograms = applicationProperties.getRenderMetrics().isPercentileHistograms();
+        this.threadResources = applicationProperties.getRenderMetrics().isThreadResources();
+    }
+
+    public static Scope open(String endpoint) {
+        return open(new Tags(endpoint, null));
+    }
+
+    public static Scope open(Tags tags) {
+        final Tags previous = CURRENT.get();
+        CURRENT.set(tags);
+        return new Scope(previous);
+    }
+
+    /**
+     * @return the tags of the current thread - to be passed to {@link #open(Tags)} on a worker thread - or null
+     */
+    public static Tags currentTags() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Tag the current render with the ID of a registered template.
+     */
+    public static void tagTemplateId(String templateId) {
+        final Tags tags = CURRENT.get();
+        if (tags != null) {
+            tags.template = templateId;
+        }
+    }
+
+    /**
+     * Tag the current render with a short hash of the template, unless it is tagged with a template ID.
+     */
+    public static void tagTemplateIfAbsent(PreparedTemplate template) {
+        final Tags tags = CURRENT.get();
+        if (tags != null) {
+            tags.templateKey = template.key();
+            if (tags.template == null) {
+                tags.template = template.key().substring(0, TEMPLATE_HASH_LENGTH);
+            }
+        }
+    }
+
+    public Sample start() {
+        return threadResources
+            ? new Sample(System.nanoTime(), ThreadResourceUtil.cpuTimeNanos(), ThreadResourceUtil.allocatedBytes())
+            : new Sample(System.nanoTime(), -1L, -1L);
+    }
+
+    /**
+     * Record a stage, that was started on the current thread.
+     */
+    public void stop(Stage stage, Sample start) {
+
+        final long nanos = System.nanoTime() - start.startNanos();
+        final long cpuNanos = start.cpuNanos() >= 0 ? ThreadResourceUtil.cpuTimeNanos() - start.cpuNanos() : -1L;
+        final long allocatedBytes = start.allocatedBytes() >= 0 ? ThreadResourceUtil.allocatedBytes() - start.allocatedBytes() : -1L;
+        record(stage, nanos, cpuNanos, allocatedBytes);
+    }
+
+    /**
+     * Record a stage.
+     *
+     * @param stage          the stage
+     * @param nanos          the duration
+     * @param cpuNanos       the CPU time or -1, if not measured
+     * @param allocatedBytes the allocated bytes or -1, if not measured
+     */
+    public void record(Stage stage, long nanos, long cpuNanos, long allocatedBytes) {
+
+        final Tags tags = CURRENT.get();
+        final String endpoint = tags != null ? tags.endpoint : UNKNOWN;
+        final String template = tags != null && tags.template != null ? tags.template : UNKNOWN;
+        Timer.builder(STAGE_TIMER)
+            .description("Duration of a render stage")
+            .tag("stage", stage.tagValue)
+            .tag(TAG_ENDPOINT, endpoint)
+            .tag(TAG_TEMPLATE, template)
+            .publishPercentileHistogram(percentileHistograms)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        if (cpuNanos >= 0) {
+            Timer.builder(STAGE_CPU_TIMER)
+                .description("CPU time of the threads of a render stage")
+                .tag("stage", stage.tagValue)
+                .tag(TAG_ENDPOINT, endpoint)
+                .tag(TAG_TEMPLATE, template)
+                .register(meterRegistry)
+                .record(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+        if (allocatedBytes >= 0) {
+            DistributionSummary.builder(STAGE_ALLOCATION_SUMMARY)
+                .description("Heap allocated by the threads of a render stage")
+                .baseUnit("bytes")
+                .tag("stage", stage.tagValue)
+                .tag(TAG_ENDPOINT, endpoint)
+                .tag(TAG_TEMPLATE, template)
+                .publishPercentileHistogram(percentileHistograms)
+                .register(meterRegistry)
+                .record(allocatedBytes);
+        }
+        if (tags != null) {
+            tags.add(stage, nanos, cpuNanos, allocatedBytes);
+        }
+    }
+
+    public void recordSize(Size size, long bytes) {
+
+        final Tags tags = CURRENT.get();
+        if (size == Size.DATA && tags != null) {
+            tags.dataSize = bytes;
+        }
+        DistributionSummary.builder(SIZE_SUMMARY)
+            .description("Size of render inputs and outputs")
+            .baseUnit("bytes")
+            .tag("kind", size.name().toLowerCase())
+            .tag(TAG_ENDPOINT, tags != null ? tags.endpoint : UNKNOWN)
+            .tag(TAG_TEMPLATE, tags != null && tags.template != null ? tags.template : UNKNOWN)
+            .publishPercentileHistogram(percentileHistograms)
+            .register(meterRegistry)
+            .record(bytes);
+    }
+
+    /**
+     * A filter, that limits the number of distinct template tag values of the render metrics, so ad hoc templates
+     * cannot create an unbounded number of time series. Further values are replaced by {@value #OTHER}.
+     *
+     * @param maxTemplateTags the maximum number of distinct values
+     */
+    public static MeterFilter templateTagLimit(int maxTemplateTags) {
+
+        final Set<String> seen = ConcurrentHashMap.newKeySet();
+        return new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                final String template = id.getTag(TAG_TEMPLATE);
+                if (template == null || !id.getName().startsWith("render.") || seen.contains(template)) {
+                    return id;
+                }
+                if (seen.size() < maxTemplateTags) {
+                    seen.add(template);
+                    return id;
+                }
+                return id.replaceTags(id.getTags().stream()
+                    .map(tag -> tag.getKey().equals(TAG_TEMPLATE) ? Tag.of(TAG_TEMPLATE, OTHER) : tag)
+                    .collect(Collectors.toList()));
+            }
+        };
+    }
+}
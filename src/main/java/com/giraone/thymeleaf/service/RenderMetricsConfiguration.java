@@ -0,0 +1,55 @@
+package com.giraone.thymeleaf.service;
+
+public class RenderMetricsConfiguration {
+
+    /** Publish percentile histograms for the stage timers and size summaries */
+    private boolean percentileHistograms = true;
+    /** Maximum number of distinct template tag values - further templates are tagged as "other" */
+    private int maxTemplateTags = 100;
+    /** Measure CPU time and allocated bytes of the rendering threads per stage */
+    private boolean threadResources = true;
+    /** Send the stages measured, until the response is committed, in a Server-Timing header */
+    private boolean serverTimingHeader = false;
+
+    public boolean isPercentileHistograms() {
+        return percentileHistograms;
+    }
+
+    public void setPercentileHistograms(boolean percentileHistograms) {
+        this.percentileHistograms = percentileHistograms;
+    }
+
+    public int getMaxTemplateTags() {
+        return maxTemplateTags;
+    }
+
+    public void setMaxTemplateTags(int maxTemplateTags) {
+        this.maxTemplateTags = maxTemplateTags;
+    }
+
+    public boolean isThreadResources() {
+        return threadResources;
+    }
+
+    public void setThreadResources(boolean threadResources) {
+        this.threadResources = threadResources;
+    }
+
+    public boolean isServerTimingHeader() {
+        return serverTimingHeader;
+    }
+
+    public void setServerTimingHeader(boolean serverTimingHeader) {
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderMetricsConfiguration{" +
+            "percentileHistograms=" + percentileHistograms +
+            ", maxTemplateTags=" + maxTemplateTags +
+            ", threadResources=" + threadResources +
+            ", serverTimingHeader=" + serverTimingHeader +
+            '}';
+    }
+}
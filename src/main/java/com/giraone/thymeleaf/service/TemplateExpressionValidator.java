@@ -0,0 +1,190 @@
+package com.giraone.thymeleaf.service;
+
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.ExpressionContext;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.ITemplateHandler;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.model.IAttribute;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IDocType;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IProcessingInstruction;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.ITemplateEnd;
+import org.thymeleaf.model.ITemplateStart;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.model.IXMLDeclaration;
+import org.thymeleaf.standard.expression.IStandardExpressionParser;
+import org.thymeleaf.standard.expression.StandardExpressions;
+
+import java.util.Set;
+
+/**
+ * Receives the events of a parsed template and checks the syntax of its expressions without evaluating them:
+ * the variable and selection expressions ({@code ${...}}, {@code *{...}}) of all {@code th:} attributes are parsed
+ * as SpEL, attributes, which contain a single standard expression, are parsed completely. Inlined expressions
+ * ({@code [[...]]}) are passed by the parser as {@code th:text} attributes. Expressions with preprocessing
+ * ({@code __...__}) are only known at render time and are not checked. The parser wraps the exceptions into a
+ * {@link org.thymeleaf.exceptions.TemplateInputException}.
+ */
+class TemplateExpressionValidator implements ITemplateHandler {
+
+    private static final SpelExpressionParser SPEL_PARSER = new SpelExpressionParser();
+
+    // Attributes of the standard dialect, whose value is exactly one standard expression
+    private static final Set<String> STANDARD_EXPRESSION_ATTRIBUTES = Set.of(
+        "text", "utext", "if", "unless", "object", "switch", "value", "href", "src");
+
+    private static final String PREFIX = "th:";
+    private static final String DATA_PREFIX = "data-th-";
+
+    private final IStandardExpressionParser expressionParser;
+    private final IExpressionContext expressionContext;
+
+    TemplateExpressionValidator(IEngineConfiguration configuration) {
+        this.expressionParser = StandardExpressions.getExpressionParser(configuration);
+        this.expressionContext = new ExpressionContext(configuration);
+    }
+
+    @Override
+    public void handleStandaloneElement(IStandaloneElementTag standaloneElementTag) {
+        validateAttributes(standaloneElementTag);
+    }
+
+    @Override
+    public void handleOpenElement(IOpenElementTag openElementTag) {
+        validateAttributes(openElementTag);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void validateAttributes(IProcessableElementTag tag) {
+
+        for (IAttribute attribute : tag.getAllAttributes()) {
+            final String value = attribute.getValue();
+            final String name = attribute.getAttributeCompleteName();
+            final String localName = name.startsWith(PREFIX) ? name.substring(PREFIX.length())
+                : name.startsWith(DATA_PREFIX) ? name.substring(DATA_PREFIX.length()) : null;
+            if (localName == null || value == null || value.contains("__")) {
+                continue;
+            }
+            validateVariableExpressions(value, attribute.getTemplateName(), attribute.getLine(), attribute.getCol());
+            if (STANDARD_EXPRESSION_ATTRIBUTES.contains(localName)) {
+                try {
+                    expressionParser.parseExpression(expressionContext, value);
+                } catch (TemplateProcessingException e) {
+                    throw invalid(value, e.getMessage(), attribute.getTemplateName(), attribute.getLine(), attribute.getCol());
+                }
+            }
+        }
+    }
+
+    private static void validateVariableExpressions(String value, String templateName, int line, int col) {
+
+        for (int i = 0; i + 1 < value.length(); i++) {
+            if ((value.charAt(i) == '$' || value.charAt(i) == '*') && value.charAt(i + 1) == '{') {
+                final int end = closingBrace(value, i + 1);
+                if (end < 0) {
+                    throw invalid(value.substring(i), "missing '}'", templateName, line, col);
+                }
+                final String spel = value.substring(i + 2, end);
+                if (!spel.contains("__")) {
+                    try {
+                        SPEL_PARSER.parseRaw(spel);
+                    } catch (ParseException e) {
+                        throw invalid(value.substring(i, end + 1), e.getMessage(), templateName, line, col);
+                    }
+                }
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the brace closing the one at {@code start} - nested braces and string literals are skipped
+     */
+    private static int closingBrace(String value, int start) {
+
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\'') {
+                inString = !inString;
+            } else if (!inString && c == '{') {
+                depth++;
+            } else if (!inString && c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static TemplateProcessingException invalid(String expression, String reason, String templateName, int line, int col) {
+        return new TemplateProcessingException("Invalid expression \"" + expression + "\": " + reason, templateName, line, col);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void setNext(ITemplateHandler next) {
+        // the validator is the last handler
+    }
+
+    @Override
+    public void setContext(ITemplateContext context) {
+        // expressions are parsed only, so there is no template context
+    }
+
+    @Override
+    public void handleTemplateStart(ITemplateStart templateStart) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleTemplateEnd(ITemplateEnd templateEnd) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleXMLDeclaration(IXMLDeclaration xmlDeclaration) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleDocType(IDocType docType) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleCDATASection(ICDATASection cdataSection) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleComment(IComment comment) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleText(IText text) {
+        // inlined expressions are passed by the parser as th:text or th:utext of a th:block element
+    }
+
+    @Override
+    public void handleCloseElement(ICloseElementTag closeElementTag) {
+        // nothing to check
+    }
+
+    @Override
+    public void handleProcessingInstruction(IProcessingInstruction processingInstruction) {
+        // nothing to check
+    }
+}
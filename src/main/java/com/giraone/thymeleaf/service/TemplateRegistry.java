@@ -0,0 +1,131 @@
+package com.giraone.thymeleaf.service;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory registry of named and versioned templates. A template is parsed once, when it is registered, so rendering
+ * by ID needs only the JSON data.
+ */
+@Service
+public class TemplateRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemplateRegistry.class);
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+
+    private final ApplicationProperties applicationProperties;
+    private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
+
+    // Each list of versions is immutable and sorted by version number
+    private final Map<String, List<RegisteredTemplate>> templates = new ConcurrentHashMap<>();
+    private final Object registrationLock = new Object();
+
+    @Autowired
+    public TemplateRegistry(ApplicationProperties applicationProperties, JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor) {
+        this.applicationProperties = applicationProperties;
+        this.jsonToHtmlProcessor = jsonToHtmlProcessor;
+    }
+
+    public static boolean isValidId(String id) {
+        return id != null && ID_PATTERN.matcher(id).matches();
+    }
+
+    /**
+     * Register a new version of a template. If the content is the same as in the latest version, no new version is created.
+     *
+     * @param id              the template ID
+     * @param templateContent the HTML template
+     * @param cssContent      the CSS content or null
+     * @return the new (or unchanged latest) version
+     * @throws IllegalArgumentException                           if the ID is invalid
+     * @throws IllegalStateException                              if the maximum number of templates is reached
+     * @throws org.thymeleaf.exceptions.TemplateInputException if the template or one of its expressions cannot be parsed
+     */
+    public RegisteredTemplate register(String id, String templateContent, String cssContent) {
+
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException("Invalid template ID \"" + id + "\"!");
+        }
+        final PreparedTemplate preparedTemplate = PreparedTemplate.of(templateContent, cssContent);
+        jsonToHtmlProcessor.precompile(preparedTemplate);
+
+        final int maxTemplates = applicationProperties.getTemplateRegistry().getMaxTemplates();
+        final int maxVersions = Math.max(1, applicationProperties.getTemplateRegistry().getMaxVersions());
+        final List<RegisteredTemplate> versions;
+        // The check of the maximum number and the registration of a new ID must be atomic
+        synchronized (registrationLock) {
+            if (!templates.containsKey(id) && templates.size() >= maxTemplates) {
+                throw new IllegalStateException("Maximum number of " + maxTemplates + " templates reached!");
+            }
+            versions = templates.compute(id, (key, existing) -> {
+                if (existing == null) {
+                    return List.of(new RegisteredTemplate(id, 1, preparedTemplate.key(), Instant.now(), preparedTemplate));
+                }
+                final RegisteredTemplate latest = existing.get(existing.size() - 1);
+                if (latest.hash().equals(preparedTemplate.key())) {
+                    return existing;
+                }
+                final List<RegisteredTemplate> updated = new ArrayList<>(existing);
+                updated.add(new RegisteredTemplate(id, latest.version() + 1, preparedTemplate.key(), Instant.now(), preparedTemplate));
+                while (updated.size() > maxVersions) {
+                    updated.remove(0);
+                }
+                return List.copyOf(updated);
+            });
+        }
+        final RegisteredTemplate registered = versions.get(versions.size() - 1);
+        LOGGER.info("Template \"{}\" registered as version {} with hash {}", id, registered.version(), registered.hash());
+        return registered;
+    }
+
+    /**
+     * Find a template version.
+     *
+     * @param id      the template ID
+     * @param version the version or null for the latest version
+     * @return the template version or empty, if not found
+     */
+    public Optional<RegisteredTemplate> find(String id, Integer version) {
+
+        final List<RegisteredTemplate> versions = templates.get(id);
+        if (versions == null) {
+            return Optional.empty();
+        }
+        if (version == null) {
+            return Optional.of(versions.get(versions.size() - 1));
+        }
+        return versions.stream().filter(t -> t.version() == version).findFirst();
+    }
+
+    public List<RegisteredTemplate> findAllVersions(String id) {
+        return templates.getOrDefault(id, List.of());
+    }
+
+    public List<RegisteredTemplate> findAllLatest() {
+        return templates.values().stream()
+            .map(versions -> versions.get(versions.size() - 1))
+            .sorted(Comparator.comparing(RegisteredTemplate::id))
+            .toList();
+    }
+
+    public boolean delete(String id) {
+        final boolean removed = templates.remove(id) != null;
+        if (removed) {
+            LOGGER.info("Template \"{}\" removed", id);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,33 @@
+package com.giraone.thymeleaf.service;
+
+public class TemplateRegistryConfiguration {
+
+    /** Number of versions, that are kept for each template ID. Older versions are removed. */
+    private int maxVersions = 10;
+    /** Maximum number of template IDs in the registry. */
+    private int maxTemplates = 1000;
+
+    public int getMaxVersions() {
+        return maxVersions;
+    }
+
+    public void setMaxVersions(int maxVersions) {
+        this.maxVersions = maxVersions;
+    }
+
+    public int getMaxTemplates() {
+        return maxTemplates;
+    }
+
+    public void setMaxTemplates(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateRegistryConfiguration{" +
+            "maxVersions=" + maxVersions +
+            ", maxTemplates=" + maxTemplates +
+            '}';
+    }
+}
@@ -0,0 +1,68 @@
+package com.giraone.thymeleaf.service.asset;
+
+import java.time.Duration;
+
+public class AssetPrefetchConfiguration {
+
+    /** Load the assets of a document concurrently, before PD4ML starts the layout */
+    private boolean enabled = true;
+    /** Number of threads loading assets for all documents */
+    private int threads = 16;
+    /** Maximum number of concurrently loaded assets of one document */
+    private int maxParallelFetchesPerDocument = 8;
+    /** Further assets of a document are not prefetched */
+    private int maxUrlsPerDocument = 100;
+    /** Assets, that are not loaded within this duration, are replaced by an error image */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getMaxParallelFetchesPerDocument() {
+        return maxParallelFetchesPerDocument;
+    }
+
+    public void setMaxParallelFetchesPerDocument(int maxParallelFetchesPerDocument) {
+        this.maxParallelFetchesPerDocument = maxParallelFetchesPerDocument;
+    }
+
+    public int getMaxUrlsPerDocument() {
+        return maxUrlsPerDocument;
+    }
+
+    public void setMaxUrlsPerDocument(int maxUrlsPerDocument) {
+        this.maxUrlsPerDocument = maxUrlsPerDocument;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetPrefetchConfiguration{" +
+            "enabled=" + enabled +
+            ", threads=" + threads +
+            ", maxParallelFetchesPerDocument=" + maxParallelFetchesPerDocument +
+            ", maxUrlsPerDocument=" + maxUrlsPerDocument +
+            ", timeout=" + timeout +
+            '}';
+    }
+}
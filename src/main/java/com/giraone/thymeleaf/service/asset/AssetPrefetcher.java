@@ -0,0 +1,222 @@
+package com.giraone.thymeleaf.service.asset;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads the assets of a document concurrently through the {@link PdfAssetCache}, before PD4ML starts the layout.
+ * PD4ML would otherwise load them one after the other. The URLs are taken from {@code src} and {@code href} attributes
+ * and CSS {@code url(...)} of the document and of the stylesheets it references. Assets, that cannot be loaded
+ * within the timeout, are replaced by {@value #ERROR_IMAGE_RESOURCE} (images) or by empty content (stylesheets, fonts),
+ * so the layout does not wait for them again.
+ */
+@Component
+public class AssetPrefetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetPrefetcher.class);
+
+    static final String ERROR_IMAGE_RESOURCE = "images/error-loading-url.png";
+    private static final Set<String> NON_IMAGE_EXTENSIONS = Set.of("css", "js", "ttf", "otf", "woff", "woff2", "eot");
+
+    private final AssetPrefetchConfiguration configuration;
+    private final PdfAssetCache assetCache;
+    private final ExecutorService executor;
+    private final CachedAsset errorImage;
+    private final Timer prefetchTimer;
+    private final Counter failedCounter;
+
+    @Autowired
+    public AssetPrefetcher(ApplicationProperties applicationProperties, PdfAssetCache assetCache, MeterRegistry meterRegistry) {
+
+        this.configuration = applicationProperties.getPdfAssetPrefetch();
+        this.assetCache = assetCache;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, configuration.getThreads()),
+            new CustomizableThreadFactory("asset-prefetch-"));
+        this.errorImage = loadErrorImage();
+        this.prefetchTimer = Timer.builder("pdf.assets.prefetch")
+            .description("Time to prefetch the assets of a document")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("pdf.assets.prefetch.failed")
+            .description("Assets, that were replaced, because they could not be loaded in time")
+            .register(meterRegistry);
+        LOGGER.info("AssetPrefetcher initialized with {}", configuration);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Prefetch the assets of a document.
+     *
+     * @param html    the document - it must support mark/reset and is reset to its start afterwards
+     * @param baseUrl the base URL of the document
+     * @return the assets by URL, to be served by {@link PdfAssetCache#toBaseUrl(URL, Map)} - empty, if nothing was prefetched
+     */
+    public Map<String, CachedAsset> prefetch(InputStream html, URL baseUrl) throws IOException {
+
+        if (!configuration.isEnabled() || baseUrl == null || !html.markSupported()) {
+            return Map.of();
+        }
+        final long start = System.nanoTime();
+        final long deadline = start + configuration.getTimeout().toNanos();
+        final Map<String, CachedAsset> documentAssets = new HashMap<>();
+
+        html.mark(Integer.MAX_VALUE);
+        final Set<String> urls = new LinkedHashSet<>();
+        try {
+            AssetUrlScanner.scan(html, url -> addUrl(urls, baseUrl, url));
+        } finally {
+            html.reset();
+        }
+        final Map<String, CachedAsset> loaded = fetchAll(urls, documentAssets, deadline);
+
+        // Second wave: the assets referenced by the stylesheets, e.g. background images and fonts
+        final Set<String> stylesheetUrls = new LinkedHashSet<>();
+        for (Map.Entry<String, CachedAsset> entry : loaded.entrySet()) {
+            if (isStylesheet(entry.getKey(), entry.getValue())) {
+                final URL stylesheetUrl = new URL(baseUrl, entry.getKey());
+                AssetUrlScanner.scan(new ByteArrayInputStream(entry.getValue().content()),
+                    url -> addUrl(stylesheetUrls, stylesheetUrl, url));
+            }
+        }
+        stylesheetUrls.removeAll(documentAssets.keySet());
+        fetchAll(stylesheetUrls, documentAssets, deadline);
+
+        prefetchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return documentAssets;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void addUrl(Set<String> urls, URL baseUrl, String url) {
+
+        if (urls.size() >= configuration.getMaxUrlsPerDocument() || !AssetUrlScanner.isFetchable(url)) {
+            return;
+        }
+        try {
+            final URL resolved = new URL(baseUrl, url);
+            final String protocol = resolved.getProtocol();
+            if ("http".equals(protocol) || "https".equals(protocol)) {
+                urls.add(resolved.toExternalForm());
+            }
+        } catch (MalformedURLException e) {
+            LOGGER.debug("Skipping invalid asset URL \"{}\"", url);
+        }
+    }
+
+    private Map<String, CachedAsset> fetchAll(Set<String> urls, Map<String, CachedAsset> documentAssets, long deadline) {
+
+        final Semaphore fanOut = new Semaphore(Math.max(1, configuration.getMaxParallelFetchesPerDocument()));
+        final Map<String, Future<CachedAsset>> futures = new LinkedHashMap<>();
+        final List<String> notStarted = new ArrayList<>();
+        for (String url : urls) {
+            if (!acquire(fanOut, deadline)) {
+                notStarted.add(url);
+                continue;
+            }
+            futures.put(url, executor.submit(() -> {
+                try {
+                    // SVG is rasterized here as well, so this is not done while holding a render slot
+                    return assetCache.prepareForPd4ml(url, assetCache.get(url));
+                } finally {
+                    fanOut.release();
+                }
+            }));
+        }
+
+        final Map<String, CachedAsset> loaded = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<CachedAsset>> entry : futures.entrySet()) {
+            try {
+                final CachedAsset asset = entry.getValue().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                loaded.put(entry.getKey(), asset);
+            } catch (TimeoutException | ExecutionException e) {
+                entry.getValue().cancel(true);
+                LOGGER.warn("Asset \"{}\" not loaded: {}", entry.getKey(),
+                    e instanceof ExecutionException ? e.getCause().toString() : "timeout");
+                notStarted.add(entry.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                notStarted.add(entry.getKey());
+            }
+        }
+        documentAssets.putAll(loaded);
+        for (String url : notStarted) {
+            failedCounter.increment();
+            documentAssets.put(url, replacementFor(url));
+        }
+        return loaded;
+    }
+
+    private static boolean acquire(Semaphore semaphore, long deadline) {
+
+        try {
+            return semaphore.tryAcquire(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private CachedAsset replacementFor(String url) {
+
+        final String path = url.replaceFirst("[?#].*$", "");
+        final String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        if (NON_IMAGE_EXTENSIONS.contains(extension)) {
+            return new CachedAsset(new byte[0], null, null, null, System.currentTimeMillis(), true);
+        }
+        return errorImage;
+    }
+
+    private static boolean isStylesheet(String url, CachedAsset asset) {
+
+        if (asset.contentType() != null) {
+            return asset.contentType().startsWith("text/css");
+        }
+        return url.replaceFirst("[?#].*$", "").toLowerCase(Locale.ROOT).endsWith(".css");
+    }
+
+    private static CachedAsset loadErrorImage() {
+
+        try (InputStream in = AssetPrefetcher.class.getClassLoader().getResourceAsStream(ERROR_IMAGE_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource \"" + ERROR_IMAGE_RESOURCE + "\"");
+            }
+            return new CachedAsset(in.readAllBytes(), "image/png", null, null, System.currentTimeMillis(), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.giraone.thymeleaf.service.asset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Finds the URLs in HTML or CSS, that PD4ML loads: {@code src} of {@code img} and {@code input}, {@code href} of
+ * {@code link rel="stylesheet"} and CSS {@code url(...)}. Links, scripts and the like are not loaded by PD4ML.
+ * The scanner works on the UTF-8 bytes, because all markup characters are ASCII, so the content is not decoded.
+ */
+final class AssetUrlScanner {
+
+    private static final int MAX_WORD_LENGTH = 8;
+    private static final int MAX_URL_LENGTH = 4096;
+    private static final Set<String> SRC_ELEMENTS = Set.of("img", "input");
+    private static final String LINK_ELEMENT = "link";
+
+    private enum State { SCAN, VALUE_START, URL_START, COLLECT, SKIP_START, SKIP }
+
+    private final Consumer<String> urlConsumer;
+    private final StringBuilder word = new StringBuilder(MAX_WORD_LENGTH);
+    private final ByteArrayOutputStream value = new ByteArrayOutputStream();
+    private State state = State.SCAN;
+    private String lastWord = "";
+    private int terminator;
+    private int skipped;
+    // The element of the current tag and the attribute of the collected value - null for CSS url(...)
+    private boolean tagStart;
+    private String element = "";
+    private String attribute;
+    // The href of a link element is used, when the tag ends, because rel may follow href
+    private String linkHref;
+    private boolean stylesheetLink;
+
+    private AssetUrlScanner(Consumer<String> urlConsumer) {
+        this.urlConsumer = urlConsumer;
+    }
+
+    /**
+     * Scan a stream to its end.
+     *
+     * @param in          HTML or CSS
+     * @param urlConsumer receives the URLs as written, without resolving them
+     */
+    static void scan(InputStream in, Consumer<String> urlConsumer) throws IOException {
+
+        final AssetUrlScanner scanner = new AssetUrlScanner(urlConsumer);
+        final byte[] buffer = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) >= 0) {
+            for (int i = 0; i < bytesRead; i++) {
+                scanner.next(buffer[i] & 0xff);
+            }
+        }
+    }
+
+    private void next(int b) {
+
+        switch (state) {
+            case SCAN -> scanMarkup(b);
+            case VALUE_START -> startValue(b, false);
+            case URL_START -> startValue(b, true);
+            case COLLECT -> collect(b);
+            case SKIP_START -> startSkip(b);
+            case SKIP -> skip(b);
+        }
+    }
+
+    private void scanMarkup(int b) {
+
+        if (isLetter(b)) {
+            if (word.length() < MAX_WORD_LENGTH) {
+                word.append((char) Character.toLowerCase(b));
+            }
+            return;
+        }
+        if (word.length() > 0) {
+            lastWord = word.toString();
+            word.setLength(0);
+            if (tagStart) {
+                element = lastWord;
+            }
+        }
+        tagStart = false;
+        if (b == '<') {
+            startTag();
+        } else if (b == '>') {
+            endTag();
+        } else if (b == '=' && isUrlAttribute(lastWord)) {
+            attribute = lastWord;
+            state = State.VALUE_START;
+        } else if (b == '(' && lastWord.equals("url")) {
+            attribute = null;
+            state = State.URL_START;
+        } else if (b == '=' && !lastWord.isEmpty() && !lastWord.equals("style")) {
+            // The value of another attribute, e.g. title="src=x", is not scanned - except inline CSS
+            state = State.SKIP_START;
+        } else if (!isWhitespace(b)) {
+            lastWord = "";
+        }
+    }
+
+    private void startValue(int b, boolean cssUrl) {
+
+        if (isWhitespace(b)) {
+            return;
+        }
+        value.reset();
+        if (b == '"' || b == '\'') {
+            terminator = b;
+        } else {
+            terminator = cssUrl ? ')' : ' ';
+            value.write(b);
+        }
+        state = State.COLLECT;
+    }
+
+    private void collect(int b) {
+
+        final boolean end = b == terminator || (terminator == ' ' && (isWhitespace(b) || b == '>'))
+            || (terminator == ')' && isWhitespace(b));
+        if (!end && value.size() < MAX_URL_LENGTH) {
+            value.write(b);
+            return;
+        }
+        if (end) {
+            final String url = value.toString(StandardCharsets.UTF_8).trim();
+            if (!url.isEmpty()) {
+                accept(url);
+            }
+        }
+        value.reset();
+        lastWord = "";
+        state = State.SCAN;
+        if (b == '>' && terminator == ' ') {
+            endTag();
+        }
+    }
+
+    private void accept(String attributeValue) {
+
+        if (attribute == null || attribute.equals("src")) {
+            urlConsumer.accept(attributeValue);
+        } else if (attribute.equals("href")) {
+            linkHref = attributeValue;
+        } else {
+            stylesheetLink = Arrays.asList(attributeValue.toLowerCase(Locale.ROOT).split("\\s+")).contains("stylesheet");
+        }
+    }
+
+    private void startTag() {
+
+        tagStart = true;
+        element = "";
+        linkHref = null;
+        stylesheetLink = false;
+        lastWord = "";
+    }
+
+    private void endTag() {
+
+        if (stylesheetLink && linkHref != null) {
+            urlConsumer.accept(linkHref);
+        }
+        element = "";
+        linkHref = null;
+        stylesheetLink = false;
+        lastWord = "";
+    }
+
+    private boolean isUrlAttribute(String name) {
+        return name.equals("src") ? SRC_ELEMENTS.contains(element)
+            : (name.equals("href") || name.equals("rel")) && element.equals(LINK_ELEMENT);
+    }
+
+    private void startSkip(int b) {
+
+        if (isWhitespace(b)) {
+            return;
+        }
+        if (b == '"' || b == '\'') {
+            terminator = b;
+            skipped = 0;
+            state = State.SKIP;
+        } else {
+            lastWord = "";
+            state = State.SCAN;
+            scanMarkup(b);
+        }
+    }
+
+    private void skip(int b) {
+
+        if (b == terminator || ++skipped > MAX_URL_LENGTH) {
+            lastWord = "";
+            state = State.SCAN;
+        }
+    }
+
+    private static boolean isLetter(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    static boolean isFetchable(String url) {
+
+        final String lower = url.toLowerCase(Locale.ROOT);
+        return !lower.startsWith("#") && !lower.startsWith("data:") && !lower.startsWith("javascript:")
+            && !lower.startsWith("mailto:") && !lower.startsWith("tel:") && !lower.contains("${");
+    }
+}
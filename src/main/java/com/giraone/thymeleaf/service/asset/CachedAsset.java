@@ -0,0 +1,18 @@
+package com.giraone.thymeleaf.service.asset;
+
+/**
+ * An asset (image, stylesheet, font) with the validators needed for a conditional request.
+ *
+ * @param content      the content
+ * @param contentType  the content type or null
+ * @param etag         the ETag header of the response or null
+ * @param lastModified the Last-Modified header of the response or null
+ * @param validatedAt  time in millis, when the content was loaded or revalidated
+ * @param local        true, if the asset was loaded from a local resource - it is never revalidated
+ */
+public record CachedAsset(byte[] content, String contentType, String etag, String lastModified, long validatedAt, boolean local) {
+
+    CachedAsset revalidated(long now) {
+        return new CachedAsset(content, contentType, etag, lastModified, now, local);
+    }
+}
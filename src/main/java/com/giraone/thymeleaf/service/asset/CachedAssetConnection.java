@@ -0,0 +1,45 @@
+package com.giraone.thymeleaf.service.asset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * URL connection, that returns a cached asset without any I/O.
+ */
+class CachedAssetConnection extends URLConnection {
+
+    private final CachedAsset asset;
+
+    CachedAssetConnection(URL url, CachedAsset asset) {
+        super(url);
+        this.asset = asset;
+    }
+
+    @Override
+    public void connect() {
+        connected = true;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        connected = true;
+        return new ByteArrayInputStream(asset.content());
+    }
+
+    @Override
+    public String getContentType() {
+        return asset.contentType();
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return asset.content().length;
+    }
+
+    @Override
+    public int getContentLength() {
+        return asset.content().length;
+    }
+}
@@ -0,0 +1,299 @@
+package com.giraone.thymeleaf.service.asset;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache for the assets (images, stylesheets, fonts), that PD4ML loads while rendering a PDF.
+ * <p>
+ * PD4ML resolves the URLs of a document against the base URL passed to {@code readHTML}. A URL resolved against a
+ * context URL of the same protocol inherits the {@link URLStreamHandler} of the context URL, so all http(s) URLs
+ * of a document are loaded through {@link #getUrlStreamHandler()}, when the base URL is created by {@link #toBaseUrl(URL)}.
+ * URLs with a configured local prefix are read from classpath or file resources. Other remote assets are cached in memory,
+ * bounded by their size, and revalidated with a conditional request. SVG assets may be rasterized by the {@link SvgRasterizer}.
+ */
+@Component
+public class PdfAssetCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfAssetCache.class);
+
+    static final String CACHE_NAME = "pdf.assets";
+
+    private final PdfAssetCacheConfiguration configuration;
+    private final SvgRasterizer svgRasterizer;
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+    private final Cache<String, CachedAsset> cache;
+    private final URLStreamHandler urlStreamHandler = new CachingUrlStreamHandler(Map.of());
+    private final URL defaultBaseUrl;
+
+    @Autowired
+    public PdfAssetCache(ApplicationProperties applicationProperties, SvgRasterizer svgRasterizer, MeterRegistry meterRegistry) {
+
+        this.configuration = applicationProperties.getPdfAssetCache();
+        this.svgRasterizer = svgRasterizer;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(configuration.getMaximumWeight().toBytes())
+            .weigher((String key, CachedAsset asset) -> asset.content().length)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.defaultBaseUrl = defaultBaseUrl(applicationProperties.getHtmlPdfBase());
+        LOGGER.info("PdfAssetCache initialized with {}, base URL {}", configuration, defaultBaseUrl);
+    }
+
+    /**
+     * Create the base URL for PD4ML's {@code readHTML}, so that the assets of the document are loaded through the cache.
+     *
+     * @param url the base URL of the document or null, if the HTML was rendered from a template
+     * @return the base URL using the caching handler or the unchanged URL, if the cache is disabled
+     */
+    public URL toBaseUrl(URL url) {
+
+        if (!configuration.isEnabled()) {
+            return url;
+        }
+        if (url == null) {
+            return defaultBaseUrl;
+        }
+        try {
+            return new URL(null, url.toExternalForm(), urlStreamHandler);
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    /**
+     * Create the base URL for PD4ML's {@code readHTML}, that serves the given assets first - see {@link AssetPrefetcher}.
+     *
+     * @param baseUrl        a base URL created by {@link #toBaseUrl(URL)}
+     * @param documentAssets the prefetched assets of one document by URL
+     * @return the base URL using a handler for this document
+     */
+    public URL toBaseUrl(URL baseUrl, Map<String, CachedAsset> documentAssets) {
+
+        if (baseUrl == null || documentAssets.isEmpty()) {
+            return baseUrl;
+        }
+        try {
+            return new URL(null, baseUrl.toExternalForm(), new CachingUrlStreamHandler(documentAssets));
+        } catch (MalformedURLException e) {
+            return baseUrl;
+        }
+    }
+
+    public URLStreamHandler getUrlStreamHandler() {
+        return urlStreamHandler;
+    }
+
+    /**
+     * Get an asset from the cache. The asset is loaded, if it is not cached, and revalidated, if it is stale.
+     *
+     * @param url an absolute http(s) URL or a URL with a configured local prefix
+     * @return the asset
+     * @throws IOException when the asset cannot be loaded
+     */
+    public CachedAsset get(String url) throws IOException {
+
+        final long now = System.currentTimeMillis();
+        final CachedAsset cached = cache.getIfPresent(url);
+        if (cached != null && (cached.local() || now - cached.validatedAt() < configuration.getRevalidateAfter().toMillis())) {
+            return cached;
+        }
+        final CachedAsset loaded;
+        final Resource localResource = findLocalResource(url);
+        if (localResource != null) {
+            loaded = loadLocal(url, localResource, now);
+        } else {
+            try {
+                loaded = loadRemote(url, cached, now);
+            } catch (FileNotFoundException e) {
+                cache.invalidate(url);
+                throw e;
+            }
+        }
+        if (loaded.content().length <= configuration.getMaxAssetSize().toBytes()) {
+            cache.put(url, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Convert an asset to the form passed to PD4ML, e.g. rasterize SVG.
+     *
+     * @param url   the URL of the asset
+     * @param asset the asset as loaded
+     * @return the converted or the unchanged asset
+     */
+    public CachedAsset prepareForPd4ml(String url, CachedAsset asset) {
+        return svgRasterizer.isApplicable(url, asset) ? svgRasterizer.rasterize(url, asset) : asset;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private URL defaultBaseUrl(String htmlPdfBase) {
+
+        if (htmlPdfBase == null || htmlPdfBase.isBlank()) {
+            if (configuration.isEnabled()) {
+                LOGGER.warn("No application.html-pdf-base is set! Assets of PDFs rendered from templates are not cached.");
+            }
+            return null;
+        }
+        try {
+            return new URL(null, htmlPdfBase.trim(), urlStreamHandler);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid application.html-pdf-base \"" + htmlPdfBase + "\"", e);
+        }
+    }
+
+    /**
+     * Find the resource of a URL with a local prefix. The path is decoded and normalized, before it is resolved against
+     * the location of the mapping, and it must not leave this location, e.g. with encoded "%2e%2e/" or "..\\".
+     *
+     * @return the resource or null, if the URL has no local prefix
+     * @throws FileNotFoundException if the path leaves the location of the mapping
+     */
+    private Resource findLocalResource(String url) throws FileNotFoundException {
+
+        final List<PdfAssetCacheConfiguration.LocalMapping> localMappings = configuration.getLocalMappings();
+        for (PdfAssetCacheConfiguration.LocalMapping mapping : localMappings) {
+            if (mapping.getPrefix() != null && url.startsWith(mapping.getPrefix())) {
+                String path = url.substring(mapping.getPrefix().length());
+                final int queryStart = path.indexOf('?');
+                if (queryStart >= 0) {
+                    path = path.substring(0, queryStart);
+                }
+                final String location = localLocation(mapping, path);
+                if (location == null) {
+                    LOGGER.warn("Rejected asset \"{}\" outside of {}", url, mapping.getLocation());
+                    throw new FileNotFoundException(url);
+                }
+                return resourceLoader.getResource(location);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the normalized location of the path or null, if it is not below the location of the mapping
+     */
+    private static String localLocation(PdfAssetCacheConfiguration.LocalMapping mapping, String path) {
+
+        final String decoded;
+        try {
+            decoded = UriUtils.decode(path, StandardCharsets.UTF_8).replace('\\', '/');
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // Still encoded characters would be decoded a second time by file URL resources
+        if (decoded.indexOf('%') >= 0 || decoded.indexOf('\0') >= 0) {
+            return null;
+        }
+        final String root = StringUtils.cleanPath(mapping.getLocation().endsWith("/")
+            ? mapping.getLocation() : mapping.getLocation() + "/");
+        final String location = StringUtils.cleanPath(root + decoded);
+        return location.startsWith(root) ? location : null;
+    }
+
+    private static CachedAsset loadLocal(String url, Resource resource, long now) throws IOException {
+
+        if (!resource.exists()) {
+            throw new FileNotFoundException(url);
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return new CachedAsset(in.readAllBytes(), URLConnection.guessContentTypeFromName(resource.getFilename()),
+                null, null, now, true);
+        }
+    }
+
+    private CachedAsset loadRemote(String url, CachedAsset cached, long now) throws IOException {
+
+        // Without a context URL, the default handler of the protocol is used
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout((int) configuration.getConnectTimeout().toMillis());
+        connection.setReadTimeout((int) configuration.getReadTimeout().toMillis());
+        if (cached != null && cached.etag() != null) {
+            connection.setRequestProperty(HttpHeaders.IF_NONE_MATCH, cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            connection.setRequestProperty(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+        }
+        try {
+            final int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                return cached.revalidated(now);
+            }
+            if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE) {
+                throw new FileNotFoundException(url);
+            }
+            if (status >= 400) {
+                throw new IOException("Server returned HTTP response code: " + status + " for URL: " + url);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return new CachedAsset(in.readAllBytes(), connection.getContentType(),
+                    connection.getHeaderField(HttpHeaders.ETAG), connection.getHeaderField(HttpHeaders.LAST_MODIFIED), now, false);
+            }
+        } catch (IOException e) {
+            if (cached != null && !(e instanceof FileNotFoundException)) {
+                LOGGER.warn("Cannot revalidate asset \"{}\", using the cached content: {}", url, e.getMessage());
+                return cached.revalidated(now);
+            }
+            throw e;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private class CachingUrlStreamHandler extends URLStreamHandler {
+
+        private final Map<String, CachedAsset> documentAssets;
+
+        CachingUrlStreamHandler(Map<String, CachedAsset> documentAssets) {
+            this.documentAssets = documentAssets;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+
+            final String externalForm = url.toExternalForm();
+            final CachedAsset documentAsset = documentAssets.get(externalForm);
+            if (documentAsset != null) {
+                return new CachedAssetConnection(url, documentAsset);
+            }
+            final String protocol = url.getProtocol();
+            if ("http".equals(protocol) || "https".equals(protocol) || findLocalResource(externalForm) != null) {
+                return new CachedAssetConnection(url, prepareForPd4ml(externalForm, get(externalForm)));
+            }
+            // e.g. file or jar URLs of documents, that are read from the file system
+            return new URL(externalForm).openConnection();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.giraone.thymeleaf.service.asset;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PdfAssetCacheConfiguration {
+
+    /** Cache images, stylesheets and fonts loaded by PD4ML */
+    private boolean enabled = true;
+    /** Maximum size of all cached assets */
+    private DataSize maximumWeight = DataSize.ofMegabytes(32);
+    /** Larger assets are loaded, but not cached */
+    private DataSize maxAssetSize = DataSize.ofMegabytes(2);
+    /** Remote assets are revalidated with ETag/Last-Modified after this duration */
+    private Duration revalidateAfter = Duration.ofMinutes(5);
+    /** Timeouts for loading remote assets */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    /** URL prefixes, that are resolved to local resources instead of loading them over the network */
+    private List<LocalMapping> localMappings = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(DataSize maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public DataSize getMaxAssetSize() {
+        return maxAssetSize;
+    }
+
+    public void setMaxAssetSize(DataSize maxAssetSize) {
+        this.maxAssetSize = maxAssetSize;
+    }
+
+    public Duration getRevalidateAfter() {
+        return revalidateAfter;
+    }
+
+    public void setRevalidateAfter(Duration revalidateAfter) {
+        this.revalidateAfter = revalidateAfter;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public List<LocalMapping> getLocalMappings() {
+        return localMappings;
+    }
+
+    public void setLocalMappings(List<LocalMapping> localMappings) {
+        this.localMappings = localMappings;
+    }
+
+    @Override
+    public String toString() {
+        return "PdfAssetCacheConfiguration{" +
+            "enabled=" + enabled +
+            ", maximumWeight=" + maximumWeight +
+            ", maxAssetSize=" + maxAssetSize +
+            ", revalidateAfter=" + revalidateAfter +
+            ", connectTimeout=" + connectTimeout +
+            ", readTimeout=" + readTimeout +
+            ", localMappings=" + localMappings +
+            '}';
+    }
+
+    public static class LocalMapping {
+
+        /** URL prefix, e.g. "http://localhost:8080/" */
+        private String prefix;
+        /** Spring resource location, e.g. "classpath:/static/" or "file:/var/www/assets/" */
+        private String location;
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location;
+        }
+
+        @Override
+        public String toString() {
+            return prefix + " -> " + location;
+        }
+    }
+}
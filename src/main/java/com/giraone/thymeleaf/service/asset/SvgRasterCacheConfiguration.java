@@ -0,0 +1,60 @@
+package com.giraone.thymeleaf.service.asset;
+
+import org.springframework.util.unit.DataSize;
+
+public class SvgRasterCacheConfiguration {
+
+    /**
+     * Rasterize SVG assets once and pass the PNG to PD4ML. PD4ML may detect SVG by the file extension,
+     * so this is disabled by default - enable it after testing with your SVG assets.
+     */
+    private boolean enabled = false;
+    /** Scale of the PNG relative to the SVG size in CSS pixels - use explicit width/height on img tags for values > 1 */
+    private double scale = 1.0;
+    /** Maximum size of all cached PNG images */
+    private DataSize maximumWeight = DataSize.ofMegabytes(32);
+    /** Larger SVG documents are passed to PD4ML as they are */
+    private DataSize maxSvgSize = DataSize.ofMegabytes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public void setScale(double scale) {
+        this.scale = scale;
+    }
+
+    public DataSize getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(DataSize maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public DataSize getMaxSvgSize() {
+        return maxSvgSize;
+    }
+
+    public void setMaxSvgSize(DataSize maxSvgSize) {
+        this.maxSvgSize = maxSvgSize;
+    }
+
+    @Override
+    public String toString() {
+        return "SvgRasterCacheConfiguration{" +
+            "enabled=" + enabled +
+            ", scale=" + scale +
+            ", maximumWeight=" + maximumWeight +
+            ", maxSvgSize=" + maxSvgSize +
+            '}';
+    }
+}
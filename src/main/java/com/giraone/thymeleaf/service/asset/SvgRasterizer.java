@@ -0,0 +1,165 @@
+package com.giraone.thymeleaf.service.asset;
+
+import com.giraone.thymeleaf.common.HashUtil;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.DocumentLoader;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.gvt.GraphicsNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.svg.SVGDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Rasterizes SVG assets with Batik to PNG. The results are cached by a hash of the SVG content and the scale,
+ * so the same logo or chart is rendered once per node, even if it is loaded from different URLs.
+ * SVG documents, that cannot be rendered, are replaced by {@value #ERROR_IMAGE_RESOURCE}.
+ */
+@Component
+public class SvgRasterizer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SvgRasterizer.class);
+
+    static final String CACHE_NAME = "pdf.svg";
+    static final String ERROR_IMAGE_RESOURCE = "images/error-rendering-svg.png";
+    private static final int MAX_PIXELS = 4096 * 4096;
+
+    private final SvgRasterCacheConfiguration configuration;
+    private final Cache<String, CachedAsset> cache;
+    private final Timer rasterizeTimer;
+    private final byte[] errorImage;
+
+    @Autowired
+    public SvgRasterizer(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+
+        this.configuration = applicationProperties.getPdfSvgRasterCache();
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(configuration.getMaximumWeight().toBytes())
+            .weigher((String key, CachedAsset asset) -> asset.content().length)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.rasterizeTimer = Timer.builder("pdf.svg.rasterize")
+            .description("Time to rasterize an SVG asset with Batik")
+            .register(meterRegistry);
+        this.errorImage = loadErrorImage();
+        LOGGER.info("SvgRasterizer initialized with {}", configuration);
+    }
+
+    /**
+     * @param url   the URL of the asset
+     * @param asset the asset
+     * @return true, if the asset is an SVG document, that is rasterized
+     */
+    public boolean isApplicable(String url, CachedAsset asset) {
+
+        if (!configuration.isEnabled() || asset.content().length > configuration.getMaxSvgSize().toBytes()) {
+            return false;
+        }
+        if (asset.contentType() != null && !asset.contentType().startsWith("text/plain")
+            && !asset.contentType().startsWith("application/octet-stream")) {
+            return asset.contentType().startsWith("image/svg");
+        }
+        return url.replaceFirst("[?#].*$", "").toLowerCase(Locale.ROOT).endsWith(".svg");
+    }
+
+    /**
+     * @param url   the URL of the SVG document - used to resolve references within the document
+     * @param asset the SVG document
+     * @return the PNG image - or the error image, if the SVG cannot be rendered
+     */
+    public CachedAsset rasterize(String url, CachedAsset asset) {
+        return cache.get(cacheKey(asset), key -> rasterizeTimer.record(() -> render(url, asset)));
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private String cacheKey(CachedAsset asset) {
+
+        final MessageDigest digest = HashUtil.newSha256();
+        digest.update(asset.content());
+        HashUtil.update(digest, Double.toString(configuration.getScale()));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private CachedAsset render(String url, CachedAsset asset) {
+
+        byte[] png;
+        try {
+            png = toPng(url, asset.content(), configuration.getScale());
+        } catch (Exception e) {
+            LOGGER.warn("Cannot render SVG \"{}\": {}", url, e.getMessage());
+            png = errorImage;
+        }
+        return new CachedAsset(png, "image/png", null, null, System.currentTimeMillis(), true);
+    }
+
+    static byte[] toPng(String url, byte[] svg, double scale) throws IOException {
+
+        final SAXSVGDocumentFactory factory = new SAXSVGDocumentFactory(null);
+        final SVGDocument document = factory.createSVGDocument(url, new ByteArrayInputStream(svg));
+        final UserAgentAdapter userAgent = new UserAgentAdapter();
+        final BridgeContext context = new BridgeContext(userAgent, new DocumentLoader(userAgent));
+        try {
+            // Static rendering - scripts and animations are not executed
+            context.setDynamicState(BridgeContext.STATIC);
+            final GraphicsNode graphicsNode = new GVTBuilder().build(context, document);
+            final Dimension2D size = context.getDocumentSize();
+            final int width = Math.max(1, (int) Math.ceil(size.getWidth() * scale));
+            final int height = Math.max(1, (int) Math.ceil(size.getHeight() * scale));
+            if ((long) width * height > MAX_PIXELS) {
+                throw new IOException("SVG size " + width + "x" + height + " exceeds the limit");
+            }
+            final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.scale(scale, scale);
+                graphicsNode.paint(graphics);
+            } finally {
+                graphics.dispose();
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } finally {
+            context.dispose();
+        }
+    }
+
+    private static byte[] loadErrorImage() {
+
+        try (InputStream in = SvgRasterizer.class.getClassLoader().getResourceAsStream(ERROR_IMAGE_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource \"" + ERROR_IMAGE_RESOURCE + "\"");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
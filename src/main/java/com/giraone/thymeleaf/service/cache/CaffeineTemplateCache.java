@@ -0,0 +1,90 @@
+package com.giraone.thymeleaf.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.TemplateModel;
+
+import java.util.Set;
+
+/**
+ * Thymeleaf template cache based on Caffeine. The cache is bounded by the (estimated) weight of the cached templates
+ * and not by the number of entries. Eviction is done using Caffeine's Window TinyLFU policy, so a burst of one time
+ * templates (e.g. editor previews) does not flush frequently used templates.
+ */
+public class CaffeineTemplateCache implements ICache<TemplateCacheKey, TemplateModel> {
+
+    // Source text and parsed event model are both held in memory, so we count two bytes per source character.
+    private static final int WEIGHT_PER_CHARACTER = 2;
+
+    private final Cache<TemplateCacheKey, Entry> cache;
+
+    public CaffeineTemplateCache(TemplateCacheConfiguration configuration) {
+
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumWeight(configuration.getMaximumWeight().toBytes())
+            .recordStats();
+        if (configuration.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(configuration.getExpireAfterAccess());
+        }
+        this.cache = builder
+            .weigher((TemplateCacheKey key, Entry entry) -> weigh(entry.model()))
+            .build();
+    }
+
+    public Cache<TemplateCacheKey, ?> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    public void put(TemplateCacheKey key, TemplateModel value) {
+        cache.put(key, new Entry(value, System.currentTimeMillis()));
+    }
+
+    @Override
+    public TemplateModel get(TemplateCacheKey key) {
+        final Entry entry = cache.getIfPresent(key);
+        return entry != null ? entry.model() : null;
+    }
+
+    @Override
+    public TemplateModel get(TemplateCacheKey key, ICacheEntryValidityChecker<? super TemplateCacheKey, ? super TemplateModel> validityChecker) {
+
+        final Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (validityChecker != null && !validityChecker.checkIsValueStillValid(key, entry.model(), entry.creationTimestamp())) {
+            cache.invalidate(key);
+            return null;
+        }
+        return entry.model();
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void clearKey(TemplateCacheKey key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public Set<TemplateCacheKey> keySet() {
+        return cache.asMap().keySet();
+    }
+
+    static int weigh(TemplateModel value) {
+        // For string based templates, the description of the resource is the template content itself.
+        final String description = value.getTemplateData().getTemplateResource().getDescription();
+        final long weight = description != null ? (long) description.length() * WEIGHT_PER_CHARACTER : 0L;
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    private record Entry(TemplateModel model, long creationTimestamp) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.giraone.thymeleaf.service.cache;
+
+import org.thymeleaf.cache.AbstractCacheManager;
+import org.thymeleaf.cache.ExpressionCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.TemplateModel;
+
+/**
+ * Cache manager using a {@link CaffeineTemplateCache} for parsed templates and Thymeleaf's standard cache
+ * for parsed expressions.
+ */
+public class CaffeineTemplateCacheManager extends AbstractCacheManager {
+
+    private final CaffeineTemplateCache templateCache;
+    private final StandardCacheManager standardCacheManager = new StandardCacheManager();
+
+    public CaffeineTemplateCacheManager(CaffeineTemplateCache templateCache) {
+        this.templateCache = templateCache;
+    }
+
+    @Override
+    protected ICache<TemplateCacheKey, TemplateModel> initializeTemplateCache() {
+        return templateCache;
+    }
+
+    @Override
+    protected ICache<ExpressionCacheKey, Object> initializeExpressionCache() {
+        return standardCacheManager.getExpressionCache();
+    }
+}
@@ -0,0 +1,167 @@
+package com.giraone.thymeleaf.service.cache;
+
+import com.giraone.thymeleaf.common.HashUtil;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Cache for rendered PDFs. The key is a hash of all inputs of a render - template, CSS, JSON data (the PDF options
+ * are taken from the data) and the base URL for assets. The key is also used as a weak ETag: the same inputs give
+ * an equivalent PDF, but not necessarily the same bytes, because PD4ML writes a new document ID and creation date.
+ * PDFs are cached in memory and optionally in a disk tier, that survives evictions and restarts. Concurrent renders
+ * with the same key are coalesced by a {@link SingleFlight}.
+ */
+@Component
+public class PdfRenderCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfRenderCache.class);
+
+    static final String CACHE_NAME = "pdf.renders";
+    private static final String ETAG_PREFIX = "W/\"";
+
+    private final PdfRenderCacheConfiguration configuration;
+    private final String htmlPdfBase;
+    private final Cache<String, byte[]> cache;
+    private final PdfRenderDiskTier diskTier;
+    private final Counter notModifiedCounter;
+    private final SingleFlight<String, Object> renderFlights;
+
+    @Autowired
+    public PdfRenderCache(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+
+        this.configuration = applicationProperties.getPdfRenderCache();
+        this.htmlPdfBase = applicationProperties.getHtmlPdfBase();
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(configuration.getMaximumWeight().toBytes())
+            .weigher((String key, byte[] pdf) -> pdf.length)
+            .expireAfterWrite(configuration.getExpireAfterWrite())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.diskTier = configuration.isEnabled() && configuration.getDiskDirectory() != null
+            ? new PdfRenderDiskTier(Path.of(configuration.getDiskDirectory()), configuration.getMaxDiskSize().toBytes(),
+                configuration.getExpireAfterWrite(), meterRegistry)
+            : null;
+        this.notModifiedCounter = Counter.builder("pdf.renders.not.modified")
+            .description("Number of PDF requests answered with 304 Not Modified")
+            .register(meterRegistry);
+        this.renderFlights = new SingleFlight<>("pdf.renders", meterRegistry);
+        LOGGER.info("PdfRenderCache initialized with {}", configuration);
+    }
+
+    public boolean isEnabled() {
+        return configuration.isEnabled();
+    }
+
+    /**
+     * @return the size in bytes of the largest PDF, that is cached
+     */
+    public long getMaxPdfSize() {
+        return configuration.getMaxPdfSize().toBytes();
+    }
+
+    /**
+     * @param template the template with CSS
+     * @param data     the JSON data (UTF-8)
+     * @return the hash of all render inputs
+     */
+    public String keyOf(PreparedTemplate template, byte[] data) {
+
+        final MessageDigest digest = HashUtil.newSha256();
+        HashUtil.update(digest, template.key());
+        HashUtil.update(digest, htmlPdfBase);
+        HashUtil.update(digest, data);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String etagOf(String key) {
+        return ETAG_PREFIX + key + "\"";
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header with an ETag.
+     *
+     * @param ifNoneMatch the header value or null
+     * @param etag        the ETag of the requested PDF
+     * @return true, if a 304 Not Modified is to be sent
+     */
+    public boolean isNotModified(String ifNoneMatch, String etag) {
+
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        final String opaqueTag = etag.substring(ETAG_PREFIX.length() - 1);
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String trimmed = candidate.trim();
+            if (trimmed.equals(opaqueTag) || trimmed.equals(etag)) {
+                notModifiedCounter.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key the key from {@link #keyOf(PreparedTemplate, byte[])}
+     * @return the cached PDF or null
+     */
+    public byte[] get(String key) {
+
+        byte[] pdf = cache.getIfPresent(key);
+        if (pdf == null && diskTier != null) {
+            pdf = diskTier.get(key);
+            if (pdf != null) {
+                cache.put(key, pdf);
+            }
+        }
+        return pdf;
+    }
+
+    /**
+     * Execute a render, unless a render with the same key is in flight - then wait for its result.
+     *
+     * @param key  the key from {@link #keyOf(PreparedTemplate, byte[])}
+     * @param work the render, that is expected to {@link #put(String, byte[])} the PDF
+     * @return the result of the render
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V coalesce(String key, SingleFlight.Work<V> work) throws IOException {
+
+        if (!configuration.isCoalesceRequests()) {
+            return work.execute();
+        }
+        return (V) renderFlights.execute(key, work::execute);
+    }
+
+    public void put(String key, byte[] pdf) {
+
+        if (pdf.length > configuration.getMaxPdfSize().toBytes()) {
+            return;
+        }
+        cache.put(key, pdf);
+        if (diskTier != null) {
+            diskTier.put(key, pdf);
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        if (diskTier != null) {
+            diskTier.clear();
+        }
+    }
+}
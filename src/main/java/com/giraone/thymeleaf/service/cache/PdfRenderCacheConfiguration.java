@@ -0,0 +1,92 @@
+package com.giraone.thymeleaf.service.cache;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+public class PdfRenderCacheConfiguration {
+
+    /** Cache rendered PDFs by a hash of template, CSS, data and options and answer If-None-Match with 304 */
+    private boolean enabled;
+    /** Concurrent requests with the same inputs wait for the first one, instead of rendering the same PDF again */
+    private boolean coalesceRequests = true;
+    /** Maximum size of all PDFs cached in memory */
+    private DataSize maximumWeight = DataSize.ofMegabytes(64);
+    /** Larger PDFs are not cached */
+    private DataSize maxPdfSize = DataSize.ofMegabytes(5);
+    /** Cached PDFs are rendered again after this duration, e.g. to pick up changed images */
+    private Duration expireAfterWrite = Duration.ofHours(1);
+    /** Directory of the optional disk tier. Null means no disk tier. */
+    private String diskDirectory;
+    /** Maximum size of all PDFs in the disk tier */
+    private DataSize maxDiskSize = DataSize.ofGigabytes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    public DataSize getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(DataSize maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public DataSize getMaxPdfSize() {
+        return maxPdfSize;
+    }
+
+    public void setMaxPdfSize(DataSize maxPdfSize) {
+        this.maxPdfSize = maxPdfSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    public String getDiskDirectory() {
+        return diskDirectory;
+    }
+
+    public void setDiskDirectory(String diskDirectory) {
+        this.diskDirectory = diskDirectory;
+    }
+
+    public DataSize getMaxDiskSize() {
+        return maxDiskSize;
+    }
+
+    public void setMaxDiskSize(DataSize maxDiskSize) {
+        this.maxDiskSize = maxDiskSize;
+    }
+
+    @Override
+    public String toString() {
+        return "PdfRenderCacheConfiguration{" +
+            "enabled=" + enabled +
+            ", coalesceRequests=" + coalesceRequests +
+            ", maximumWeight=" + maximumWeight +
+            ", maxPdfSize=" + maxPdfSize +
+            ", expireAfterWrite=" + expireAfterWrite +
+            ", diskDirectory='" + diskDirectory + '\'' +
+            ", maxDiskSize=" + maxDiskSize +
+            '}';
+    }
+}
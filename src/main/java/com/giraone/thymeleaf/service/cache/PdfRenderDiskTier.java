@@ -0,0 +1,183 @@
+package com.giraone.thymeleaf.service.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk tier of the {@link PdfRenderCache}. Each PDF is stored in a file named by its key. When the size limit is
+ * exceeded, the oldest files are deleted. Failures are logged, but never fail a request - the PDF is rendered again.
+ */
+class PdfRenderDiskTier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfRenderDiskTier.class);
+
+    private static final String SUFFIX = ".pdf";
+    private static final double EVICT_TO_RATIO = 0.9;
+
+    private final Path directory;
+    private final long maxSize;
+    private final Duration timeToLive;
+    private final Map<String, Long> sizes = new ConcurrentHashMap<>();
+    private final AtomicLong totalSize = new AtomicLong();
+
+    PdfRenderDiskTier(Path directory, long maxSize, Duration timeToLive, MeterRegistry meterRegistry) {
+
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create PDF cache directory \"" + directory + "\"", e);
+        }
+        for (Path file : listFiles()) {
+            if (isExpired(file)) {
+                deleteQuietly(file);
+            } else {
+                final long size = file.toFile().length();
+                sizes.put(keyOf(file), size);
+                totalSize.addAndGet(size);
+            }
+        }
+        Gauge.builder("pdf.renders.disk.size", totalSize, AtomicLong::get)
+            .description("Size of the PDFs in the disk tier of the render cache")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        LOGGER.info("PDF render cache disk tier \"{}\" with {} files", directory, sizes.size());
+    }
+
+    byte[] get(String key) {
+
+        if (!sizes.containsKey(key)) {
+            return null;
+        }
+        final Path file = fileOf(key);
+        try {
+            if (isExpired(file)) {
+                remove(key);
+                return null;
+            }
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read cached PDF \"{}\": {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    void put(String key, byte[] pdf) {
+
+        if (sizes.containsKey(key)) {
+            return;
+        }
+        try {
+            // Write to a temporary file first, so an incomplete PDF is never read
+            final Path tempFile = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(tempFile, pdf);
+                Files.move(tempFile, fileOf(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                deleteQuietly(tempFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot write cached PDF \"{}\": {}", key, e.getMessage());
+            return;
+        }
+        if (sizes.put(key, (long) pdf.length) == null) {
+            totalSize.addAndGet(pdf.length);
+        }
+        if (totalSize.get() > maxSize) {
+            evictOldest();
+        }
+    }
+
+    void clear() {
+        sizes.keySet().forEach(this::remove);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private synchronized void evictOldest() {
+
+        final List<Path> files = listFiles().stream()
+            .sorted(Comparator.comparing(PdfRenderDiskTier::lastModified))
+            .collect(Collectors.toList());
+        for (Path file : files) {
+            if (totalSize.get() <= maxSize * EVICT_TO_RATIO) {
+                break;
+            }
+            remove(keyOf(file));
+        }
+    }
+
+    private void remove(String key) {
+        deleteQuietly(fileOf(key));
+        forget(key);
+    }
+
+    private void forget(String key) {
+        final Long size = sizes.remove(key);
+        if (size != null) {
+            totalSize.addAndGet(-size);
+        }
+    }
+
+    private boolean isExpired(Path file) {
+        return lastModified(file).toMillis() < System.currentTimeMillis() - timeToLive.toMillis();
+    }
+
+    private List<Path> listFiles() {
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.warn("Cannot list PDF cache directory \"{}\": {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private Path fileOf(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static String keyOf(Path file) {
+        final String name = file.getFileName().toString();
+        return name.substring(0, name.length() - SUFFIX.length());
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot delete \"{}\": {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.giraone.thymeleaf.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent executions with the same key: the first caller executes the work, callers with the same key
+ * arriving while it runs wait for it and get the same result (or exception). A key is removed as soon as its work
+ * ends, so results are not cached here.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Work<V> {
+        V execute() throws IOException;
+    }
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    /**
+     * @param metricPrefix  prefix of the metrics {@code <prefix>.coalesced} and {@code <prefix>.in.flight}
+     * @param meterRegistry the registry for the metrics
+     */
+    public SingleFlight(String metricPrefix, MeterRegistry meterRegistry) {
+
+        this.coalescedCounter = Counter.builder(metricPrefix + ".coalesced")
+            .description("Number of requests, that waited for an identical request in flight")
+            .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".in.flight", inFlight, Map::size)
+            .description("Number of distinct executions in flight")
+            .register(meterRegistry);
+    }
+
+    public V execute(K key, Work<V> work) throws IOException {
+
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+        try {
+            final V result = work.execute();
+            future.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical request");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+}
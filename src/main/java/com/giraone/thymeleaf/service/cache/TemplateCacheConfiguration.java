@@ -0,0 +1,37 @@
+package com.giraone.thymeleaf.service.cache;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+public class TemplateCacheConfiguration {
+
+    /** Maximum weight of all cached, parsed templates. The weight of a template is estimated from its content length. */
+    private DataSize maximumWeight = DataSize.ofMegabytes(64);
+    /** Remove templates, that were not used for this duration. Null means no time based expiration. */
+    private Duration expireAfterAccess = Duration.ofHours(1);
+
+    public DataSize getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(DataSize maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public Duration getExpireAfterAccess() {
+        return expireAfterAccess;
+    }
+
+    public void setExpireAfterAccess(Duration expireAfterAccess) {
+        this.expireAfterAccess = expireAfterAccess;
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCacheConfiguration{" +
+            "maximumWeight=" + maximumWeight +
+            ", expireAfterAccess=" + expireAfterAccess +
+            '}';
+    }
+}
@@ -0,0 +1,29 @@
+package com.giraone.thymeleaf.service.capture;
+
+import java.time.Instant;
+
+/**
+ * One captured render request - a line of the spool files written by {@link RenderCaptureService}.
+ *
+ * @param time            start of the request
+ * @param endpoint        the request path with {@code {id}} for template IDs
+ * @param path            the request path
+ * @param query           the query string or null
+ * @param multipart       true, if data, template and CSS were sent as a multipart request
+ * @param dataContentType the content type of the data
+ * @param templateHash    the content hash of template and CSS - the file names in the directory {@code templates}
+ * @param data            the anonymized data or null, if the data was too large or not valid JSON
+ * @param dataSize        the size of the original data in bytes
+ * @param status          the response status
+ * @param durationMillis  the duration of the request
+ * @param stages          the measured render stages in the format of a {@code Server-Timing} header or null
+ */
+public record CapturedRender(Instant time, String endpoint, String path, String query, boolean multipart,
+                             String dataContentType, String templateHash, String data, long dataSize, int status,
+                             double durationMillis, String stages) {
+
+    CapturedRender withData(String templateHash, String data) {
+        return new CapturedRender(time, endpoint, path, query, multipart, dataContentType, templateHash, data, dataSize,
+            status, durationMillis, stages);
+    }
+}
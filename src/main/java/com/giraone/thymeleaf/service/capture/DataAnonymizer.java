@@ -0,0 +1,98 @@
+package com.giraone.thymeleaf.service.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Replaces the values of JSON data, but keeps its shape: the field names, the array sizes, the types and the lengths
+ * of the values. Letters become {@code x} or {@code X}, digits become {@code 1}, other characters are kept, so
+ * "Max Müller, 2022-01-31" becomes "Xxx Xxxxxx, 1111-11-11". Numbers keep their number of digits, booleans and nulls
+ * are kept, because they typically select the branches of a template.
+ */
+public final class DataAnonymizer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    // Hide
+    private DataAnonymizer() {
+    }
+
+    /**
+     * Anonymize a JSON document or a sequence of JSON documents, e.g. NDJSON.
+     *
+     * @param json the JSON data
+     * @return the anonymized data - one line per JSON document
+     * @throws IOException if the data is not valid JSON
+     */
+    public static String anonymize(byte[] json) throws IOException {
+
+        final StringBuilder result = new StringBuilder(json.length);
+        try (MappingIterator<JsonNode> documents = MAPPER.readerFor(JsonNode.class).readValues(json)) {
+            while (documents.hasNext()) {
+                if (result.length() > 0) {
+                    result.append('\n');
+                }
+                result.append(MAPPER.writeValueAsString(anonymize(documents.next())));
+            }
+        }
+        return result.toString();
+    }
+
+    static JsonNode anonymize(JsonNode node) {
+
+        return switch (node.getNodeType()) {
+            case OBJECT -> {
+                final ObjectNode copy = NODES.objectNode();
+                final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    final Map.Entry<String, JsonNode> field = fields.next();
+                    copy.set(field.getKey(), anonymize(field.getValue()));
+                }
+                yield copy;
+            }
+            case ARRAY -> {
+                final ArrayNode copy = NODES.arrayNode(node.size());
+                node.forEach(element -> copy.add(anonymize(element)));
+                yield copy;
+            }
+            case STRING -> NODES.textNode(anonymize(node.textValue()));
+            case NUMBER -> node.isIntegralNumber()
+                ? NODES.numberNode(new BigInteger(replaceDigits(node.bigIntegerValue().toString())))
+                : NODES.numberNode(new BigDecimal(replaceDigits(node.decimalValue().toPlainString())));
+            default -> node;
+        };
+    }
+
+    static String anonymize(String text) {
+
+        final StringBuilder result = new StringBuilder(text.length());
+        text.codePoints().forEach(c -> {
+            if (Character.isDigit(c)) {
+                result.append('1');
+            } else if (Character.isUpperCase(c)) {
+                result.append('X');
+            } else if (Character.isLetter(c)) {
+                result.append('x');
+            } else {
+                result.appendCodePoint(c);
+            }
+        });
+        return result.toString();
+    }
+
+    // Only the digits - the sign and the decimal point are kept
+    private static String replaceDigits(String number) {
+        return number.replaceAll("[0-9]", "1");
+    }
+}
@@ -0,0 +1,79 @@
+package com.giraone.thymeleaf.service.capture;
+
+import org.springframework.util.unit.DataSize;
+
+public class RenderCaptureConfiguration {
+
+    /** Record anonymized render requests to the spool directory */
+    private boolean enabled = false;
+    /** Spool directory. Null means a sub directory of java.io.tmpdir. */
+    private String directory;
+    /** Fraction of the render requests, that are captured - 1.0 means every request */
+    private double sampleRate = 1.0;
+    /** Requests with larger data are captured without data */
+    private DataSize maxDataSize = DataSize.ofMegabytes(1);
+    /** Capturing stops, when the spool has reached this size */
+    private DataSize maxSpoolSize = DataSize.ofGigabytes(1);
+    /** Maximum number of captured requests waiting to be written. Further requests are dropped. */
+    private int queueCapacity = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public DataSize getMaxDataSize() {
+        return maxDataSize;
+    }
+
+    public void setMaxDataSize(DataSize maxDataSize) {
+        this.maxDataSize = maxDataSize;
+    }
+
+    public DataSize getMaxSpoolSize() {
+        return maxSpoolSize;
+    }
+
+    public void setMaxSpoolSize(DataSize maxSpoolSize) {
+        this.maxSpoolSize = maxSpoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderCaptureConfiguration{" +
+            "enabled=" + enabled +
+            ", directory='" + directory + '\'' +
+            ", sampleRate=" + sampleRate +
+            ", maxDataSize=" + maxDataSize +
+            ", maxSpoolSize=" + maxSpoolSize +
+            ", queueCapacity=" + queueCapacity +
+            '}';
+    }
+}
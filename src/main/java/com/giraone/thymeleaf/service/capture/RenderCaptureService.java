@@ -0,0 +1,186 @@
+package com.giraone.thymeleaf.service.capture;
+
+import com.giraone.thymeleaf.common.JsonUtil;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Records render requests to a local spool, so production template mixes can be replayed offline. The spool contains
+ * one NDJSON file of {@link CapturedRender} lines per day and the directory {@value #TEMPLATES_DIRECTORY} with the
+ * templates and CSS files named by their content hash. The data is anonymized by {@link DataAnonymizer}. Requests are
+ * written by a single thread, so capturing does not delay the responses. When the write queue is full, captured
+ * requests are dropped.
+ */
+@Service
+public class RenderCaptureService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderCaptureService.class);
+
+    public static final String TEMPLATES_DIRECTORY = "templates";
+    public static final String TEMPLATE_SUFFIX = ".html";
+    public static final String CSS_SUFFIX = ".css";
+    public static final String SPOOL_FILE_SUFFIX = ".ndjson";
+    private static final DateTimeFormatter SPOOL_FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final RenderCaptureConfiguration renderCaptureConfiguration;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<String> storedTemplates = ConcurrentHashMap.newKeySet();
+    private final AtomicLong spoolSize = new AtomicLong();
+    private Path spoolDirectory;
+    private ThreadPoolExecutor writeExecutor;
+    private Counter droppedCounter;
+
+    @Autowired
+    public RenderCaptureService(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.renderCaptureConfiguration = applicationProperties.getRenderCapture();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+
+        if (!renderCaptureConfiguration.isEnabled()) {
+            return;
+        }
+        spoolDirectory = renderCaptureConfiguration.getDirectory() != null
+            ? Paths.get(renderCaptureConfiguration.getDirectory())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "thymeleaf-processor-capture");
+        Files.createDirectories(spoolDirectory.resolve(TEMPLATES_DIRECTORY));
+        // The spool is continued, so its size includes the files of previous runs
+        try (Stream<Path> files = Files.walk(spoolDirectory)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                spoolSize.addAndGet(file.toFile().length());
+                if (file.getParent().endsWith(TEMPLATES_DIRECTORY)) {
+                    storedTemplates.add(file.getFileName().toString());
+                }
+            });
+        }
+
+        droppedCounter = Counter.builder("render.capture.dropped")
+            .description("Number of captured render requests, that were dropped, because the write queue was full")
+            .register(meterRegistry);
+        writeExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, renderCaptureConfiguration.getQueueCapacity())),
+            new CustomizableThreadFactory("render-capture-"), (runnable, executor) -> droppedCounter.increment());
+        LOGGER.info("RenderCaptureService writes to {} with {}", spoolDirectory, renderCaptureConfiguration);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+
+        if (writeExecutor != null) {
+            // Write the queued requests
+            writeExecutor.shutdown();
+            if (!writeExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("Not all captured render requests were written to {}", spoolDirectory);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return renderCaptureConfiguration.isEnabled();
+    }
+
+    public int getMaxDataSize() {
+        return (int) Math.min(Integer.MAX_VALUE, renderCaptureConfiguration.getMaxDataSize().toBytes());
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    /**
+     * Decide, whether the current request is captured.
+     *
+     * @return true, if capturing is enabled, the request is sampled and the spool is not full
+     */
+    public boolean sample() {
+
+        if (writeExecutor == null || spoolSize.get() >= renderCaptureConfiguration.getMaxSpoolSize().toBytes()) {
+            return false;
+        }
+        final double sampleRate = renderCaptureConfiguration.getSampleRate();
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Queue a captured request for writing. Data and template are added to the spool by the write thread.
+     *
+     * @param render   the request without template hash and data
+     * @param template the template or null, if it is not known
+     * @param data     the original data or null, if it is too large
+     */
+    public void capture(CapturedRender render, PreparedTemplate template, byte[] data) {
+        writeExecutor.execute(() -> write(render, template, data));
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void write(CapturedRender render, PreparedTemplate template, byte[] data) {
+
+        try {
+            String anonymizedData = null;
+            if (data != null) {
+                try {
+                    anonymizedData = DataAnonymizer.anonymize(data);
+                } catch (IOException e) {
+                    LOGGER.debug("Data of captured request {} is not valid JSON: {}", render.path(), e.getMessage());
+                }
+            }
+            if (template != null) {
+                storeTemplate(template);
+            }
+            final CapturedRender captured = render.withData(template != null ? template.key() : null, anonymizedData);
+            final byte[] line = (JsonUtil.convertObjectToJsonString(captured) + "\n").getBytes(StandardCharsets.UTF_8);
+            final Path spoolFile = spoolDirectory.resolve("renders-" + SPOOL_FILE_DATE.format(render.time()) + SPOOL_FILE_SUFFIX);
+            Files.write(spoolFile, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            spoolSize.addAndGet(line.length);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot write captured request {} to {}", render.path(), spoolDirectory, e);
+        }
+    }
+
+    private void storeTemplate(PreparedTemplate template) throws IOException {
+
+        if (storedTemplates.contains(template.key() + TEMPLATE_SUFFIX)) {
+            return;
+        }
+        final Path directory = spoolDirectory.resolve(TEMPLATES_DIRECTORY);
+        final byte[] templateBytes = template.templateContent().getBytes(StandardCharsets.UTF_8);
+        Files.write(directory.resolve(template.key() + TEMPLATE_SUFFIX), templateBytes);
+        spoolSize.addAndGet(templateBytes.length);
+        if (template.cssContent() != null) {
+            final byte[] cssBytes = template.cssContent().getBytes(StandardCharsets.UTF_8);
+            Files.write(directory.resolve(template.key() + CSS_SUFFIX), cssBytes);
+            spoolSize.addAndGet(cssBytes.length);
+        }
+        storedTemplates.add(template.key() + TEMPLATE_SUFFIX);
+    }
+}
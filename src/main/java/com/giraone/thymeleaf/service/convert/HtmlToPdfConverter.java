@@ -1,14 +1,17 @@
 package com.giraone.thymeleaf.service.convert;
 
-import com.giraone.io.copier.FileTreeCopier;
-import com.giraone.io.copier.web.WebServerFile;
-import com.giraone.io.copier.web.WebServerFileTreeProvider;
+import com.giraone.thymeleaf.common.CountingOutputStream;
 import com.giraone.thymeleaf.common.FileUtil;
 import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import com.giraone.thymeleaf.service.asset.AssetPrefetcher;
+import com.giraone.thymeleaf.service.asset.CachedAsset;
+import com.giraone.thymeleaf.service.asset.PdfAssetCache;
+import com.giraone.thymeleaf.service.jfr.PdfRenderEvent;
 import com.pd4ml.Constants;
 import com.pd4ml.PD4ML;
 import com.pd4ml.StatusMessage;
-import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
@@ -17,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.zefer.pd4ml.PD4Constants;
 
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -25,8 +29,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,9 +41,7 @@ public class HtmlToPdfConverter {
     private static final Logger LOGGER = LoggerFactory.getLogger(HtmlToPdfConverter.class);
 
     private static final String PD4ML_LICENSE_RESOURCE_PATH = "pd4ml/pd4ml.lic";
-    private static final String PD4ML_FONTS_URI = "java:defaultfonts";
     private static final String PD4ML_LICENSE_PATH;
-    private static final String PD4ML_FONTS_TEMP_DIRECTORY_NAME_PREFIX = "pd4ml-fonts-";
     private static final int PD4ML_FIXED_HTML_WIDTH = 842;
 
     static {
@@ -60,49 +62,91 @@ public class HtmlToPdfConverter {
             PD4ML_LICENSE_PATH = pd4mlLicFile.getPath();
             LOGGER.info("Using PD4ML license \"{}\"", PD4ML_LICENSE_PATH);
         }
-
-        // This supports copying TTF fonts from an asset server to a temp directory and using it,
-        // instead of loading fonts from the resource path of the service.
-        final String fontSourceHttp = System.getenv("PD4ML_FONTS_HTTP_SOURCE");
-        if (fontSourceHttp != null) {
-            URL url;
-            try {
-                url = new URL(PD4ML_FONTS_URI);
-            } catch (MalformedURLException e) {
-                throw new RuntimeException(e);
-            }
-            final File fontsDirectory = createFontsDirectory();
-            WebServerFileTreeProvider source = new WebServerFileTreeProvider(url);
-            source.withFileFilter(sourceFile -> sourceFile.getName().endsWith(".ttf") || sourceFile.getName().equals("pd4fonts.properties"));
-            FileTreeCopier<WebServerFile> fileTreeCopier = new FileTreeCopier<>();
-            fileTreeCopier.withFileTreeProvider(source);
-            fileTreeCopier.withTargetDirectory(fontsDirectory);
-            fileTreeCopier.withFlatCopy();
-
-            final int filesCopied = fileTreeCopier.copy().getFilesCopied();
-            if (filesCopied > 0) {
-                LOGGER.info("{} TTF font files copied from \"{}\" to \"{}\"", filesCopied, PD4ML_FONTS_URI, fontsDirectory);
-            } else {
-                LOGGER.warn("No TTF font files were copied from \"{}\" to \"{}\"", PD4ML_FONTS_URI, fontsDirectory);
-            }
-        }
     }
 
     private final ApplicationProperties applicationProperties;
+    private final Pd4mlFontRegistry fontRegistry;
+    private final PdfAssetCache assetCache;
+    private final AssetPrefetcher assetPrefetcher;
+    private final RenderMetrics renderMetrics;
+    private final PdfRenderBulkhead renderBulkhead;
+    private final Pd4mlEnginePool enginePool;
 
     @Autowired
-    public HtmlToPdfConverter(ApplicationProperties applicationProperties) {
+    public HtmlToPdfConverter(ApplicationProperties applicationProperties, Pd4mlFontRegistry fontRegistry, PdfAssetCache assetCache,
+                              AssetPrefetcher assetPrefetcher, RenderMetrics renderMetrics, MeterRegistry meterRegistry) {
         this.applicationProperties = applicationProperties;
+        this.fontRegistry = fontRegistry;
+        this.assetCache = assetCache;
+        this.assetPrefetcher = assetPrefetcher;
+        this.renderMetrics = renderMetrics;
+        this.renderBulkhead = new PdfRenderBulkhead(applicationProperties.getPdfRenderLimit(), meterRegistry);
+        this.enginePool = applicationProperties.getPd4mlPool().isEnabled()
+            ? new Pd4mlEnginePool(applicationProperties.getPd4mlPool(), this::createEngine, meterRegistry)
+            : null;
+        LOGGER.info("HtmlToPdfConverter initialized with {} and {}", applicationProperties.getPdfRenderLimit(),
+            applicationProperties.getPd4mlPool());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enginePool != null) {
+            enginePool.shutdown();
+        }
     }
 
-    @Timed
     public void generatePdfStreamFromHtmlStream(InputStream htmlInputStream, URL url, OutputStream pdfOutputStream,
                                                 PdfCreationOptions pdfCreationOptions) throws IOException {
 
-        final int logLevel = applicationProperties.getPd4mlConfiguration().getLogLevel();
-        final PD4ML pd4ml = new PD4ML(PD4ML_LICENSE_PATH, logLevel);
+        final PdfRenderEvent event = PdfRenderEvent.started();
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(pdfOutputStream);
+        boolean success = false;
+        try {
+            generatePdf(htmlInputStream, url, countingOutputStream, pdfCreationOptions);
+            success = true;
+        } finally {
+            event.finish(null, countingOutputStream.getCount(), !success);
+        }
+    }
+
+    private void generatePdf(InputStream htmlInputStream, URL url, CountingOutputStream pdfOutputStream,
+                             PdfCreationOptions pdfCreationOptions) throws IOException {
+
+        // Load the assets concurrently, before a render slot is taken, so the layout does not wait for the network
+        final URL baseUrl = assetCache.toBaseUrl(url);
+        final RenderMetrics.Sample start = renderMetrics.start();
+        final Map<String, CachedAsset> documentAssets = assetPrefetcher.prefetch(htmlInputStream, baseUrl);
+        renderMetrics.stop(RenderMetrics.Stage.ASSET_PREFETCH, start);
+
+        // Limit the number of concurrent layouts, because each one needs a lot of heap
+        renderBulkhead.acquire();
+        try {
+            // Creating an instance may fail too, so the slot is released in any case
+            final Pd4mlEnginePool.PooledEngine pooledEngine = enginePool != null ? enginePool.borrow() : null;
+            boolean healthy = false;
+            try {
+                final PD4ML pd4ml = pooledEngine != null ? pooledEngine.pd4ml() : createEngine();
+                writePdf(pd4ml, htmlInputStream, assetCache.toBaseUrl(baseUrl, documentAssets), pdfOutputStream, pdfCreationOptions);
+                healthy = true;
+            } finally {
+                if (pooledEngine != null) {
+                    // An instance, that failed, may be in an undefined state and is not reused
+                    enginePool.giveBack(pooledEngine, healthy);
+                }
+            }
+        } finally {
+            renderBulkhead.release();
+        }
+    }
+
+    private void writePdf(PD4ML pd4ml, InputStream htmlInputStream, URL baseUrl, CountingOutputStream pdfOutputStream,
+                          PdfCreationOptions pdfCreationOptions) throws IOException {
+
         configureOptions(pd4ml, pdfCreationOptions);
-        pd4ml.readHTML(htmlInputStream, url);
+        // Images, stylesheets and fonts are loaded through the asset cache
+        RenderMetrics.Sample start = renderMetrics.start();
+        pd4ml.readHTML(htmlInputStream, baseUrl);
+        renderMetrics.stop(RenderMetrics.Stage.PD4ML_READ, start);
         pd4ml.setHtmlWidth(PD4ML_FIXED_HTML_WIDTH);
         if (!StringUtils.isEmpty(pdfCreationOptions.getDocumentTitle())) {
             pd4ml.setDocumentTitle(pdfCreationOptions.getDocumentTitle());
@@ -110,20 +154,26 @@ public class HtmlToPdfConverter {
         if (!StringUtils.isEmpty(pdfCreationOptions.getDocumentAuthor())) {
             pd4ml.setAuthorName(pdfCreationOptions.getDocumentAuthor());
         }
+        start = renderMetrics.start();
         if (pdfCreationOptions.isPdfA()) {
             pd4ml.writePDF(pdfOutputStream, Constants.PDFA);
+            renderMetrics.stop(RenderMetrics.Stage.PD4ML_WRITE, start);
             if (LOGGER.isInfoEnabled()) {
+                start = renderMetrics.start();
                 logPdfAStatusMessages(pd4ml);
+                renderMetrics.stop(RenderMetrics.Stage.PDFA_STATUS, start);
             }
         } else {
             pd4ml.writePDF(pdfOutputStream);
+            renderMetrics.stop(RenderMetrics.Stage.PD4ML_WRITE, start);
         }
+        renderMetrics.recordSize(RenderMetrics.Size.PDF, pdfOutputStream.getCount());
     }
 
     public void generatePdfStreamFromHtmlString(String htmlString, OutputStream pdfOutputStream, PdfCreationOptions pdfCreationOptions)
         throws IOException {
 
-        try (InputStream htmlInputStream = new ByteArrayInputStream(htmlString.getBytes())) {
+        try (InputStream htmlInputStream = new ByteArrayInputStream(htmlString.getBytes(StandardCharsets.UTF_8))) {
             generatePdfStreamFromHtmlStream(htmlInputStream, null, pdfOutputStream, pdfCreationOptions);
         }
     }
@@ -147,7 +197,24 @@ public class HtmlToPdfConverter {
         }
     }
 
-    private void configureOptions(PD4ML pd4ml, PdfCreationOptions pdfCreationOptions) throws FileNotFoundException {
+    // A new licensed instance with the fonts. This is the expensive part, that is done only once per pooled instance.
+    private PD4ML createEngine() {
+
+        final int logLevel = applicationProperties.getPd4mlConfiguration().getLogLevel();
+        final PD4ML pd4ml = new PD4ML(PD4ML_LICENSE_PATH, logLevel);
+        // Load and embed fonts. See: https://pd4ml.tech/pdf-fonts/
+        // Font embedding is a pre-requisite to PDF/A, but is also necessary for non PDF/A, when custom fonts are used.
+        // The font source is resolved once by the registry
+        try {
+            pd4ml.useTTF(fontRegistry.getFontDirectory());
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException("PD4ML fonts not found in \"" + fontRegistry.getFontDirectory() + "\"", e);
+        }
+        return pd4ml;
+    }
+
+    // All per document settings are set for every document, so nothing is left over from a previous document
+    private void configureOptions(PD4ML pd4ml, PdfCreationOptions pdfCreationOptions) {
 
         pd4ml.setDocumentTitle(pdfCreationOptions.getDocumentTitle());
         pd4ml.setAuthorName(pdfCreationOptions.getDocumentAuthor());
@@ -162,22 +229,6 @@ public class HtmlToPdfConverter {
             pd4ml.setWatermark("", 0, 0, 0, 0, 0, false, false, "");
         }
 
-        // Load and embed fonts. See: https://pd4ml.tech/pdf-fonts/
-        // Font embedding is a pre-requisite to PDF/A, but is also necessary for non PDF/A, when custom fonts are used.
-        final String fontSourceFile = System.getenv("PD4ML_FONTS_FILE_SOURCE");
-        final String fontSourceHttp = System.getenv("PD4ML_FONTS_HTTP_SOURCE");
-        final String fontDir;
-        if (fontSourceFile != null) {
-            fontDir = fontSourceFile;
-            LOGGER.info("Using font directory setting from environment variable PD4ML_FONTS_FILE_SOURCE=\"{}\"", fontSourceFile);
-        } else if (fontSourceHttp != null) {
-            fontDir = getFontsDirectory().getAbsolutePath();
-            LOGGER.info("Using fonts from \"{}\" copied from PD4ML_FONTS_HTTP_SOURCE=\"{}\"", fontDir, fontSourceHttp);
-        } else {
-            fontDir = PD4ML_FONTS_URI;
-            LOGGER.info("Using fonts from resource \"{}\"", PD4ML_FONTS_URI);
-        }
-        pd4ml.useTTF(fontDir);
         Map<String, String> dynamicParams = new HashMap<>();
         // Add Support for media type "print" in addition to all, screen, pdf
         dynamicParams.put(PD4Constants.PD4ML_MEDIA_TYPE_PRINT, "add");
@@ -192,20 +243,4 @@ public class HtmlToPdfConverter {
             LOGGER.info(message);
         }
     }
-
-    private static File createFontsDirectory() {
-        final File fontsDirectory = getFontsDirectory();
-        if (!fontsDirectory.exists()) {
-            boolean ok = fontsDirectory.mkdirs();
-            if (!ok) {
-                LOGGER.warn("Font directory \"{}\" cannot be created!", fontsDirectory);
-            }
-        }
-        return fontsDirectory;
-    }
-
-    private static File getFontsDirectory() {
-        final long pid = ProcessHandle.current().pid();
-        return new File(System.getProperty("java.io.tmpdir"), PD4ML_FONTS_TEMP_DIRECTORY_NAME_PREFIX + pid);
-    }
 }
\ No newline at end of file
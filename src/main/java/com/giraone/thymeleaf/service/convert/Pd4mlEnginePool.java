@@ -0,0 +1,135 @@
+package com.giraone.thymeleaf.service.convert;
+
+import com.pd4ml.PD4ML;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool of licensed and font-configured PD4ML instances. The number of instances in use is limited by the
+ * {@link PdfRenderBulkhead}, so the pool only limits the number of idle instances. Idle instances are used LIFO, so
+ * rarely used instances expire after the idle timeout.
+ */
+public class Pd4mlEnginePool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Pd4mlEnginePool.class);
+
+    /**
+     * A PD4ML instance borrowed from the pool.
+     */
+    public static final class PooledEngine {
+
+        private final PD4ML pd4ml;
+        private int uses;
+        private long lastReturned;
+
+        private PooledEngine(PD4ML pd4ml) {
+            this.pd4ml = pd4ml;
+            // An instance created in advance is idle from its creation on
+            this.lastReturned = System.currentTimeMillis();
+        }
+
+        public PD4ML pd4ml() {
+            return pd4ml;
+        }
+    }
+
+    private final Supplier<PD4ML> engineFactory;
+    private final int maxIdle;
+    private final long idleTimeoutMillis;
+    private final int maxUsesPerInstance;
+    private final BlockingDeque<PooledEngine> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter created;
+    private final Counter discarded;
+    private final ScheduledExecutorService evictionExecutor;
+
+    public Pd4mlEnginePool(Pd4mlPoolConfiguration configuration, Supplier<PD4ML> engineFactory, MeterRegistry meterRegistry) {
+
+        this.engineFactory = engineFactory;
+        this.maxIdle = configuration.getMaxIdle() > 0 ? configuration.getMaxIdle() : Runtime.getRuntime().availableProcessors();
+        this.idleTimeoutMillis = configuration.getIdleTimeout().toMillis();
+        this.maxUsesPerInstance = Math.max(1, configuration.getMaxUsesPerInstance());
+
+        Gauge.builder("pd4ml.pool.idle", idle, BlockingDeque::size)
+            .description("Number of idle PD4ML instances")
+            .register(meterRegistry);
+        Gauge.builder("pd4ml.pool.active", active, AtomicInteger::get)
+            .description("Number of PD4ML instances in use")
+            .register(meterRegistry);
+        this.created = Counter.builder("pd4ml.pool.created")
+            .description("Number of created PD4ML instances")
+            .register(meterRegistry);
+        this.discarded = Counter.builder("pd4ml.pool.discarded")
+            .description("Number of discarded PD4ML instances - idle, worn out or failed")
+            .register(meterRegistry);
+
+        for (int i = 0; i < Math.min(configuration.getInitialSize(), maxIdle); i++) {
+            idle.offerFirst(create());
+        }
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("pd4ml-pool-eviction-"));
+        final long evictionInterval = Math.max(1000L, idleTimeoutMillis / 2);
+        evictionExecutor.scheduleWithFixedDelay(this::evictIdle, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public PooledEngine borrow() {
+        PooledEngine engine = idle.pollFirst();
+        if (engine == null) {
+            engine = create();
+        }
+        engine.uses++;
+        active.incrementAndGet();
+        return engine;
+    }
+
+    /**
+     * Return an instance to the pool.
+     *
+     * @param engine  the borrowed instance
+     * @param healthy false, if the document failed - the instance is then discarded
+     */
+    public void giveBack(PooledEngine engine, boolean healthy) {
+        active.decrementAndGet();
+        engine.lastReturned = System.currentTimeMillis();
+        if (!healthy || engine.uses >= maxUsesPerInstance || idle.size() >= maxIdle || !idle.offerFirst(engine)) {
+            discarded.increment();
+        }
+    }
+
+    public void shutdown() {
+        evictionExecutor.shutdownNow();
+        idle.clear();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private PooledEngine create() {
+        created.increment();
+        return new PooledEngine(engineFactory.get());
+    }
+
+    // Package-private for tests
+    void evictIdle() {
+        final long expired = System.currentTimeMillis() - idleTimeoutMillis;
+        final Iterator<PooledEngine> iterator = idle.iterator();
+        while (iterator.hasNext()) {
+            final PooledEngine engine = iterator.next();
+            if (engine.lastReturned < expired && idle.remove(engine)) {
+                discarded.increment();
+                LOGGER.debug("Idle PD4ML instance evicted after {} uses", engine.uses);
+            }
+        }
+    }
+}
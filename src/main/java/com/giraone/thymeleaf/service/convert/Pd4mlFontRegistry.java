@@ -0,0 +1,160 @@
+package com.giraone.thymeleaf.service.convert;
+
+import com.giraone.io.copier.FileTreeCopier;
+import com.giraone.io.copier.web.WebServerFile;
+import com.giraone.io.copier.web.WebServerFileTreeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resolves the TTF fonts for PD4ML once at startup. The font source is taken from the environment:
+ * <ul>
+ *     <li>{@code PD4ML_FONTS_FILE_SOURCE} - a directory or PD4ML font URI, that is passed as it is</li>
+ *     <li>{@code PD4ML_FONTS_HTTP_SOURCE} - a URL, from which the fonts are copied into a temp directory</li>
+ *     <li>otherwise the fonts from the resource {@value #PD4ML_FONTS_URI}</li>
+ * </ul>
+ * The font index {@value #FONTS_PROPERTIES} is read and checked once, so every render gets the same, valid font set.
+ */
+@Component
+public class Pd4mlFontRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Pd4mlFontRegistry.class);
+
+    static final String PD4ML_FONTS_URI = "java:defaultfonts";
+    static final String FONTS_PROPERTIES = "pd4fonts.properties";
+    private static final String JAVA_RESOURCE_PREFIX = "java:";
+    private static final String PD4ML_FONTS_TEMP_DIRECTORY_NAME_PREFIX = "pd4ml-fonts-";
+
+    private final String fontDirectory;
+    private final Set<String> fontNames;
+
+    @Autowired
+    public Pd4mlFontRegistry() {
+        this(System.getenv("PD4ML_FONTS_FILE_SOURCE"), System.getenv("PD4ML_FONTS_HTTP_SOURCE"));
+    }
+
+    Pd4mlFontRegistry(String fontSourceFile, String fontSourceHttp) {
+
+        if (fontSourceFile != null) {
+            fontDirectory = fontSourceFile;
+            LOGGER.info("Using font directory setting from environment variable PD4ML_FONTS_FILE_SOURCE=\"{}\"", fontSourceFile);
+        } else if (fontSourceHttp != null) {
+            fontDirectory = copyFontsFromHttp(fontSourceHttp).getAbsolutePath();
+            LOGGER.info("Using fonts from \"{}\" copied from PD4ML_FONTS_HTTP_SOURCE=\"{}\"", fontDirectory, fontSourceHttp);
+        } else {
+            fontDirectory = PD4ML_FONTS_URI;
+            LOGGER.info("Using fonts from resource \"{}\"", PD4ML_FONTS_URI);
+        }
+        fontNames = Collections.unmodifiableSet(readFontIndex(fontDirectory));
+        LOGGER.info("Fonts available for PDF generation: {}", fontNames);
+    }
+
+    /**
+     * @return the font directory or URI, that is passed to {@code PD4ML.useTTF}
+     */
+    public String getFontDirectory() {
+        return fontDirectory;
+    }
+
+    /**
+     * @return the font names defined in the font index - empty, if there is no index
+     */
+    public Set<String> getFontNames() {
+        return fontNames;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static Set<String> readFontIndex(String fontDirectory) {
+
+        final Properties index = new Properties();
+        final boolean isResource = fontDirectory.startsWith(JAVA_RESOURCE_PREFIX);
+        try (InputStream in = openFontIndex(fontDirectory, isResource)) {
+            if (in == null) {
+                LOGGER.warn("There is no font index \"{}\" in \"{}\"! PD4ML has to scan the fonts for every document.",
+                    FONTS_PROPERTIES, fontDirectory);
+                return new TreeSet<>();
+            }
+            index.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read font index of \"" + fontDirectory + "\"", e);
+        }
+
+        final Set<String> names = new TreeSet<>();
+        for (String name : index.stringPropertyNames()) {
+            if (name.startsWith("font.dir.")) {
+                continue;
+            }
+            final String fontFile = index.getProperty(name);
+            if (isResource || new File(fontDirectory, fontFile).isFile()) {
+                names.add(name);
+            } else {
+                LOGGER.warn("Font file \"{}\" of font \"{}\" does not exist in \"{}\"!", fontFile, name, fontDirectory);
+            }
+        }
+        return names;
+    }
+
+    private static InputStream openFontIndex(String fontDirectory, boolean isResource) throws IOException {
+
+        if (isResource) {
+            final String resourcePath = fontDirectory.substring(JAVA_RESOURCE_PREFIX.length()).replaceFirst("^/", "");
+            return Pd4mlFontRegistry.class.getClassLoader().getResourceAsStream(resourcePath + "/" + FONTS_PROPERTIES);
+        }
+        final File indexFile = new File(fontDirectory, FONTS_PROPERTIES);
+        return indexFile.isFile() ? new FileInputStream(indexFile) : null;
+    }
+
+    // This supports copying TTF fonts from an asset server to a temp directory and using it,
+    // instead of loading fonts from the resource path of the service.
+    private static File copyFontsFromHttp(String fontSourceHttp) {
+
+        final URL url;
+        try {
+            url = new URL(fontSourceHttp);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid PD4ML_FONTS_HTTP_SOURCE \"" + fontSourceHttp + "\"", e);
+        }
+        final File fontsDirectory = createFontsDirectory();
+        WebServerFileTreeProvider source = new WebServerFileTreeProvider(url);
+        source.withFileFilter(sourceFile -> sourceFile.getName().endsWith(".ttf") || sourceFile.getName().equals(FONTS_PROPERTIES));
+        FileTreeCopier<WebServerFile> fileTreeCopier = new FileTreeCopier<>();
+        fileTreeCopier.withFileTreeProvider(source);
+        fileTreeCopier.withTargetDirectory(fontsDirectory);
+        fileTreeCopier.withFlatCopy();
+
+        final int filesCopied = fileTreeCopier.copy().getFilesCopied();
+        if (filesCopied > 0) {
+            LOGGER.info("{} TTF font files copied from \"{}\" to \"{}\"", filesCopied, fontSourceHttp, fontsDirectory);
+        } else {
+            LOGGER.warn("No TTF font files were copied from \"{}\" to \"{}\"", fontSourceHttp, fontsDirectory);
+        }
+        return fontsDirectory;
+    }
+
+    private static File createFontsDirectory() {
+        final long pid = ProcessHandle.current().pid();
+        final File fontsDirectory = new File(System.getProperty("java.io.tmpdir"), PD4ML_FONTS_TEMP_DIRECTORY_NAME_PREFIX + pid);
+        if (!fontsDirectory.exists()) {
+            boolean ok = fontsDirectory.mkdirs();
+            if (!ok) {
+                LOGGER.warn("Font directory \"{}\" cannot be created!", fontsDirectory);
+            }
+        }
+        return fontsDirectory;
+    }
+}
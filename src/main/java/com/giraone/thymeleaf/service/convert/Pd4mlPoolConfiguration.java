@@ -0,0 +1,71 @@
+package com.giraone.thymeleaf.service.convert;
+
+import java.time.Duration;
+
+public class Pd4mlPoolConfiguration {
+
+    /**
+     * Reuse PD4ML instances for several documents. PD4ML does not document, that an instance can be reused,
+     * so this is disabled by default and each document gets a new instance.
+     */
+    private boolean enabled = false;
+    /** Number of instances created at startup. */
+    private int initialSize = 0;
+    /** Maximum number of idle instances. 0 means one instance per available processor. */
+    private int maxIdle = 0;
+    /** Idle instances are discarded after this duration. */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    /** An instance is discarded after this number of documents. */
+    private int maxUsesPerInstance = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialSize() {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getMaxUsesPerInstance() {
+        return maxUsesPerInstance;
+    }
+
+    public void setMaxUsesPerInstance(int maxUsesPerInstance) {
+        this.maxUsesPerInstance = maxUsesPerInstance;
+    }
+
+    @Override
+    public String toString() {
+        return "Pd4mlPoolConfiguration{" +
+            "enabled=" + enabled +
+            ", initialSize=" + initialSize +
+            ", maxIdle=" + maxIdle +
+            ", idleTimeout=" + idleTimeout +
+            ", maxUsesPerInstance=" + maxUsesPerInstance +
+            '}';
+    }
+}
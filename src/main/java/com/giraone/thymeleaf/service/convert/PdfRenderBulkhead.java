@@ -0,0 +1,89 @@
+package com.giraone.thymeleaf.service.convert;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of concurrent PDF renders. Renders wait in a bounded queue for a free slot for a limited time.
+ * When the queue is full or the wait time is exceeded, the render is rejected with a {@link PdfRenderRejectedException}.
+ */
+public class PdfRenderBulkhead {
+
+    private final Semaphore slots;
+    private final int maxConcurrentRenders;
+    private final int maxQueuedRenders;
+    private final long maxWaitMillis;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter rejected;
+
+    public PdfRenderBulkhead(PdfRenderLimitConfiguration configuration, MeterRegistry meterRegistry) {
+
+        this.maxConcurrentRenders = configuration.getMaxConcurrentRenders() > 0
+            ? configuration.getMaxConcurrentRenders() : Runtime.getRuntime().availableProcessors();
+        this.maxQueuedRenders = Math.max(0, configuration.getMaxQueuedRenders());
+        this.maxWaitMillis = configuration.getMaxWait().toMillis();
+        this.slots = new Semaphore(maxConcurrentRenders, true);
+
+        Gauge.builder("pdf.renders.active", active, AtomicInteger::get)
+            .description("Number of PDF renders in progress")
+            .register(meterRegistry);
+        Gauge.builder("pdf.renders.queued", queued, AtomicInteger::get)
+            .description("Number of PDF renders waiting for a free slot")
+            .register(meterRegistry);
+        Gauge.builder("pdf.renders.limit", () -> maxConcurrentRenders)
+            .description("Maximum number of concurrent PDF renders")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("pdf.renders.rejected")
+            .description("Number of PDF renders rejected, because all slots were busy")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Wait for a free render slot. Each successful call must be followed by {@link #release()}.
+     *
+     * @throws PdfRenderRejectedException if no slot is available in time
+     */
+    public void acquire() {
+
+        try {
+            // Unlike tryAcquire(), the timed variant respects the fairness, so renders do not overtake queued renders
+            if (!slots.tryAcquire(0L, TimeUnit.MILLISECONDS)) {
+                if (queued.incrementAndGet() > maxQueuedRenders) {
+                    queued.decrementAndGet();
+                    throw reject("PDF render queue is full");
+                }
+                try {
+                    if (!slots.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                        throw reject("No PDF render slot available within " + maxWaitMillis + " ms");
+                    }
+                } finally {
+                    queued.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("Interrupted while waiting for a PDF render slot");
+        }
+        active.incrementAndGet();
+    }
+
+    public void release() {
+        active.decrementAndGet();
+        slots.release();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private PdfRenderRejectedException reject(String message) {
+        rejected.increment();
+        // Assume roughly one second per render and queued renders distributed over all slots
+        final long retryAfterSeconds = 1L + queued.get() / maxConcurrentRenders;
+        return new PdfRenderRejectedException(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,46 @@
+package com.giraone.thymeleaf.service.convert;
+
+import java.time.Duration;
+
+public class PdfRenderLimitConfiguration {
+
+    /** Maximum number of concurrent PDF renders. 0 means one render per available processor. */
+    private int maxConcurrentRenders = 0;
+    /** Maximum number of renders waiting for a free slot. Further renders are rejected immediately. */
+    private int maxQueuedRenders = 50;
+    /** Maximum time a render waits for a free slot, before it is rejected. */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    public int getMaxConcurrentRenders() {
+        return maxConcurrentRenders;
+    }
+
+    public void setMaxConcurrentRenders(int maxConcurrentRenders) {
+        this.maxConcurrentRenders = maxConcurrentRenders;
+    }
+
+    public int getMaxQueuedRenders() {
+        return maxQueuedRenders;
+    }
+
+    public void setMaxQueuedRenders(int maxQueuedRenders) {
+        this.maxQueuedRenders = maxQueuedRenders;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public String toString() {
+        return "PdfRenderLimitConfiguration{" +
+            "maxConcurrentRenders=" + maxConcurrentRenders +
+            ", maxQueuedRenders=" + maxQueuedRenders +
+            ", maxWait=" + maxWait +
+            '}';
+    }
+}
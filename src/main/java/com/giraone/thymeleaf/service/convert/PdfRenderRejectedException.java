@@ -0,0 +1,22 @@
+package com.giraone.thymeleaf.service.convert;
+
+/**
+ * Thrown, when a PDF render is rejected, because all render slots are busy and the wait queue is full
+ * or the maximum wait time is exceeded.
+ */
+public class PdfRenderRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PdfRenderRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return a rough estimate in seconds, when the client should try again
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.giraone.thymeleaf.service.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(HtmlRenderEvent.NAME)
+@Label("HTML Render")
+@Description("Processing a Thymeleaf template with JSON data")
+public class HtmlRenderEvent extends RenderEvent {
+
+    public static final String NAME = "com.giraone.thymeleaf.HtmlRender";
+
+    public static HtmlRenderEvent started() {
+        final HtmlRenderEvent event = new HtmlRenderEvent();
+        event.start();
+        return event;
+    }
+}
@@ -0,0 +1,48 @@
+package com.giraone.thymeleaf.service.jfr;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+public class JfrRecordingConfiguration {
+
+    /** Name of the JFR settings, e.g. "default" (low overhead) or "profile" (more details) */
+    private String settings = "profile";
+    /** Default and upper bound for the age of the recorded data - older data is discarded */
+    private Duration maxAge = Duration.ofMinutes(10);
+    /** Default and upper bound for the size of the recorded data - older data is discarded */
+    private DataSize maxSize = DataSize.ofMegabytes(100);
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "JfrRecordingConfiguration{" +
+            "settings='" + settings + '\'' +
+            ", maxAge=" + maxAge +
+            ", maxSize=" + maxSize +
+            '}';
+    }
+}
@@ -0,0 +1,153 @@
+package com.giraone.thymeleaf.service.jfr;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for a bounded Java Flight Recorder recording, including the render events of this service and the
+ * JVM events (GC, safepoints, locks, allocation samples) of the configured settings:
+ * <ul>
+ *     <li>{@code POST /actuator/jfr} - start a recording, optionally with {@code maxAge} and {@code maxSize}</li>
+ *     <li>{@code GET /actuator/jfr} - status of the recording</li>
+ *     <li>{@code GET /actuator/jfr/dump} - download the recorded data as a JFR file</li>
+ *     <li>{@code DELETE /actuator/jfr} - stop and discard the recording</li>
+ * </ul>
+ * Age and size of the recording are limited by {@code application.jfr-recording}, so a forgotten recording cannot fill
+ * the disk. The events with environment variables and system properties are never recorded. The endpoint is excluded
+ * from the web exposure by default, because it has no authentication of its own.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JfrRecordingEndpoint.class);
+
+    static final String RECORDING_NAME = "thymeleaf-processor";
+    static final String DUMP = "dump";
+    // Like the env endpoint, these events would expose passwords
+    static final String[] SECRET_EVENTS = {"jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty"};
+
+    private final JfrRecordingConfiguration configuration;
+    private Recording recording;
+
+    @Autowired
+    public JfrRecordingEndpoint(ApplicationProperties applicationProperties) {
+        this.configuration = applicationProperties.getJfrRecording();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+
+        final Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", recording != null ? recording.getState().name() : RecordingState.NEW.name());
+        if (recording != null) {
+            status.put("name", recording.getName());
+            status.put("settings", configuration.getSettings());
+            status.put("startTime", recording.getStartTime());
+            status.put("maxAge", recording.getMaxAge());
+            status.put("maxSize", DataSize.ofBytes(recording.getMaxSize()));
+            status.put("size", DataSize.ofBytes(recording.getSize()));
+        }
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Duration maxAge, @Nullable DataSize maxSize) {
+
+        stop();
+        final Configuration settings;
+        try {
+            settings = Configuration.getConfiguration(configuration.getSettings());
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot read JFR settings \"" + configuration.getSettings() + "\"", e);
+        }
+        recording = new Recording(settings);
+        recording.setName(RECORDING_NAME);
+        recording.enable(HtmlRenderEvent.NAME);
+        recording.enable(PdfRenderEvent.NAME);
+        for (String event : SECRET_EVENTS) {
+            recording.disable(event);
+        }
+        recording.setToDisk(true);
+        recording.setMaxAge(min(maxAge, configuration.getMaxAge()));
+        recording.setMaxSize(min(maxSize, configuration.getMaxSize()).toBytes());
+        recording.start();
+        LOGGER.info("JFR recording started with settings \"{}\", max age {} and max size {}",
+            configuration.getSettings(), recording.getMaxAge(), DataSize.ofBytes(recording.getMaxSize()));
+        return status();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized Resource dump(@Selector String action) {
+
+        if (!DUMP.equals(action) || recording == null) {
+            return null;
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+            recording.dump(file);
+            // The dump is streamed from the file, which is deleted, when the response is written
+            return new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Cannot dump JFR recording", e);
+        }
+    }
+
+    @DeleteOperation
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            LOGGER.info("JFR recording stopped");
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot delete JFR dump \"{}\"", file, e);
+            }
+        }
+    }
+
+    private static <T extends Comparable<T>> T min(T requested, T limit) {
+        return requested != null && requested.compareTo(limit) < 0 ? requested : limit;
+    }
+}
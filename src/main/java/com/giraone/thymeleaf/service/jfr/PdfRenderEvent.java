@@ -0,0 +1,19 @@
+package com.giraone.thymeleaf.service.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(PdfRenderEvent.NAME)
+@Label("PDF Render")
+@Description("Converting HTML to PDF with PD4ML, including the asset prefetch and waiting for a render slot")
+public class PdfRenderEvent extends RenderEvent {
+
+    public static final String NAME = "com.giraone.thymeleaf.PdfRender";
+
+    public static PdfRenderEvent started() {
+        final PdfRenderEvent event = new PdfRenderEvent();
+        event.start();
+        return event;
+    }
+}
@@ -0,0 +1,85 @@
+package com.giraone.thymeleaf.service.jfr;
+
+import com.giraone.thymeleaf.common.ThreadResourceUtil;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the Java Flight Recorder events of a render. The duration is the duration of the event. The values are
+ * only collected, when the event is enabled in a running recording, so the events cost next to nothing otherwise.
+ */
+@Category({"Thymeleaf Processor", "Render"})
+@StackTrace(false)
+abstract class RenderEvent extends Event {
+
+    @Label("Endpoint")
+    protected String endpoint;
+
+    @Label("Template Hash")
+    @Description("SHA-256 hash of template and CSS")
+    protected String templateHash;
+
+    @Label("Data Size")
+    @Description("Size of the JSON data of the request or -1, if unknown")
+    @DataAmount
+    protected long dataSize;
+
+    @Label("Output Size")
+    @DataAmount
+    protected long outputSize;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the rendering thread or -1, if not supported")
+    @DataAmount
+    protected long allocatedBytes;
+
+    @Label("Failed")
+    protected boolean failed;
+
+    // Transient fields are not part of the recorded event
+    private transient long allocatedBytesAtStart;
+    private transient boolean started;
+
+    /**
+     * Begin the event, if it is enabled.
+     */
+    protected void start() {
+        if (isEnabled()) {
+            allocatedBytesAtStart = ThreadResourceUtil.allocatedBytes();
+            started = true;
+            begin();
+        }
+    }
+
+    /**
+     * End and commit the event, if it was begun and exceeds the threshold. An event, that was enabled only after the
+     * start of the render, e.g. by a new recording, has neither begin time nor allocation baseline and is dropped.
+     *
+     * @param templateKey the template hash or null to use the one of the current render
+     * @param outputSize  the size of the rendered output in bytes
+     * @param failed      true, if rendering failed
+     */
+    public void finish(String templateKey, long outputSize, boolean failed) {
+
+        if (!started) {
+            return;
+        }
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        final RenderMetrics.Tags tags = RenderMetrics.currentTags();
+        this.endpoint = tags != null ? tags.endpoint() : null;
+        this.templateHash = templateKey != null ? templateKey : (tags != null ? tags.templateKey() : null);
+        this.dataSize = tags != null ? tags.dataSize() : -1L;
+        this.outputSize = outputSize;
+        this.allocatedBytes = allocatedBytesAtStart >= 0 ? ThreadResourceUtil.allocatedBytes() - allocatedBytesAtStart : -1L;
+        this.failed = failed;
+        commit();
+    }
+}
@@ -0,0 +1,39 @@
+package com.giraone.thymeleaf.service.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous PDF job. Instances are immutable, a state change creates a new instance.
+ *
+ * @param id       the job ID
+ * @param status   the current status
+ * @param created  the time, when the job was submitted
+ * @param finished the time, when the job was done or failed - null before
+ * @param error    the HTML error message of a failed job - null otherwise
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PdfJob(String id, Status status, Instant created, Instant finished, @JsonIgnore String error) {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    PdfJob running() {
+        return new PdfJob(id, Status.RUNNING, created, null, null);
+    }
+
+    PdfJob done() {
+        return new PdfJob(id, Status.DONE, created, Instant.now(), null);
+    }
+
+    PdfJob failed(String error) {
+        return new PdfJob(id, Status.FAILED, created, Instant.now(), error);
+    }
+
+    public boolean hasEnded() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,68 @@
+package com.giraone.thymeleaf.service.job;
+
+import java.time.Duration;
+
+public class PdfJobConfiguration {
+
+    /** Number of threads rendering PDF jobs. 0 means one thread per available processor. */
+    private int threads = 0;
+    /** Maximum number of jobs waiting for a render thread. Further jobs are rejected. */
+    private int queueCapacity = 100;
+    /** Directory for the rendered PDFs. Null means a sub directory of java.io.tmpdir. */
+    private String storeDirectory;
+    /** Finished jobs and their PDFs are removed after this duration. */
+    private Duration timeToLive = Duration.ofHours(1);
+    /** Interval for removing expired jobs. */
+    private Duration cleanupInterval = Duration.ofMinutes(1);
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public String getStoreDirectory() {
+        return storeDirectory;
+    }
+
+    public void setStoreDirectory(String storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public Duration getCleanupInterval() {
+        return cleanupInterval;
+    }
+
+    public void setCleanupInterval(Duration cleanupInterval) {
+        this.cleanupInterval = cleanupInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "PdfJobConfiguration{" +
+            "threads=" + threads +
+            ", queueCapacity=" + queueCapacity +
+            ", storeDirectory='" + storeDirectory + '\'' +
+            ", timeToLive=" + timeToLive +
+            ", cleanupInterval=" + cleanupInterval +
+            '}';
+    }
+}
@@ -0,0 +1,222 @@
+package com.giraone.thymeleaf.service.job;
+
+import com.giraone.thymeleaf.common.DirectByteArrayOutputStream;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import com.giraone.thymeleaf.service.convert.HtmlToPdfConverter;
+import com.giraone.thymeleaf.service.convert.PdfCreationOptions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.text.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Render PDFs asynchronously. Jobs are queued in a bounded queue and rendered on a dedicated pool, so long renders do
+ * not block HTTP threads. The PDFs are stored in a local directory and removed together with the job after a TTL.
+ */
+@Service
+public class PdfJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PdfJobService.class);
+
+    private final PdfJobConfiguration pdfJobConfiguration;
+    private final JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor;
+    private final HtmlToPdfConverter htmlToPdfConverter;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, PdfJob> jobs = new ConcurrentHashMap<>();
+    private Path storeDirectory;
+    private ThreadPoolExecutor renderExecutor;
+    private ScheduledExecutorService cleanupExecutor;
+
+    @Autowired
+    public PdfJobService(ApplicationProperties applicationProperties, JsonToHtmlProcessorUsingStringTemplates jsonToHtmlProcessor,
+                         HtmlToPdfConverter htmlToPdfConverter, MeterRegistry meterRegistry) {
+        this.pdfJobConfiguration = applicationProperties.getPdfJobs();
+        this.jsonToHtmlProcessor = jsonToHtmlProcessor;
+        this.htmlToPdfConverter = htmlToPdfConverter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+
+        storeDirectory = pdfJobConfiguration.getStoreDirectory() != null
+            ? Paths.get(pdfJobConfiguration.getStoreDirectory())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "thymeleaf-processor-jobs");
+        Files.createDirectories(storeDirectory);
+        // Jobs are not persistent, so PDFs of a previous run cannot be downloaded anymore
+        try (Stream<Path> files = Files.list(storeDirectory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".pdf")).forEach(PdfJobService::deleteQuietly);
+        }
+
+        final int threads = pdfJobConfiguration.getThreads() > 0
+            ? pdfJobConfiguration.getThreads() : Runtime.getRuntime().availableProcessors();
+        renderExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, pdfJobConfiguration.getQueueCapacity())),
+            new CustomizableThreadFactory("pdf-job-"), new ThreadPoolExecutor.AbortPolicy());
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("pdf-job-cleanup-"));
+        final long cleanupMillis = pdfJobConfiguration.getCleanupInterval().toMillis();
+        cleanupExecutor.scheduleWithFixedDelay(this::removeExpiredJobs, cleanupMillis, cleanupMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("pdf.jobs.queued", renderExecutor, executor -> executor.getQueue().size())
+            .description("Number of PDF jobs waiting for a render thread")
+            .register(meterRegistry);
+        Gauge.builder("pdf.jobs.stored", jobs, Map::size)
+            .description("Number of PDF jobs, that are not yet expired")
+            .register(meterRegistry);
+        LOGGER.info("PdfJobService initialized with {} threads, store {} and {}", threads, storeDirectory, pdfJobConfiguration);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleanupExecutor.shutdownNow();
+        renderExecutor.shutdownNow();
+    }
+
+    /**
+     * Submit a new job.
+     *
+     * @param template           the template
+     * @param data               the data for the template
+     * @param pdfCreationOptions the PDF options
+     * @return the queued job
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public PdfJob submit(PreparedTemplate template, Map<String, Object> data, PdfCreationOptions pdfCreationOptions) {
+
+        final PdfJob job = new PdfJob(UUID.randomUUID().toString(), PdfJob.Status.QUEUED, Instant.now(), null, null);
+        jobs.put(job.id(), job);
+        final RenderMetrics.Tags tags = RenderMetrics.currentTags();
+        try {
+            renderExecutor.execute(() -> {
+                try (RenderMetrics.Scope ignored = RenderMetrics.open(tags)) {
+                    render(job, template, data, pdfCreationOptions);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<PdfJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Get the PDF of a finished job.
+     *
+     * @param id the job ID
+     * @return the path of the PDF, if the job is done
+     */
+    public Optional<Path> findResult(String id) {
+        final PdfJob job = jobs.get(id);
+        return job != null && job.status() == PdfJob.Status.DONE ? Optional.of(resultPath(id)) : Optional.empty();
+    }
+
+    public boolean delete(String id) {
+        final PdfJob job = jobs.remove(id);
+        if (job == null) {
+            return false;
+        }
+        deleteQuietly(resultPath(id));
+        return true;
+    }
+
+    /**
+     * A rough estimate in seconds, when a rejected client should try again.
+     *
+     * @return the number of seconds
+     */
+    public int estimateRetryAfterSeconds() {
+        return Math.max(1, renderExecutor.getQueue().size() / Math.max(1, renderExecutor.getMaximumPoolSize()));
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void render(PdfJob job, PreparedTemplate template, Map<String, Object> data, PdfCreationOptions pdfCreationOptions) {
+
+        if (jobs.replace(job.id(), job.running()) == null) {
+            return; // deleted while queued
+        }
+        PdfJob result;
+        try {
+            final DirectByteArrayOutputStream htmlOut = new DirectByteArrayOutputStream();
+            final String error = jsonToHtmlProcessor.prepareTemplateWithDataForPdfOutput(htmlOut, data, template);
+            if (error != null) {
+                result = job.failed(error);
+            } else {
+                // Write to a temporary file first, so an incomplete PDF is never visible
+                final Path tempFile = Files.createTempFile(storeDirectory, job.id(), ".tmp");
+                try {
+                    try (OutputStream pdfOut = Files.newOutputStream(tempFile)) {
+                        htmlToPdfConverter.generatePdfStreamFromHtmlStream(htmlOut.toInputStream(), null, pdfOut, pdfCreationOptions);
+                    }
+                    Files.move(tempFile, resultPath(job.id()), StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    deleteQuietly(tempFile);
+                }
+                result = job.done();
+            }
+        } catch (Exception e) {
+            LOGGER.error("PDF job {} failed", job.id(), e);
+            result = job.failed("<hr /><h3>Exception:</h3>"
+                + "<pre>" + StringEscapeUtils.escapeHtml4(String.valueOf(e.getMessage())) + "</pre>");
+        }
+        if (jobs.replace(job.id(), result) == null) {
+            deleteQuietly(resultPath(job.id())); // deleted while running
+        }
+    }
+
+    private void removeExpiredJobs() {
+
+        final Instant expired = Instant.now().minus(pdfJobConfiguration.getTimeToLive());
+        jobs.values().stream()
+            .filter(job -> job.hasEnded() && job.finished().isBefore(expired))
+            .forEach(job -> {
+                LOGGER.debug("Removing expired PDF job {}", job.id());
+                delete(job.id());
+            });
+    }
+
+    private Path resultPath(String id) {
+        return storeDirectory.resolve(id + ".pdf");
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot delete {}: {}", path, e.getMessage());
+        }
+    }
+}
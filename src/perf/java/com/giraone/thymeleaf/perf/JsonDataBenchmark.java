@@ -0,0 +1,46 @@
+package com.giraone.thymeleaf.perf;
+
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link JsonToHtmlProcessorUsingStringTemplates#convertDataJsonStringToMap} for the
+ * {@code persons-table} sample with different numbers of rows.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class JsonDataBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    private String dataJson;
+
+    @Setup
+    public void setup() {
+        dataJson = PersonsTableSample.dataJson(rows);
+    }
+
+    @Benchmark
+    public Map<String, Object> convertDataJsonStringToMap() throws IOException {
+        return JsonToHtmlProcessorUsingStringTemplates.convertDataJsonStringToMap(dataJson);
+    }
+}
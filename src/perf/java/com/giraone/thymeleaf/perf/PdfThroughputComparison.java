@@ -0,0 +1,75 @@
+package com.giraone.thymeleaf.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compare a {@link PdfThroughputSuite} result with a stored baseline:
+ * <pre>
+ * PdfThroughputComparison baseline.json target/pdf-throughput.json [--tolerance 10]
+ * </pre>
+ * A run regresses, if its throughput is lower or its p99 latency is higher than the baseline by more than the tolerance
+ * in percent. The exit code is 1, if there is at least one regression, so the comparison can fail a build.
+ */
+public final class PdfThroughputComparison {
+
+    private static final double DEFAULT_TOLERANCE_PERCENT = 10.0;
+
+    // Hide
+    private PdfThroughputComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 2 && args.length != 4) {
+            System.err.println("Usage: PdfThroughputComparison <baseline.json> <current.json> [--tolerance <percent>]");
+            System.exit(2);
+        }
+        final PdfThroughputResult baseline = PdfThroughputResult.read(new File(args[0]));
+        final PdfThroughputResult current = PdfThroughputResult.read(new File(args[1]));
+        final double tolerance = args.length == 4 && args[2].equals("--tolerance")
+            ? Double.parseDouble(args[3]) : DEFAULT_TOLERANCE_PERCENT;
+
+        final int regressions = compare(baseline, current, tolerance);
+        System.out.println(regressions == 0 ? "No regressions" : regressions + " regression(s)");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    static int compare(PdfThroughputResult baseline, PdfThroughputResult current, double tolerancePercent) {
+
+        if (baseline.availableProcessors() != current.availableProcessors() || baseline.maxHeapBytes() != current.maxHeapBytes()) {
+            System.out.printf("WARNING: different environment - baseline %d processors/%d MB heap, current %d processors/%d MB heap%n",
+                baseline.availableProcessors(), baseline.maxHeapBytes() >> 20, current.availableProcessors(), current.maxHeapBytes() >> 20);
+        }
+        final Map<String, PdfThroughputResult.Run> baselineRuns = baseline.runs().stream()
+            .collect(Collectors.toMap(PdfThroughputResult.Run::key, Function.identity(), (a, b) -> b));
+        System.out.printf("%-40s %12s %12s %8s %12s %12s %8s%n", "run", "docs/s base", "docs/s now", "diff", "p99 base", "p99 now", "diff");
+        int regressions = 0;
+        for (PdfThroughputResult.Run run : current.runs()) {
+            final PdfThroughputResult.Run base = baselineRuns.get(run.key());
+            if (base == null) {
+                System.out.printf("%-40s not in baseline%n", run.key());
+                continue;
+            }
+            final double throughputChange = change(base.docsPerSecond(), run.docsPerSecond());
+            final double p99Change = change(base.p99Millis(), run.p99Millis());
+            final boolean regression = throughputChange < -tolerancePercent || p99Change > tolerancePercent;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-40s %12.2f %12.2f %7.1f%% %12.1f %12.1f %7.1f%%%s%n", run.key(),
+                base.docsPerSecond(), run.docsPerSecond(), throughputChange, base.p99Millis(), run.p99Millis(), p99Change,
+                regression ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static double change(double base, double now) {
+        return base > 0.0 ? (now - base) * 100.0 / base : 0.0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.giraone.thymeleaf.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Machine-readable result of the {@link PdfThroughputSuite}.
+ *
+ * @param timestamp           start of the suite (ISO-8601)
+ * @param javaVersion         the Java version
+ * @param availableProcessors the processors available to the JVM
+ * @param maxHeapBytes        the maximum heap size
+ * @param runs                one entry per input, option combination and thread count
+ */
+public record PdfThroughputResult(String timestamp, String javaVersion, int availableProcessors, long maxHeapBytes,
+                                  List<Run> runs) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * @param input              name of the test input
+     * @param pdfA               PDF/A output
+     * @param watermark          with watermark
+     * @param threads            number of concurrent threads
+     * @param documents          number of PDFs rendered in the measurement time
+     * @param errors             number of failed renders
+     * @param docsPerSecond      throughput
+     * @param p50Millis          median latency of a render
+     * @param p99Millis          99th percentile of the latency of a render
+     * @param heapHighWaterBytes the sum of the peak usage of all heap pools during the run
+     * @param scalingEfficiency  throughput relative to the single thread throughput multiplied with the thread count
+     */
+    public record Run(String input, boolean pdfA, boolean watermark, int threads, long documents, long errors,
+                      double docsPerSecond, double p50Millis, double p99Millis, long heapHighWaterBytes,
+                      double scalingEfficiency) {
+
+        /**
+         * @return the key to compare runs of different suite results
+         */
+        public String key() {
+            return input + (pdfA ? "/pdfa" : "") + (watermark ? "/watermark" : "") + "/" + threads + "t";
+        }
+    }
+
+    public void write(File file) throws IOException {
+        MAPPER.writeValue(file, this);
+    }
+
+    public static PdfThroughputResult read(File file) throws IOException {
+        return MAPPER.readValue(file, PdfThroughputResult.class);
+    }
+}
@@ -0,0 +1,211 @@
+package com.giraone.thymeleaf.perf;
+
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import com.giraone.thymeleaf.common.DirectByteArrayOutputStream;
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import com.giraone.thymeleaf.service.convert.HtmlToPdfConverter;
+import com.giraone.thymeleaf.service.convert.PdfCreationOptions;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput of {@link HtmlToPdfConverter} for the bundled test inputs at 1..N concurrent threads, with
+ * PDF/A and watermark switched on and off. The converter is taken from the started application, so render limit,
+ * engine pool and asset cache work as configured. Options (all optional):
+ * <ul>
+ *     <li>{@code --threads 1,2,4,8} - the thread counts, the first one is the reference for the scaling efficiency</li>
+ *     <li>{@code --inputs simple,persons-table,using-fonts,lohnkonto} - the test inputs</li>
+ *     <li>{@code --pdfa false,true} and {@code --watermark false,true} - the option combinations</li>
+ *     <li>{@code --warmup 5s} and {@code --duration 20s} - per run</li>
+ *     <li>{@code --output target/pdf-throughput.json} - the result, see {@link PdfThroughputResult}</li>
+ * </ul>
+ * Use {@link PdfThroughputComparison} to compare the result with a stored baseline.
+ */
+public final class PdfThroughputSuite {
+
+    private static final String SOURCE = "src/test/resources/testdata/input";
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final HtmlToPdfConverter converter;
+    private final Duration warmup;
+    private final Duration duration;
+
+    private PdfThroughputSuite(HtmlToPdfConverter converter, Duration warmup, Duration duration) {
+        this.converter = converter;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        final Map<String, String> options = parseOptions(args);
+        final int[] threadCounts = Arrays.stream(options.getOrDefault("threads",
+            "1,2,4," + Runtime.getRuntime().availableProcessors()).split(",")).mapToInt(Integer::parseInt).distinct().toArray();
+        final List<String> inputs = List.of(options.getOrDefault("inputs", "simple,persons-table,using-fonts,lohnkonto").split(","));
+        final List<Boolean> pdfAs = booleans(options.getOrDefault("pdfa", "false,true"));
+        final List<Boolean> watermarks = booleans(options.getOrDefault("watermark", "false,true"));
+        final Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "5s"));
+        final Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "20s"));
+        final File output = new File(options.getOrDefault("output", "target/pdf-throughput.json"));
+
+        final String timestamp = Instant.now().toString();
+        final List<PdfThroughputResult.Run> runs = new ArrayList<>();
+        // No restart class loader of the devtools on the classpath
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TemplateProcessorApplication.class)
+            .run("--server.port=0", "--logging.level.root=WARN", "--application.show-config-on-startup=false")) {
+
+            final PdfThroughputSuite suite = new PdfThroughputSuite(context.getBean(HtmlToPdfConverter.class), warmup, duration);
+            final JsonToHtmlProcessorUsingStringTemplates processor = context.getBean(JsonToHtmlProcessorUsingStringTemplates.class);
+            for (String input : inputs) {
+                final byte[] html = loadHtml(processor, input);
+                for (boolean pdfA : pdfAs) {
+                    for (boolean watermark : watermarks) {
+                        double referenceDocsPerSecond = 0.0;
+                        for (int threads : threadCounts) {
+                            final PdfThroughputResult.Run run = suite.run(input, html, pdfA, watermark, threads, threadCounts[0], referenceDocsPerSecond);
+                            if (threads == threadCounts[0]) {
+                                referenceDocsPerSecond = run.docsPerSecond();
+                            }
+                            System.out.printf("%-40s %8.2f docs/s  p50 %8.2f ms  p99 %8.2f ms  heap %6d MB  efficiency %5.2f  errors %d%n",
+                                run.key(), run.docsPerSecond(), run.p50Millis(), run.p99Millis(),
+                                run.heapHighWaterBytes() / (1024 * 1024), run.scalingEfficiency(), run.errors());
+                            runs.add(run);
+                        }
+                    }
+                }
+            }
+        }
+        final PdfThroughputResult result = new PdfThroughputResult(timestamp, System.getProperty("java.version"),
+            Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory(), runs);
+        if (output.getParentFile() != null) {
+            Files.createDirectories(output.getParentFile().toPath());
+        }
+        result.write(output);
+        System.out.println("Result written to " + output.getAbsolutePath());
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private PdfThroughputResult.Run run(String input, byte[] html, boolean pdfA, boolean watermark, int threads,
+                                        int referenceThreads, double referenceDocsPerSecond) throws InterruptedException {
+
+        final PdfCreationOptions pdfCreationOptions = new PdfCreationOptions("Benchmark", "Benchmark", pdfA);
+        if (watermark) {
+            pdfCreationOptions.withWatermarkOptions(PdfCreationOptions.buildWatermark("BENCHMARK"));
+        }
+
+        // Warm up with the same concurrency, then reset the peaks and measure
+        measure(html, pdfCreationOptions, threads, warmup);
+        System.gc();
+        final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        final Measurement measurement = measure(html, pdfCreationOptions, threads, duration);
+        final long heapHighWater = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        final Histogram latencies = measurement.latencies();
+        final double docsPerSecond = latencies.getTotalCount() / (measurement.elapsedNanos() / 1_000_000_000.0);
+        final double scalingEfficiency = referenceDocsPerSecond > 0.0
+            ? (docsPerSecond / threads) / (referenceDocsPerSecond / referenceThreads)
+            : 1.0;
+        return new PdfThroughputResult.Run(input, pdfA, watermark, threads, latencies.getTotalCount(), measurement.errors(),
+            docsPerSecond, latencies.getValueAtPercentile(50.0) / 1_000_000.0, latencies.getValueAtPercentile(99.0) / 1_000_000.0,
+            heapHighWater, scalingEfficiency);
+    }
+
+    private Measurement measure(byte[] html, PdfCreationOptions pdfCreationOptions, int threads, Duration time)
+        throws InterruptedException {
+
+        final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(threads);
+        final long start = System.nanoTime();
+        final long end = start + time.toNanos();
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    final DirectByteArrayOutputStream out = new DirectByteArrayOutputStream(256 * 1024);
+                    while (System.nanoTime() < end) {
+                        out.reset();
+                        final long renderStart = System.nanoTime();
+                        try {
+                            converter.generatePdfStreamFromHtmlStream(new ByteArrayInputStream(html), null, out, pdfCreationOptions);
+                            recorder.recordValue(Math.min(System.nanoTime() - renderStart, MAX_LATENCY_NANOS));
+                        } catch (IOException | RuntimeException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "pdf-throughput-" + i);
+            thread.start();
+        }
+        done.await();
+        return new Measurement(recorder.getIntervalHistogram(), errors.get(), System.nanoTime() - start);
+    }
+
+    private record Measurement(Histogram latencies, long errors, long elapsedNanos) {
+    }
+
+    // Templates with JSON data are rendered to HTML once, other inputs are plain HTML
+    private static byte[] loadHtml(JsonToHtmlProcessorUsingStringTemplates processor, String input) throws IOException {
+
+        final Path directory = Path.of(SOURCE, input);
+        if (!Files.isDirectory(directory)) {
+            return Files.readAllBytes(Path.of(SOURCE, input + ".html"));
+        }
+        // The files are named "input.*" or like the first part of the directory name, e.g. persons-table/persons.*
+        final String name = Files.exists(directory.resolve("input.html")) ? "input" : input.replaceFirst("-.*$", "");
+        final Map<String, Object> data = JsonToHtmlProcessorUsingStringTemplates.convertDataJsonStringToMap(
+            Files.readString(directory.resolve(name + ".json")));
+        final Path css = directory.resolve(name + ".css");
+        final PreparedTemplate template = PreparedTemplate.of(Files.readString(directory.resolve(name + ".html")),
+            Files.exists(css) ? Files.readString(css) : null);
+        final DirectByteArrayOutputStream out = new DirectByteArrayOutputStream();
+        final String error = processor.prepareTemplateWithDataForPdfOutput(out, data, template);
+        if (error != null) {
+            throw new IllegalStateException("Cannot render input \"" + input + "\": " + error);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Boolean> booleans(String values) {
+        return Arrays.stream(values.split(",")).map(Boolean::parseBoolean).distinct().toList();
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Invalid option \"" + args[i] + "\" - expected: --name value");
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
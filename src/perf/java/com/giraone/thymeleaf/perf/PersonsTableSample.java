@@ -0,0 +1,85 @@
+package com.giraone.thymeleaf.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Inputs of the benchmarks, scaled from the {@code persons-table} sample of the test resources.
+ */
+final class PersonsTableSample {
+
+    private static final String RESOURCE_PATH = "testdata/input/persons-table/persons";
+    private static final String TABLE_START = "<table";
+    private static final String TABLE_END = "</table>";
+    private static final String[][] PERSONS = {
+        {"Smith", "Joe", "MALE", "1998-02-15"},
+        {"Smith", "Jane", "FEMALE", "1979-12-31"},
+        {"Doe", "Jane", "FEMALE", "1999-01-01"}
+    };
+
+    // Hide
+    private PersonsTableSample() {
+    }
+
+    /**
+     * @param rows number of persons in the list
+     * @return JSON data with the given number of persons
+     */
+    static String dataJson(int rows) {
+
+        final StringBuilder json = new StringBuilder(rows * 100 + 50);
+        json.append("{\"groupName\":\"Employees\",\"list\":[");
+        for (int i = 0; i < rows; i++) {
+            final String[] person = PERSONS[i % PERSONS.length];
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"lastName\":\"").append(person[0]).append(i)
+                .append("\",\"firstName\":\"").append(person[1])
+                .append("\",\"gender\":\"").append(person[2])
+                .append("\",\"dateOfBirth\":\"").append(person[3]).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * @param tables number of copies of the table in the template
+     * @return the template with the given number of tables
+     */
+    static String template(int tables) {
+
+        final String template = readResource(".html");
+        final int start = template.indexOf(TABLE_START);
+        final int end = template.indexOf(TABLE_END) + TABLE_END.length();
+        return template.substring(0, start) + template.substring(start, end).repeat(tables) + template.substring(end);
+    }
+
+    /**
+     * @param kiloBytes approximate size of the CSS
+     * @return the CSS repeated to the given size or null for 0
+     */
+    static String css(int kiloBytes) {
+
+        if (kiloBytes == 0) {
+            return null;
+        }
+        final String css = readResource(".css");
+        return css.repeat(Math.max(1, kiloBytes * 1024 / css.length()));
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static String readResource(String extension) {
+
+        try (InputStream in = PersonsTableSample.class.getClassLoader().getResourceAsStream(RESOURCE_PATH + extension)) {
+            if (in == null) {
+                throw new IllegalStateException("Resource " + RESOURCE_PATH + extension + " not found!");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
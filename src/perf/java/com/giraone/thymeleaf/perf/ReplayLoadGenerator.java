@@ -0,0 +1,375 @@
+package com.giraone.thymeleaf.perf;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import com.giraone.thymeleaf.service.capture.CapturedRender;
+import com.giraone.thymeleaf.service.capture.RenderCaptureService;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays the render requests captured by {@link RenderCaptureService} at a configurable rate and concurrency and
+ * reports latency percentiles and error rates per endpoint, next to the captured values. The corpus is repeated
+ * until the duration has passed. Templates of registered template requests are registered first as
+ * {@code replay-<hash>}. With a rate, requests are sent on schedule and their latency is measured from the scheduled
+ * time, so a slow server is not hidden by fewer requests (coordinated omission). Options:
+ * <ul>
+ *     <li>{@code --spool <directory>} - the capture spool (required)</li>
+ *     <li>{@code --base-url http://host:port} - the instance under test, default is a locally started application</li>
+ *     <li>{@code --rate 0} - requests per second, 0 sends as fast as the concurrency allows</li>
+ *     <li>{@code --concurrency 4} - number of requests in flight</li>
+ *     <li>{@code --duration 60s} - duration of the replay</li>
+ *     <li>{@code --output target/replay-result.json} - the result</li>
+ * </ul>
+ */
+public final class ReplayLoadGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Pattern TEMPLATE_ID = Pattern.compile("^/api/templates/([^/]+)/");
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final String TOTAL = "total";
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final String baseUrl;
+    private final Path spool;
+
+    private ReplayLoadGenerator(String baseUrl, Path spool) {
+        this.baseUrl = baseUrl;
+        this.spool = spool;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        final Map<String, String> options = PdfThroughputSuite.parseOptions(args);
+        if (!options.containsKey("spool")) {
+            System.err.println("Usage: ReplayLoadGenerator --spool <directory> [--base-url <url>] [--rate <requests/s>]"
+                + " [--concurrency <n>] [--duration <duration>] [--output <file>]");
+            System.exit(2);
+        }
+        final Path spool = Path.of(options.get("spool"));
+        final double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        final int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "4"));
+        final Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "60s"));
+        final File output = new File(options.getOrDefault("output", "target/replay-result.json"));
+
+        final List<CapturedRender> corpus = readCorpus(spool);
+        if (corpus.isEmpty()) {
+            System.err.println("No replayable requests with template and data in " + spool.toAbsolutePath());
+            System.exit(2);
+        }
+        System.out.printf("Replaying %d captured requests from %s%n", corpus.size(), spool.toAbsolutePath());
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("base-url");
+        if (baseUrl == null) {
+            // No restart class loader of the devtools on the classpath
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            context = new SpringApplicationBuilder(TemplateProcessorApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--application.show-config-on-startup=false");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            final ReplayLoadGenerator generator = new ReplayLoadGenerator(baseUrl.replaceFirst("/$", ""), spool);
+            final List<Replay> replays = generator.prepare(corpus);
+            final Result result = generator.run(replays, rate, concurrency, duration);
+            System.out.printf("%-40s %8s %8s %10s %10s %10s %10s %12s %12s%n", "endpoint", "requests", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "max ms", "captured p50", "captured p99");
+            for (EndpointResult endpoint : result.endpoints()) {
+                System.out.printf("%-40s %8d %7.2f%% %10.2f %10.2f %10.2f %10.2f %12.2f %12.2f%n", endpoint.endpoint(),
+                    endpoint.requests(), endpoint.errorRate() * 100.0, endpoint.p50Millis(), endpoint.p90Millis(),
+                    endpoint.p99Millis(), endpoint.maxMillis(), endpoint.capturedP50Millis(), endpoint.capturedP99Millis());
+            }
+            if (output.getParentFile() != null) {
+                Files.createDirectories(output.getParentFile().toPath());
+            }
+            MAPPER.writeValue(output, result);
+            System.out.println("Result written to " + output.getAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static List<CapturedRender> readCorpus(Path spool) throws IOException {
+
+        final List<Path> spoolFiles;
+        try (Stream<Path> files = Files.list(spool)) {
+            spoolFiles = files.filter(file -> file.toString().endsWith(RenderCaptureService.SPOOL_FILE_SUFFIX)).sorted().toList();
+        }
+        final List<CapturedRender> corpus = new ArrayList<>();
+        for (Path spoolFile : spoolFiles) {
+            for (String line : Files.readAllLines(spoolFile)) {
+                final CapturedRender render = MAPPER.readValue(line, CapturedRender.class);
+                if (render.templateHash() != null && render.data() != null && Files.exists(templateFile(spool, render.templateHash(),
+                    RenderCaptureService.TEMPLATE_SUFFIX))) {
+                    corpus.add(render);
+                }
+            }
+        }
+        return corpus;
+    }
+
+    // Builds the requests once - registered templates are registered under their hash
+    private List<Replay> prepare(List<CapturedRender> corpus) throws IOException, InterruptedException {
+
+        final Set<String> registered = new HashSet<>();
+        final List<Replay> replays = new ArrayList<>();
+        for (CapturedRender render : corpus) {
+            final String template = Files.readString(templateFile(spool, render.templateHash(), RenderCaptureService.TEMPLATE_SUFFIX));
+            final Path cssFile = templateFile(spool, render.templateHash(), RenderCaptureService.CSS_SUFFIX);
+            final String css = Files.exists(cssFile) ? Files.readString(cssFile) : null;
+            final String dataContentType = render.dataContentType() != null ? render.dataContentType() : "application/json";
+
+            String path = render.path();
+            final Matcher matcher = TEMPLATE_ID.matcher(path);
+            if (matcher.find()) {
+                final String id = "replay-" + render.templateHash().substring(0, 12);
+                if (registered.add(id)) {
+                    register(id, template, css);
+                }
+                path = "/api/templates/" + id + "/" + path.substring(matcher.end());
+            }
+            // Registered templates have only one version in the replay
+            final String query = render.query() == null ? null : Arrays.stream(render.query().split("&"))
+                .filter(parameter -> !parameter.startsWith("version="))
+                .collect(Collectors.joining("&"));
+            final URI uri = URI.create(baseUrl + path + (query == null || query.isEmpty() ? "" : "?" + query));
+
+            final HttpRequest request;
+            if (render.multipart()) {
+                final Multipart multipart = new Multipart()
+                    .add("data", dataContentType, render.data())
+                    .add("template", "text/html", template);
+                if (css != null) {
+                    multipart.add("css", "text/css", css);
+                }
+                request = multipart.post(uri);
+            } else {
+                request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", dataContentType)
+                    .POST(HttpRequest.BodyPublishers.ofString(render.data(), StandardCharsets.UTF_8))
+                    .build();
+            }
+            replays.add(new Replay(render, request));
+        }
+        return replays;
+    }
+
+    private void register(String id, String template, String css) throws IOException, InterruptedException {
+
+        final Multipart multipart = new Multipart().add("template", "text/html", template);
+        if (css != null) {
+            multipart.add("css", "text/css", css);
+        }
+        final HttpResponse<String> response = client.send(multipart.put(URI.create(baseUrl + "/api/templates/" + id)),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("Cannot register template " + id + ": " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private Result run(List<Replay> replays, double rate, int concurrency, Duration duration) throws InterruptedException {
+
+        final Map<String, Stats> stats = new TreeMap<>();
+        stats.put(TOTAL, new Stats());
+        replays.forEach(replay -> stats.computeIfAbsent(replay.render().endpoint(), endpoint -> new Stats()));
+
+        final AtomicLong sequence = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final long start = System.nanoTime();
+        final long end = start + duration.toNanos();
+        for (int i = 0; i < concurrency; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        final long index = sequence.getAndIncrement();
+                        final long scheduled = rate > 0.0 ? start + (long) (index * 1_000_000_000.0 / rate) : System.nanoTime();
+                        if (scheduled >= end) {
+                            break;
+                        }
+                        while (System.nanoTime() < scheduled) {
+                            LockSupport.parkNanos(scheduled - System.nanoTime());
+                        }
+                        final Replay replay = replays.get((int) (index % replays.size()));
+                        boolean failed;
+                        try {
+                            failed = client.send(replay.request(), HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+                        } catch (IOException e) {
+                            failed = true;
+                        }
+                        final long latency = Math.min(System.nanoTime() - scheduled, MAX_LATENCY_NANOS);
+                        stats.get(TOTAL).record(latency, failed);
+                        stats.get(replay.render().endpoint()).record(latency, failed);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "replay-" + i);
+            thread.start();
+        }
+        done.await();
+        final double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        // The captured latencies and errors of the corpus for comparison
+        for (Replay replay : replays) {
+            final long captured = Math.min((long) (replay.render().durationMillis() * 1_000_000.0), MAX_LATENCY_NANOS);
+            final boolean failed = replay.render().status() >= 400;
+            stats.get(TOTAL).recordCaptured(captured, failed);
+            stats.get(replay.render().endpoint()).recordCaptured(captured, failed);
+        }
+        final List<EndpointResult> endpoints = stats.entrySet().stream()
+            .map(entry -> entry.getValue().result(entry.getKey(), elapsedSeconds))
+            .toList();
+        return new Result(Instant.now().toString(), baseUrl, spool.toAbsolutePath().toString(),
+            replays.size(), rate, concurrency, elapsedSeconds, endpoints);
+    }
+
+    private static Path templateFile(Path spool, String templateHash, String suffix) {
+        return spool.resolve(RenderCaptureService.TEMPLATES_DIRECTORY).resolve(templateHash + suffix);
+    }
+
+    private record Replay(CapturedRender render, HttpRequest request) {
+    }
+
+    private static final class Stats {
+
+        private final Recorder latencies = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final Histogram capturedLatencies = new Histogram(MAX_LATENCY_NANOS, 3);
+        private long capturedErrors;
+
+        void record(long latencyNanos, boolean failed) {
+            latencies.recordValue(latencyNanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void recordCaptured(long latencyNanos, boolean failed) {
+            capturedLatencies.recordValue(latencyNanos);
+            if (failed) {
+                capturedErrors++;
+            }
+        }
+
+        EndpointResult result(String endpoint, double elapsedSeconds) {
+
+            final Histogram histogram = latencies.getIntervalHistogram();
+            final long requests = histogram.getTotalCount();
+            final long captured = capturedLatencies.getTotalCount();
+            return new EndpointResult(endpoint, requests, requests / elapsedSeconds,
+                requests > 0 ? (double) errors.get() / requests : 0.0,
+                millis(histogram.getValueAtPercentile(50.0)), millis(histogram.getValueAtPercentile(90.0)),
+                millis(histogram.getValueAtPercentile(99.0)), millis(histogram.getMaxValue()),
+                millis(capturedLatencies.getValueAtPercentile(50.0)), millis(capturedLatencies.getValueAtPercentile(99.0)),
+                captured > 0 ? (double) capturedErrors / captured : 0.0);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Result of a replay.
+     *
+     * @param timestamp   start of the replay
+     * @param baseUrl     the instance under test
+     * @param spool       the spool directory
+     * @param corpusSize  number of replayable captured requests
+     * @param rate        requests per second or 0 for as fast as possible
+     * @param concurrency number of requests in flight
+     * @param seconds     duration of the replay
+     * @param endpoints   one entry per endpoint and one for all requests ("total")
+     */
+    public record Result(String timestamp, String baseUrl, String spool, int corpusSize, double rate, int concurrency,
+                         double seconds, List<EndpointResult> endpoints) {
+    }
+
+    public record EndpointResult(String endpoint, long requests, double requestsPerSecond, double errorRate,
+                                 double p50Millis, double p90Millis, double p99Millis, double maxMillis,
+                                 double capturedP50Millis, double capturedP99Millis, double capturedErrorRate) {
+    }
+
+    // A minimal multipart/form-data body, the JDK HTTP client has none
+    private static final class Multipart {
+
+        private final String boundary = "replay-" + UUID.randomUUID();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        Multipart add(String name, String contentType, String content) {
+            final String header = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + name + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+            body.writeBytes(header.getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(content.getBytes(StandardCharsets.UTF_8));
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        HttpRequest post(URI uri) {
+            return request(uri).POST(publisher()).build();
+        }
+
+        HttpRequest put(URI uri) {
+            return request(uri).PUT(publisher()).build();
+        }
+
+        private HttpRequest.Builder request(URI uri) {
+            return HttpRequest.newBuilder(uri).header("Content-Type", "multipart/form-data; boundary=" + boundary);
+        }
+
+        private HttpRequest.BodyPublisher publisher() {
+            final byte[] bytes = body.toByteArray();
+            final byte[] end = ("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+            final byte[] all = Arrays.copyOf(bytes, bytes.length + end.length);
+            System.arraycopy(end, 0, all, bytes.length, end.length);
+            return HttpRequest.BodyPublishers.ofByteArray(all);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.giraone.thymeleaf.perf;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.JsonToHtmlProcessorUsingStringTemplates;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link JsonToHtmlProcessorUsingStringTemplates#prepareTemplateWithContentAndData} for the
+ * {@code persons-table} sample, sweeping data size, template size, CSS size and the state of the template cache.
+ * With a cold cache, every invocation uses a new template, so the template is hashed and parsed each time.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TemplateProcessingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    /** Number of copies of the table in the template */
+    @Param({"1", "50"})
+    private int tables;
+
+    @Param({"0", "100"})
+    private int cssKiloBytes;
+
+    @Param({"warm", "cold"})
+    private String templateCache;
+
+    private JsonToHtmlProcessorUsingStringTemplates processor;
+    private Map<String, Object> data;
+    private String templateContent;
+    private String cssContent;
+    private long invocation;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        // Without Spring Boot, logback logs everything with DEBUG, which would be measured, too
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        processor = new JsonToHtmlProcessorUsingStringTemplates(applicationProperties, meterRegistry,
+            new RenderMetrics(applicationProperties, meterRegistry));
+        ReflectionTestUtils.invokeMethod(processor, "init");
+        data = JsonToHtmlProcessorUsingStringTemplates.convertDataJsonStringToMap(PersonsTableSample.dataJson(rows));
+        templateContent = PersonsTableSample.template(tables);
+        cssContent = PersonsTableSample.css(cssKiloBytes);
+    }
+
+    @Benchmark
+    public String prepareTemplateWithContentAndData() throws IOException {
+
+        final String template = "cold".equals(templateCache)
+            ? templateContent + "<!-- " + invocation++ + " -->"
+            : templateContent;
+        return processor.prepareTemplateWithContentAndDataForHtmlOutput(OutputStream.nullOutputStream(), data, template, cssContent);
+    }
+}
@@ -2,7 +2,9 @@ package com.giraone.thymeleaf.common;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +30,14 @@ public class JsonUtilTest {
         assertThat(resultJson).isEqualTo("{\"testKey\":\"testValue\"}");
     }
 
+    @Test
+    public void whenConvertObjectToJsonStringWithMaxLength_thenReceiveCutString() throws IOException {
+        Map<String, Object> map = Map.of("testKey", "testValue");
+
+        assertThat(JsonUtil.convertObjectToJsonString(map, 100)).isEqualTo("{\"testKey\":\"testValue\"}");
+        assertThat(JsonUtil.convertObjectToJsonString(map, 10)).isEqualTo("{\"testKey\"...");
+    }
+
     @Test
     public void whenConvertToJsonMap_thenReceiveMap() throws IOException {
         String jsonString = "{\"testKey\":\"testValue\"}";
@@ -52,4 +62,19 @@ public class JsonUtilTest {
         assertThat(resultList).isEqualTo(expectedListOfMaps);
     }
 
+    @Test
+    public void whenConvertToJsonMapOrListWithObject_thenReceiveMap() throws IOException {
+        String jsonString = "{\"testKey\":{\"nested\":[1,2]}}";
+
+        Object result = JsonUtil.convertToJsonMapOrList(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8)));
+        assertThat(result).isEqualTo(JsonUtil.convertToJsonMap(jsonString));
+    }
+
+    @Test
+    public void whenConvertToJsonMapOrListWithArray_thenReceiveListOfMaps() throws IOException {
+        String jsonString = " [{\"testKey\":\"testValue\"},{\"testKey\":\"testValue\"}]";
+
+        Object result = JsonUtil.convertToJsonMapOrList(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8)));
+        assertThat(result).isEqualTo(JsonUtil.convertToJsonList(jsonString));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.giraone.thymeleaf.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("squid:S100")
+public class LazyJsonMapTest {
+
+    private static final String JSON = "{\"s\":\"\\u00e4\\\"x\",\"i\":1,\"l\":12345678901,\"d\":1.5,\"b\":true,\"n\":null,"
+        + "\"o\":{\"a\":[1,{\"x\":\"y\"},[]],\"e\":{}},\"last\":\"end\"}";
+
+    @Test
+    public void whenConvertToLazyJsonMapOrList_thenEqualsEagerConversion() throws IOException {
+
+        Object result = JsonUtil.convertToLazyJsonMapOrList(JSON.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(result).isInstanceOf(LazyJsonMap.class);
+        assertThat(result).isEqualTo(JsonUtil.convertToJsonMap(JSON));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenAccessingNestedValues_thenViewsAreLazy() throws IOException {
+
+        Map<String, Object> result = (Map<String, Object>) JsonUtil.convertToLazyJsonMapOrList(JSON.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(result.get("o")).isInstanceOf(LazyJsonMap.class);
+        Map<String, Object> o = (Map<String, Object>) result.get("o");
+        assertThat(o.get("a")).isInstanceOf(LazyJsonList.class);
+        List<Object> a = (List<Object>) o.get("a");
+        assertThat(a).hasSize(3);
+        assertThat(((Map<String, Object>) a.get(1)).get("x")).isEqualTo("y");
+        assertThat(result.get("last")).isEqualTo("end");
+    }
+
+    @Test
+    public void whenTopLevelIsArray_thenReceiveLazyList() throws IOException {
+
+        Object result = JsonUtil.convertToLazyJsonMapOrList("[{\"k\":\"v\"},{\"k\":\"w\"}]".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(result).isInstanceOf(LazyJsonList.class);
+        assertThat(result).isEqualTo(List.of(Map.of("k", "v"), Map.of("k", "w")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenModifyingView_thenChangesAreVisible() throws IOException {
+
+        Map<String, Object> result = (Map<String, Object>) JsonUtil.convertToLazyJsonMapOrList(JSON.getBytes(StandardCharsets.UTF_8));
+
+        result.put("_static", Map.of("base", "x"));
+        result.remove("s");
+
+        assertThat(result).containsKey("_static").doesNotContainKey("s");
+    }
+
+    @Test
+    public void whenJsonIsInvalid_thenFailEarly() {
+
+        assertThatThrownBy(() -> JsonUtil.convertToLazyJsonMapOrList("{\"o\":{\"a\":[1,2}}".getBytes(StandardCharsets.UTF_8)))
+            .isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> JsonUtil.convertToLazyJsonMapOrList("\"text\"".getBytes(StandardCharsets.UTF_8)))
+            .isInstanceOf(JsonProcessingException.class);
+    }
+}
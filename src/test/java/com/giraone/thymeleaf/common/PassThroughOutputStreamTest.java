@@ -0,0 +1,44 @@
+package com.giraone.thymeleaf.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("squid:S100")
+public class PassThroughOutputStreamTest {
+
+    @Test
+    public void whenContentFitsLimit_thenItIsBufferedOnly() throws IOException {
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        PassThroughOutputStream out = new PassThroughOutputStream(5, () -> target);
+
+        out.write("abc".getBytes(StandardCharsets.UTF_8));
+        out.write('d');
+        out.write('e');
+
+        assertThat(out.isPassedThrough()).isFalse();
+        assertThat(out.toByteArray()).isEqualTo("abcde".getBytes(StandardCharsets.UTF_8));
+        assertThat(target.size()).isZero();
+    }
+
+    @Test
+    public void whenContentExceedsLimit_thenBufferAndRestArePassedThrough() throws IOException {
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        PassThroughOutputStream out = new PassThroughOutputStream(5, () -> target);
+
+        out.write("abc".getBytes(StandardCharsets.UTF_8));
+        out.write("def".getBytes(StandardCharsets.UTF_8));
+        out.write('g');
+
+        assertThat(out.isPassedThrough()).isTrue();
+        assertThat(target.toString(StandardCharsets.UTF_8)).isEqualTo("abcdefg");
+        assertThatThrownBy(out::toByteArray).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,171 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import com.giraone.thymeleaf.common.JsonUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SuppressWarnings("squid:S100") // Naming
+@SpringBootTest(classes = TemplateProcessorApplication.class)
+@AutoConfigureMockMvc
+class BatchRenderControllerIntTest {
+
+    private static final String TEMPLATE = "<div th:text=\"${name.toUpperCase()}\">X</div>";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void assertThat_ndjsonRecords_areRenderedIndependently() throws Exception {
+
+        // arrange - more records than max-records-in-flight, the record with index 2 has no name
+        String ndjson = IntStream.range(0, 200)
+            .mapToObj(i -> i == 2 ? "{\"other\":1}" : "{\"name\":\"n" + i + "\"}")
+            .collect(Collectors.joining("\n"));
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", BatchRenderController.MEDIA_TYPE_NDJSON, ndjson.getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, TEMPLATE.getBytes());
+
+        // act
+        MvcResult res = mockMvc.perform(multipart("/api/batch/json-to-html").file(dataFile).file(templateFile))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BatchRenderController.MEDIA_TYPE_NDJSON))
+            .andReturn();
+
+        // assert
+        List<BatchRenderResult> results = readResults(res);
+        assertThat(results).hasSize(200);
+        assertThat(results.get(0)).isEqualTo(new BatchRenderResult(0, "<div>N0</div>", null));
+        assertThat(results.get(2).html()).isNull();
+        assertThat(results.get(2).error()).contains("Template Input Exception");
+        assertThat(results.get(199)).isEqualTo(new BatchRenderResult(199, "<div>N199</div>", null));
+    }
+
+    @Test
+    void assertThat_jsonArray_isRenderedWithRegisteredTemplate() throws Exception {
+
+        // arrange
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, TEMPLATE.getBytes());
+        mockMvc.perform(multipart(HttpMethod.PUT, "/api/templates/{id}", "batch").file(templateFile))
+            .andExpect(status().isCreated());
+
+        // act
+        MvcResult res = mockMvc.perform(post("/api/templates/batch/batch/html")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\":\"a\"},{\"name\":\"b\"}]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // assert
+        assertThat(readResults(res)).containsExactly(
+            new BatchRenderResult(0, "<div>A</div>", null),
+            new BatchRenderResult(1, "<div>B</div>", null));
+    }
+
+    @Test
+    void assertThat_unparsableTemplate_isRejected() throws Exception {
+
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", BatchRenderController.MEDIA_TYPE_NDJSON, "{}".getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE,
+            "<div th:text=\"${name}>X</div>".getBytes());
+
+        mockMvc.perform(multipart("/api/batch/json-to-html").file(dataFile).file(templateFile))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void assertThat_pdfBatch_isStreamedAsZip() throws Exception {
+
+        // arrange - two records with the same name and one record without a name
+        String ndjson = "{\"person\":{\"id\":\"4711/A\"},\"name\":\"a\"}\n"
+            + "{\"person\":{\"id\":\"4711/A\"},\"name\":\"b\"}\n"
+            + "{\"name\":\"c\"}\n";
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", BatchRenderController.MEDIA_TYPE_NDJSON, ndjson.getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE,
+            ("<html><body>" + TEMPLATE + "</body></html>").getBytes());
+
+        // act
+        MvcResult res = mockMvc.perform(multipart("/api/batch/json-to-pdf")
+                .file(dataFile)
+                .file(templateFile)
+                .param(BatchRenderController.PARAM_entryNameField, "person.id"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BatchRenderController.MEDIA_TYPE_ZIP))
+            .andReturn();
+
+        // assert
+        Map<String, byte[]> entries = new HashMap<>();
+        Set<Integer> methods = new HashSet<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(res.getResponse().getContentAsByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+                methods.add(entry.getMethod());
+            }
+        }
+        assertThat(entries).hasSize(3);
+        // PDFs are already compressed
+        assertThat(methods).containsExactly(ZipEntry.STORED);
+        assertThat(entries).containsKey("record-2.pdf");
+        assertThat(entries.keySet()).anyMatch(name -> name.equals("4711_A.pdf"));
+        assertThat(entries.keySet()).anyMatch(name -> name.equals("4711_A-0.pdf") || name.equals("4711_A-1.pdf"));
+        assertThat(entries.values()).allMatch(pdf -> new String(pdf, 0, 4, StandardCharsets.ISO_8859_1).equals("%PDF"));
+    }
+
+    @Test
+    void assertThat_uniqueEntryName_neverReturnsUsedNames() {
+
+        // arrange - a record named like a suffixed duplicate and a record named like a record without a name
+        Set<String> entryNames = new HashSet<>();
+        List<String> names = new ArrayList<>();
+
+        // act
+        names.add(BatchRenderController.uniqueEntryName("a-3", 0, entryNames));
+        names.add(BatchRenderController.uniqueEntryName("record-5", 1, entryNames));
+        names.add(BatchRenderController.uniqueEntryName("a", 2, entryNames));
+        names.add(BatchRenderController.uniqueEntryName("a", 3, entryNames));
+        names.add(BatchRenderController.uniqueEntryName(null, 5, entryNames));
+
+        // assert
+        assertThat(names).containsExactly("a-3", "record-5", "a", "a-4", "record-5-5");
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static List<BatchRenderResult> readResults(MvcResult res) throws IOException {
+
+        final List<BatchRenderResult> results = new ArrayList<>();
+        for (String line : res.getResponse().getContentAsString().split("\n")) {
+            results.add(JsonUtil.convert(line, BatchRenderResult.class));
+        }
+        results.sort(Comparator.comparing(BatchRenderResult::index));
+        return results;
+    }
+}
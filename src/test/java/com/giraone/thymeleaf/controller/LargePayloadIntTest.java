@@ -0,0 +1,148 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import com.giraone.thymeleaf.testdata.SchemaDataGenerator;
+import org.apache.catalina.core.ApplicationPart;
+import org.apache.tomcat.util.http.fileupload.disk.DiskFileItem;
+import org.apache.tomcat.util.http.fileupload.util.FileItemHeadersImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.support.StandardMultipartHttpServletRequest;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SuppressWarnings("squid:S100") // Naming
+@SpringBootTest(classes = TemplateProcessorApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("large-payload")
+class LargePayloadIntTest {
+
+    private static final Path PERSONS = Path.of("src/test/resources/testdata/input/persons-table");
+
+    @TempDir
+    static Path spillDirectory;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MultipartDataReader multipartDataReader;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("application.large-payload.threshold", () -> "1KB");
+        registry.add("application.large-payload.directory", () -> spillDirectory.toString());
+    }
+
+    @Test
+    void assertThat_largeData_isReadFromSpillFile() throws Exception {
+
+        // arrange
+        byte[] data = SchemaDataGenerator.of(PERSONS.resolve("persons-schema.json")).withRows(2000).generate();
+
+        // act
+        MvcResult res = mockMvc.perform(multipart("/api/json-to-html")
+                .file(new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, data))
+                .file(new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, Files.readAllBytes(PERSONS.resolve("persons.html")))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // assert
+        assertThat(res.getResponse().getContentAsString().split("<tr>", -1)).hasSizeGreaterThan(2000);
+        assertThat(spillFiles()).isZero();
+    }
+
+    @Test
+    void assertThat_invalidLargeData_isRejected() throws Exception {
+
+        // arrange
+        byte[] data = ("{\"groupName\":\"" + "x".repeat(2000) + "\",\"list\":[}").getBytes();
+
+        // act
+        MvcResult res = mockMvc.perform(multipart("/api/json-to-html")
+                .file(new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, data))
+                .file(new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, "<div>X</div>".getBytes())))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+        // assert
+        assertThat(res.getResponse().getErrorMessage()).contains("JSON Parsing Exception").contains(data.length + " bytes");
+        assertThat(spillFiles()).isZero();
+    }
+
+    @Test
+    void assertThat_partOnDisk_isMovedToSpillFile(@TempDir Path multipartLocation) throws Exception {
+
+        // arrange - a part, that the servlet container has written to disk
+        byte[] data = SchemaDataGenerator.of(PERSONS.resolve("persons-schema.json")).withRows(2000).generate();
+        DiskFileItem item = new DiskFileItem("data", MediaType.APPLICATION_JSON_VALUE, false, "data.json", 0, multipartLocation.toFile());
+        try (OutputStream out = item.getOutputStream()) {
+            out.write(data);
+        }
+        FileItemHeadersImpl headers = new FileItemHeadersImpl();
+        headers.addHeader(HttpHeaders.CONTENT_DISPOSITION, "form-data; name=\"data\"; filename=\"data.json\"");
+        item.setHeaders(headers);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/json-to-html");
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE);
+        request.addPart(new ApplicationPart(item, multipartLocation.toFile()));
+        MultipartFile dataFile = new StandardMultipartHttpServletRequest(request).getFile("data");
+        assertThat(dataFile).isNotNull();
+
+        // act
+        Map<String, Object> dataMap = multipartDataReader.readData(dataFile);
+
+        // assert
+        assertThat((List<?>) dataMap.get("list")).hasSize(2000);
+        assertThat(item.getStoreLocation()).doesNotExist();
+        assertThat(spillFiles()).isZero();
+    }
+
+    @Test
+    void assertThat_templateErrorWithLargeData_doesNotEchoAllData() throws Exception {
+
+        // arrange
+        byte[] data = SchemaDataGenerator.of(PERSONS.resolve("persons-schema.json")).withRows(2000).generate();
+        assertThat(data.length).isGreaterThan(128 * 1024);
+
+        // act
+        MvcResult res = mockMvc.perform(multipart("/api/json-to-html")
+                .file(new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, data))
+                .file(new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, "<div th:text=\"${missing.something}\">X</div>".getBytes())))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+        // assert
+        assertThat(res.getResponse().getContentAsString()).contains("Template Input Exception").contains("...</pre>")
+            .hasSizeLessThan(128 * 1024);
+        assertThat(spillFiles()).isZero();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static long spillFiles() throws Exception {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+}
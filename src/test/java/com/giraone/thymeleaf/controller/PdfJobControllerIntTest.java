@@ -0,0 +1,103 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SuppressWarnings("squid:S100") // Naming
+@SpringBootTest(classes = TemplateProcessorApplication.class)
+@AutoConfigureMockMvc
+class PdfJobControllerIntTest {
+
+    private static final String TEMPLATE = "<html><body><div th:text=\"${name.toUpperCase()}\">X</div></body></html>";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void assertThat_submittedJob_canBeDownloaded() throws Exception {
+
+        // act
+        String location = submit("{\"name\":\"job\"}");
+        String status = waitForEnd(location);
+
+        // assert
+        assertThat(status).isEqualTo("DONE");
+        MvcResult res = mockMvc.perform(get(location + "/pdf"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+            .andReturn();
+        assertThat(res.getResponse().getContentAsString()).startsWith("%PDF");
+
+        mockMvc.perform(delete(location))
+            .andExpect(status().isNoContent());
+        mockMvc.perform(get(location))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void assertThat_failedJob_returnsError() throws Exception {
+
+        // act
+        String location = submit("{\"other\":\"job\"}");
+        String status = waitForEnd(location);
+
+        // assert
+        assertThat(status).isEqualTo("FAILED");
+        MvcResult res = mockMvc.perform(get(location + "/pdf"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+        assertThat(res.getResponse().getContentAsString()).contains("Template Input Exception");
+    }
+
+    @Test
+    void assertThat_unknownJob_isNotFound() throws Exception {
+
+        mockMvc.perform(get("/api/jobs/unknown"))
+            .andExpect(status().isNotFound());
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private String submit(String dataJson) throws Exception {
+
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, dataJson.getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, TEMPLATE.getBytes());
+        MvcResult res = mockMvc.perform(multipart("/api/jobs/json-to-pdf").file(dataFile).file(templateFile))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists(HttpHeaders.LOCATION))
+            .andReturn();
+        return res.getResponse().getHeader(HttpHeaders.LOCATION);
+    }
+
+    private String waitForEnd(String location) throws Exception {
+
+        for (int i = 0; i < 300; i++) {
+            MvcResult res = mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andReturn();
+            String status = JsonPath.read(res.getResponse().getContentAsString(), "$.status");
+            if (status.equals("DONE") || status.equals("FAILED")) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Job " + location + " did not finish in time!");
+    }
+}
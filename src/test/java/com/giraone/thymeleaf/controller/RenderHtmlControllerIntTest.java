@@ -101,6 +101,46 @@ public class RenderHtmlControllerIntTest {
         assertThat(contentAsString).isEqualTo(expectedHtml);
     }
 
+    @Test
+    public void renderToHtmlByMultipartRequest_UsingTopLevelArray() throws Exception {
+
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, "[{\"s\":\"A\"},{\"s\":\"B\"}]".getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE,
+            "<div th:each=\"item : ${list}\" th:text=\"${item.s}\">X</div>".getBytes());
+
+        // act
+        MvcResult res = mockMvc.perform(
+            multipart(URL)
+                .file(dataFile)
+                .file(templateFile)
+                .characterEncoding("UTF-8"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // assert
+        assertThat(res.getResponse().getContentAsString()).isEqualTo("<div>A</div><div>B</div>");
+    }
+
+    @Test
+    public void renderToHtmlByMultipartRequest_WithInvalidJson() throws Exception {
+
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, "{\"s\":".getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE,
+            "<div th:text=\"${s}\">X</div>".getBytes());
+
+        // act
+        MvcResult res = mockMvc.perform(
+            multipart(URL)
+                .file(dataFile)
+                .file(templateFile)
+                .characterEncoding("UTF-8"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+        // assert
+        assertThat(res.getResponse().getErrorMessage()).contains("JSON Parsing Exception").contains("{&quot;s&quot;:");
+    }
+
     @Test
     public void renderToHtmlByMultipartRequest_UsingTestFiles() throws Exception {
 
@@ -170,6 +210,34 @@ public class RenderHtmlControllerIntTest {
         assertThat(contentAsString).contains("Template Input Exception");
     }
 
+    @Test
+    public void renderToHtmlByMultipartRequest_WithErrorAfterResponseIsCommitted() throws Exception {
+
+        // arrange - more output than the 64KB response buffer before the processing error occurs
+        String dataJson = "{\"lines\":20000}";
+        String template = "<div th:each=\"i : ${#numbers.sequence(1, lines)}\" th:text=\"${i}\">X</div>"
+            + "<div th:text=\"${missing.something}\">X</div>";
+
+        MockMultipartFile dataFile = new MockMultipartFile("data", "data", MediaType.APPLICATION_JSON_VALUE, dataJson.getBytes());
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, template.getBytes());
+
+        // act
+        MvcResult res = mockMvc.perform(
+            multipart(URL)
+                .file(dataFile)
+                .file(templateFile)
+                .characterEncoding("UTF-8"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/html;charset=UTF-8"))
+            .andReturn();
+
+        // assert
+        String contentAsString = res.getResponse().getContentAsString();
+        assertThat(contentAsString).startsWith("<div>1</div>");
+        // the complete output before the error is sent - nothing is left in the buffer of the writer
+        assertThat(contentAsString).contains("<div>20000</div><hr /><h3>Template Input Exception:</h3>");
+    }
+
     //------------------------------------------------------------------------------------------------------------------
 
     private static String alignPlatformSpecificProperties(String content) {
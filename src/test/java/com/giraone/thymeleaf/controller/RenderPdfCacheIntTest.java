@@ -0,0 +1,70 @@
+package com.giraone.thymeleaf.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SuppressWarnings("squid:S100") // Naming
+@SpringBootTest(properties = "application.pdf-render-cache.enabled=true")
+@AutoConfigureMockMvc
+class RenderPdfCacheIntTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void assertThat_sameInputs_areAnsweredFromRenderCache() throws Exception {
+
+        // arrange
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE,
+            "<html><body><div th:text=\"${name}\">X</div></body></html>".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(MockMvcRequestBuilders.multipart(HttpMethod.PUT, "/api/templates/{id}", "cached-pdf").file(templateFile))
+            .andExpect(status().isCreated());
+
+        // act
+        MvcResult first = mockMvc.perform(post("/api/templates/cached-pdf/pdf")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"cached\"}"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        MvcResult second = mockMvc.perform(post("/api/templates/cached-pdf/pdf")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"cached\"}"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andReturn();
+
+        // assert
+        assertThat(second.getResponse().getContentAsByteArray()).isEqualTo(first.getResponse().getContentAsByteArray());
+        mockMvc.perform(post("/api/templates/cached-pdf/pdf")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"cached\"}"))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(post("/api/templates/cached-pdf/pdf")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"other\"}"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+}
@@ -0,0 +1,56 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.Part;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class RenderTimingFilterTest {
+
+    @Test
+    void assertThat_endpointTag_isBoundToKnownEndpoints() {
+
+        assertThat(RenderTimingFilter.endpointOf("/api/json-to-pdf")).isEqualTo("/api/json-to-pdf");
+        assertThat(RenderTimingFilter.endpointOf("/api/templates/invoice/html")).isEqualTo("/api/templates/{id}/html");
+        assertThat(RenderTimingFilter.endpointOf("/api/templates/invoice/batch/pdf")).isEqualTo("/api/templates/{id}/batch/pdf");
+        assertThat(RenderTimingFilter.endpointOf("/api/json-to-pdf/x")).isEqualTo(RenderTimingFilter.OTHER_ENDPOINT);
+        assertThat(RenderTimingFilter.endpointOf("/api/random-4711")).isEqualTo(RenderTimingFilter.OTHER_ENDPOINT);
+    }
+
+    @Test
+    void assertThat_failedMultipartParsing_isLeftToDispatch() throws Exception {
+
+        // arrange - a request exceeding the size limits
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RenderTimingFilter filter = new RenderTimingFilter(new RenderMetrics(new ApplicationProperties(), meterRegistry),
+            new ApplicationProperties());
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/json-to-html");
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=x");
+        HttpServletRequestWrapper tooLarge = new HttpServletRequestWrapper(request) {
+            @Override
+            public Collection<Part> getParts() {
+                throw new IllegalStateException("The field data exceeds its maximum permitted size");
+            }
+        };
+        MockFilterChain chain = new MockFilterChain();
+
+        // act
+        filter.doFilter(tooLarge, new MockHttpServletResponse(), chain);
+
+        // assert
+        assertThat(chain.getRequest()).isSameAs(tooLarge);
+        assertThat(meterRegistry.find(RenderMetrics.STAGE_TIMER).tag("stage", "multipart").timer()).isNull();
+    }
+}
@@ -0,0 +1,39 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class ServerTimingResponseWrapperTest {
+
+    private final RenderMetrics renderMetrics = new RenderMetrics(new ApplicationProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void assertThat_header_containsStagesUntilCommit() throws Exception {
+
+        // arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RenderMetrics.Tags tags = new RenderMetrics.Tags("/api/json-to-html", null);
+        ServerTimingResponseWrapper wrapper = new ServerTimingResponseWrapper(response, tags);
+
+        // act
+        try (RenderMetrics.Scope ignored = RenderMetrics.open(tags)) {
+            renderMetrics.record(RenderMetrics.Stage.JSON, 2_000_000L, -1L, -1L);
+            wrapper.getOutputStream().write(1);
+            renderMetrics.record(RenderMetrics.Stage.THYMELEAF, 3_000_000L, -1L, -1L);
+            wrapper.getOutputStream().write(2);
+            wrapper.flushBuffer();
+            renderMetrics.record(RenderMetrics.Stage.RESPONSE_WRITE, 1_000_000L, -1L, -1L);
+            wrapper.updateHeader();
+        }
+
+        // assert - the last stage ended after the commit
+        assertThat(response.getHeader(ServerTimingResponseWrapper.SERVER_TIMING))
+            .isEqualTo("json;dur=2.0, thymeleaf;dur=3.0");
+    }
+}
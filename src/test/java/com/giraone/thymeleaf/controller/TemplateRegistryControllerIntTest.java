@@ -0,0 +1,149 @@
+package com.giraone.thymeleaf.controller;
+
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SuppressWarnings("squid:S100") // Naming
+@SpringBootTest(classes = TemplateProcessorApplication.class)
+@AutoConfigureMockMvc
+class TemplateRegistryControllerIntTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void assertThat_registeredTemplate_isRenderedById() throws Exception {
+
+        // arrange
+        register("letter", "<head><style></style></head><div th:text=\"${name}\">X</div>", "div { color: red }")
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.id").value("letter"))
+            .andExpect(jsonPath("$.version").value(1));
+        register("letter", "<head><style></style></head><p th:text=\"${name}\">X</p>", null)
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.version").value(2));
+
+        // act/assert
+        mockMvc.perform(post("/api/templates/letter/html")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Latest\"}"))
+            .andExpect(status().isOk())
+            .andExpect(content().string("<head><style></style></head><p>Latest</p>"));
+        mockMvc.perform(post("/api/templates/letter/html?version=1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"First\"}"))
+            .andExpect(status().isOk())
+            .andExpect(content().string("<head><style>div { color: red }</style></head><div>First</div>"));
+        mockMvc.perform(get("/api/templates/letter"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(delete("/api/templates/letter"))
+            .andExpect(status().isNoContent());
+        mockMvc.perform(post("/api/templates/letter/html")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Gone\"}"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void assertThat_sameContent_doesNotCreateNewVersion() throws Exception {
+
+        register("same", "<div th:text=\"${name}\">X</div>", null)
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.version").value(1));
+        register("same", "<div th:text=\"${name}\">X</div>", null)
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void assertThat_invalidTemplateId_isRejected() throws Exception {
+
+        register("not valid!", "<div></div>", null)
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void assertThat_unparsableTemplate_isRejected() throws Exception {
+
+        register("broken", "<div th:text=\"${name}>X</div>", null)
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(containsString("cannot be parsed")));
+    }
+
+    @Test
+    void assertThat_templateWithInvalidExpression_isRejected() throws Exception {
+
+        register("invalid-expression", "<div th:text=\"${name.}\">X</div>", null)
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(containsString("Invalid expression \"${name.}\"")));
+        register("invalid-inline", "<div>[[${name + }]]</div>", null)
+            .andExpect(status().isBadRequest());
+        register("invalid-standard", "<div th:if=\"${a} ${b}\">X</div>", null)
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void assertThat_templateWithExpressions_isRegisteredWithoutRendering() throws Exception {
+
+        register("valid-expressions", "<ul th:with=\"n=${#lists.size(items)}\"><li th:each=\"item : ${items}\""
+            + " th:classappend=\"${item.done} ? 'done'\" th:text=\"|${item.name} (${n})|\">X</li></ul>"
+            + "<a th:href=\"@{/x(id=${id})}\" th:if=\"${map['a']?.c != null}\">[[${name}]]</a>", null)
+            .andExpect(status().isCreated());
+    }
+
+    @Test
+    void assertThat_invalidJsonBody_isEchoedEscapedAndCut() throws Exception {
+
+        // arrange
+        register("echo", "<div th:text=\"${name}\">X</div>", null)
+            .andExpect(status().isCreated());
+        String body = "{\"name\":\"<script>alert(1)</script>" + "x".repeat(100_000) + "\"";
+
+        // act
+        MvcResult res = mockMvc.perform(post("/api/templates/echo/html")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+        // assert
+        assertThat(res.getResponse().getErrorMessage())
+            .contains("&lt;script&gt;alert(1)&lt;/script&gt;")
+            .doesNotContain("<script>")
+            .contains("... (" + body.length() + " bytes)")
+            .hasSizeLessThan(70 * 1024);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private ResultActions register(String id, String template, String css) throws Exception {
+
+        MockMultipartFile templateFile = new MockMultipartFile("template", "template", MediaType.TEXT_HTML_VALUE, template.getBytes());
+        var builder = multipart(HttpMethod.PUT, "/api/templates/{id}", id).file(templateFile);
+        if (css != null) {
+            builder.file(new MockMultipartFile("css", "css", "text/css", css.getBytes()));
+        }
+        return mockMvc.perform(builder);
+    }
+}
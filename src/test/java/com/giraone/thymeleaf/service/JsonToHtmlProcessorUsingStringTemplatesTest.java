@@ -0,0 +1,78 @@
+package com.giraone.thymeleaf.service;
+
+import com.giraone.thymeleaf.TemplateProcessorApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+@SpringBootTest(classes = TemplateProcessorApplication.class)
+class JsonToHtmlProcessorUsingStringTemplatesTest {
+
+    @Autowired
+    JsonToHtmlProcessorUsingStringTemplates processor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void assertThat_sameTemplateAndCss_isParsedOnlyOnce() throws IOException {
+
+        // arrange
+        String template = "<head><style></style></head><div th:text=\"${name}\">X</div><!-- cache-test-1 -->";
+        double hitsBefore = cacheGets("hit");
+        double missesBefore = cacheGets("miss");
+
+        // act
+        String html1 = render(template, "div { color: red }", "A");
+        String html2 = render(template, "div { color: red }", "B");
+
+        // assert
+        assertThat(html1).isEqualTo("<head><style>div { color: red }</style></head><div>A</div><!-- cache-test-1 -->");
+        assertThat(html2).isEqualTo("<head><style>div { color: red }</style></head><div>B</div><!-- cache-test-1 -->");
+        assertThat(cacheGets("miss") - missesBefore).isEqualTo(1.0);
+        assertThat(cacheGets("hit") - hitsBefore).isEqualTo(1.0);
+    }
+
+    @Test
+    void assertThat_differentCss_isNotTakenFromCache() throws IOException {
+
+        // arrange
+        String template = "<head><style></style></head><div th:text=\"${name}\">X</div><!-- cache-test-2 -->";
+        double missesBefore = cacheGets("miss");
+
+        // act
+        String html1 = render(template, "div { color: red }", "A");
+        String html2 = render(template, "div { color: blue }", "A");
+
+        // assert
+        assertThat(html1).contains("color: red");
+        assertThat(html2).contains("color: blue");
+        assertThat(cacheGets("miss") - missesBefore).isEqualTo(2.0);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private String render(String template, String css, String name) throws IOException {
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String error = processor.prepareTemplateWithContentAndDataForHtmlOutput(out, data, template, css);
+        assertThat(error).isNull();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "thymeleaf.templates").tag("result", result).functionCounter().count();
+    }
+}
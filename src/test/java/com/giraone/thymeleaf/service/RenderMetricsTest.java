@@ -0,0 +1,104 @@
+package com.giraone.thymeleaf.service;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class RenderMetricsTest {
+
+    @Test
+    void assertThat_stages_areTaggedWithEndpointAndTemplate() throws Exception {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RenderMetrics renderMetrics = new RenderMetrics(new ApplicationProperties(), meterRegistry);
+
+        // act
+        try (RenderMetrics.Scope ignored = RenderMetrics.open("/api/templates/{id}/pdf")) {
+            RenderMetrics.tagTemplateId("invoice");
+            renderMetrics.record(RenderMetrics.Stage.PD4ML_WRITE, 1_000_000L, -1L, -1L);
+            // on a worker thread with the tags of the request
+            final RenderMetrics.Tags tags = RenderMetrics.currentTags();
+            CompletableFuture.runAsync(() -> {
+                try (RenderMetrics.Scope ignored2 = RenderMetrics.open(tags)) {
+                    renderMetrics.recordSize(RenderMetrics.Size.PDF, 4711);
+                }
+            }).get();
+        }
+        renderMetrics.record(RenderMetrics.Stage.JSON, 1_000_000L, -1L, -1L);
+
+        // assert
+        Timer timer = meterRegistry.get(RenderMetrics.STAGE_TIMER)
+            .tags("stage", "pd4ml.write", RenderMetrics.TAG_ENDPOINT, "/api/templates/{id}/pdf", RenderMetrics.TAG_TEMPLATE, "invoice")
+            .timer();
+        assertThat(timer.count()).isEqualTo(1L);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(1.0);
+        assertThat(meterRegistry.get(RenderMetrics.SIZE_SUMMARY)
+            .tags("kind", "pdf", RenderMetrics.TAG_TEMPLATE, "invoice").summary().totalAmount()).isEqualTo(4711.0);
+        assertThat(meterRegistry.get(RenderMetrics.STAGE_TIMER)
+            .tags("stage", "json", RenderMetrics.TAG_ENDPOINT, RenderMetrics.UNKNOWN).timer().count()).isEqualTo(1L);
+        assertThat(RenderMetrics.currentTags()).isNull();
+    }
+
+    @Test
+    void assertThat_cpuTimeAndAllocation_areRecordedPerStage() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RenderMetrics renderMetrics = new RenderMetrics(new ApplicationProperties(), meterRegistry);
+        RenderMetrics.Tags tags = new RenderMetrics.Tags("/api/json-to-html", "t");
+
+        // act
+        try (RenderMetrics.Scope ignored = RenderMetrics.open(tags)) {
+            RenderMetrics.Sample start = renderMetrics.start();
+            byte[][] garbage = new byte[100][];
+            for (int i = 0; i < garbage.length; i++) {
+                garbage[i] = new byte[10_000];
+            }
+            renderMetrics.stop(RenderMetrics.Stage.THYMELEAF, start);
+            assertThat(garbage[99]).hasSize(10_000);
+            renderMetrics.record(RenderMetrics.Stage.JSON, 1_500_000L, 1_000_000L, 2048L);
+        }
+
+        // assert
+        assertThat(meterRegistry.get(RenderMetrics.STAGE_ALLOCATION_SUMMARY).tag("stage", "thymeleaf").summary().totalAmount())
+            .isGreaterThanOrEqualTo(1_000_000.0);
+        assertThat(meterRegistry.get(RenderMetrics.STAGE_CPU_TIMER).tag("stage", "thymeleaf").timer().count()).isEqualTo(1L);
+        assertThat(tags.serverTiming())
+            .startsWith("json;dur=1.5;desc=\"cpu=1.0ms alloc=2KB\", thymeleaf;dur=")
+            .contains("alloc=");
+    }
+
+    @Test
+    void assertThat_templateTags_areLimited() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(RenderMetrics.templateTagLimit(2));
+        RenderMetrics renderMetrics = new RenderMetrics(new ApplicationProperties(), meterRegistry);
+
+        // act
+        for (String template : new String[]{"a", "b", "c", "d", "a"}) {
+            try (RenderMetrics.Scope ignored = RenderMetrics.open(new RenderMetrics.Tags("/api/json-to-pdf", template))) {
+                renderMetrics.record(RenderMetrics.Stage.THYMELEAF, 1L, -1L, -1L);
+            }
+        }
+
+        // assert
+        assertThat(meterRegistry.get(RenderMetrics.STAGE_TIMER).timers())
+            .extracting(timer -> timer.getId().getTag(RenderMetrics.TAG_TEMPLATE))
+            .containsExactlyInAnyOrder("a", "b", RenderMetrics.OTHER);
+        assertThat(meterRegistry.get(RenderMetrics.STAGE_TIMER).tag(RenderMetrics.TAG_TEMPLATE, RenderMetrics.OTHER).timer().count())
+            .isEqualTo(2L);
+        assertThat(meterRegistry.get(RenderMetrics.STAGE_TIMER).tag(RenderMetrics.TAG_TEMPLATE, "a").timer().count())
+            .isEqualTo(2L);
+    }
+}
@@ -0,0 +1,134 @@
+package com.giraone.thymeleaf.service.asset;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class AssetPrefetcherTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            if (path.equals("/slow.png")) {
+                try {
+                    Thread.sleep(2000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            final byte[] body = path.equals("/style.css")
+                ? "body { background: url('bg.png'); }".getBytes(StandardCharsets.UTF_8)
+                : path.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", path.endsWith(".css") ? "text/css" : "image/png");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void assertThat_assetsOfDocumentAndStylesheet_arePrefetched() throws IOException {
+
+        // arrange
+        String html = "<html><head><link rel=\"stylesheet\" HREF='style.css'></head>"
+            + "<body><img src=\"a.png\"><img src = b.png><a href=\"#top\">x</a><img src=\"data:image/png;base64,AA==\"></body></html>";
+        ByteArrayInputStream in = new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+        AssetPrefetcher prefetcher = prefetcher(Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+        // act
+        Map<String, CachedAsset> assets = prefetcher.prefetch(in, new URL(baseUrl));
+
+        // assert
+        assertThat(assets).containsOnlyKeys(baseUrl + "style.css", baseUrl + "a.png", baseUrl + "b.png", baseUrl + "bg.png");
+        assertThat(new String(assets.get(baseUrl + "bg.png").content(), StandardCharsets.UTF_8)).isEqualTo("/bg.png");
+        assertThat(in.available()).isEqualTo(html.length());
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void assertThat_slowAsset_isReplacedByErrorImage() throws IOException {
+
+        // arrange
+        String html = "<img src=\"slow.png\"><img src=\"fast.png\">";
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AssetPrefetcher prefetcher = prefetcher(Duration.ofMillis(500), meterRegistry);
+
+        // act
+        Map<String, CachedAsset> assets = prefetcher.prefetch(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), new URL(baseUrl));
+
+        // assert
+        assertThat(assets.get(baseUrl + "slow.png").contentType()).isEqualTo("image/png");
+        assertThat(assets.get(baseUrl + "slow.png").content()).startsWith(0x89, 'P', 'N', 'G');
+        assertThat(new String(assets.get(baseUrl + "fast.png").content(), StandardCharsets.UTF_8)).isEqualTo("/fast.png");
+        assertThat(meterRegistry.get("pdf.assets.prefetch.failed").counter().count()).isEqualTo(1.0);
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void assertThat_scanner_findsAttributesAndCssUrls() throws IOException {
+
+        List<String> urls = new ArrayList<>();
+        AssetUrlScanner.scan(new ByteArrayInputStream(
+            "<img\nsrc=\"ä.png\" title=\"src=x\"><div style=\"background:url( 'c.png' )\"></div><p>href is text</p>"
+                .getBytes(StandardCharsets.UTF_8)), urls::add);
+
+        assertThat(urls).containsExactly("ä.png", "c.png");
+    }
+
+    @Test
+    void assertThat_scanner_ignoresUrlsNotLoadedByPd4ml() throws IOException {
+
+        List<String> urls = new ArrayList<>();
+        AssetUrlScanner.scan(new ByteArrayInputStream(
+            ("<link href=\"a.css\" rel=\"stylesheet\"><link rel=icon href=favicon.ico><LINK REL=\"alternate stylesheet\" href=b.css>"
+                + "<script src=\"a.js\"></script><a href=\"page.html\">x</a><input type=\"image\" src=\"button.png\">")
+                .getBytes(StandardCharsets.UTF_8)), urls::add);
+
+        assertThat(urls).containsExactly("a.css", "b.css", "button.png");
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static AssetPrefetcher prefetcher(Duration timeout, MeterRegistry meterRegistry) {
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPdfAssetPrefetch().setTimeout(timeout);
+        SvgRasterizer svgRasterizer = new SvgRasterizer(applicationProperties, meterRegistry);
+        return new AssetPrefetcher(applicationProperties, new PdfAssetCache(applicationProperties, svgRasterizer, meterRegistry), meterRegistry);
+    }
+}
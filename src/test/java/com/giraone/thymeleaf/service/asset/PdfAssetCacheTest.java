@@ -0,0 +1,166 @@
+package com.giraone.thymeleaf.service.asset;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("squid:S100") // Naming
+class PdfAssetCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logo.png", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                fullResponses.incrementAndGet();
+                final byte[] body = "logo".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.getResponseHeaders().add("Content-Type", "image/png");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void assertThat_urlsResolvedAgainstBaseUrl_areCached() throws IOException {
+
+        // arrange
+        PdfAssetCache assetCache = new PdfAssetCache(applicationProperties(Duration.ofMinutes(5)), svgRasterizer(), new SimpleMeterRegistry());
+        URL base = assetCache.toBaseUrl(new URL(baseUrl + "document.html"));
+
+        // act - relative and absolute URLs, like PD4ML resolves them
+        String first = read(new URL(base, "logo.png"));
+        String second = read(new URL(base, baseUrl + "logo.png"));
+
+        // assert
+        assertThat(first).isEqualTo("logo");
+        assertThat(second).isEqualTo("logo");
+        assertThat(fullResponses.get()).isEqualTo(1);
+    }
+
+    @Test
+    void assertThat_staleAsset_isRevalidatedWithEtag() throws IOException {
+
+        // arrange
+        PdfAssetCache assetCache = new PdfAssetCache(applicationProperties(Duration.ZERO), svgRasterizer(), new SimpleMeterRegistry());
+
+        // act
+        CachedAsset first = assetCache.get(baseUrl + "logo.png");
+        CachedAsset second = assetCache.get(baseUrl + "logo.png");
+
+        // assert
+        assertThat(second.content()).isEqualTo(first.content());
+        assertThat(second.contentType()).isEqualTo("image/png");
+        assertThat(fullResponses.get()).isEqualTo(1);
+        assertThat(notModifiedResponses.get()).isEqualTo(1);
+    }
+
+    @Test
+    void assertThat_localPrefix_isReadFromResource() throws IOException {
+
+        // arrange
+        ApplicationProperties applicationProperties = applicationProperties(Duration.ofMinutes(5));
+        PdfAssetCacheConfiguration.LocalMapping mapping = new PdfAssetCacheConfiguration.LocalMapping();
+        mapping.setPrefix("http://assets.local/");
+        mapping.setLocation("classpath:/static/");
+        applicationProperties.getPdfAssetCache().setLocalMappings(List.of(mapping));
+        PdfAssetCache assetCache = new PdfAssetCache(applicationProperties, svgRasterizer(), new SimpleMeterRegistry());
+
+        // act
+        CachedAsset asset = assetCache.get("http://assets.local/main.css");
+
+        // assert
+        assertThat(asset.local()).isTrue();
+        assertThat(asset.content()).isNotEmpty();
+        assertThatThrownBy(() -> assetCache.get("http://assets.local/unknown.css"))
+            .isInstanceOf(FileNotFoundException.class);
+        assertThat(fullResponses.get()).isZero();
+    }
+
+    @Test
+    void assertThat_localPrefix_rejectsPathsOutsideOfLocation(@TempDir Path directory) throws IOException {
+
+        // arrange - a secret file next to the asset directory
+        Path assets = Files.createDirectory(directory.resolve("assets"));
+        Files.writeString(assets.resolve("main.css"), "body {}");
+        Files.writeString(directory.resolve("secret.txt"), "secret");
+        ApplicationProperties applicationProperties = applicationProperties(Duration.ofMinutes(5));
+        PdfAssetCacheConfiguration.LocalMapping mapping = new PdfAssetCacheConfiguration.LocalMapping();
+        mapping.setPrefix("http://assets.local/");
+        mapping.setLocation(assets.toUri().toString());
+        applicationProperties.getPdfAssetCache().setLocalMappings(List.of(mapping));
+        PdfAssetCache assetCache = new PdfAssetCache(applicationProperties, svgRasterizer(), new SimpleMeterRegistry());
+
+        // act + assert
+        assertThat(assetCache.get("http://assets.local/./%6dain.css").content()).isEqualTo("body {}".getBytes(StandardCharsets.UTF_8));
+        for (String path : List.of("../secret.txt", "%2e%2e/secret.txt", "%2E%2E%2Fsecret.txt", "..%5csecret.txt",
+            "..\\secret.txt", "%252e%252e/secret.txt", "x/../../secret.txt")) {
+            assertThatThrownBy(() -> assetCache.get("http://assets.local/" + path))
+                .as(path)
+                .isInstanceOf(FileNotFoundException.class);
+        }
+        assertThat(fullResponses.get()).isZero();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static ApplicationProperties applicationProperties(Duration revalidateAfter) {
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPdfAssetCache().setRevalidateAfter(revalidateAfter);
+        return applicationProperties;
+    }
+
+    private static SvgRasterizer svgRasterizer() {
+        return new SvgRasterizer(new ApplicationProperties(), new SimpleMeterRegistry());
+    }
+
+    private static String read(URL url) throws IOException {
+
+        try (InputStream in = url.openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
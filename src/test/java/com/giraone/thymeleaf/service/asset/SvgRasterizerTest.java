@@ -0,0 +1,73 @@
+package com.giraone.thymeleaf.service.asset;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class SvgRasterizerTest {
+
+    private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"40\" height=\"20\">"
+        + "<rect width=\"40\" height=\"20\" fill=\"red\"/></svg>";
+
+    @Test
+    void assertThat_sameSvgContent_isRasterizedOnce() throws IOException {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SvgRasterizer rasterizer = new SvgRasterizer(applicationProperties(2.0), meterRegistry);
+        CachedAsset svg = svg(SVG);
+
+        // act
+        CachedAsset first = rasterizer.rasterize("http://a/logo.svg", svg);
+        CachedAsset second = rasterizer.rasterize("http://b/other-name.svg", svg);
+
+        // assert
+        assertThat(rasterizer.isApplicable("http://a/logo.svg", svg)).isTrue();
+        assertThat(second).isSameAs(first);
+        assertThat(first.contentType()).isEqualTo("image/png");
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(first.content()));
+        assertThat(image.getWidth()).isEqualTo(80);
+        assertThat(image.getHeight()).isEqualTo(40);
+        assertThat(image.getRGB(10, 10)).isEqualTo(0xffff0000);
+        assertThat(meterRegistry.get("pdf.svg.rasterize").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void assertThat_invalidSvg_isReplacedByErrorImage() throws IOException {
+
+        // arrange
+        SvgRasterizer rasterizer = new SvgRasterizer(applicationProperties(1.0), new SimpleMeterRegistry());
+
+        // act
+        CachedAsset result = rasterizer.rasterize("http://a/broken.svg", svg("<svg><rect"));
+
+        // assert
+        assertThat(ImageIO.read(new ByteArrayInputStream(result.content()))).isNotNull();
+        assertThat(rasterizer.isApplicable("http://a/photo.png", new CachedAsset(new byte[1], "image/png", null, null, 0L, false)))
+            .isFalse();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static ApplicationProperties applicationProperties(double scale) {
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPdfSvgRasterCache().setEnabled(true);
+        applicationProperties.getPdfSvgRasterCache().setScale(scale);
+        return applicationProperties;
+    }
+
+    private static CachedAsset svg(String content) {
+        return new CachedAsset(content.getBytes(StandardCharsets.UTF_8), "image/svg+xml", null, null, 0L, false);
+    }
+}
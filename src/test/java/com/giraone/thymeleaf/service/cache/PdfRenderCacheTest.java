@@ -0,0 +1,66 @@
+package com.giraone.thymeleaf.service.cache;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class PdfRenderCacheTest {
+
+    private static final PreparedTemplate TEMPLATE = PreparedTemplate.of("<div th:text=\"${name}\">X</div>", null);
+    private static final byte[] PDF = "%PDF-1.4".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    void assertThat_key_dependsOnAllInputs() {
+
+        PdfRenderCache cache = new PdfRenderCache(new ApplicationProperties(), new SimpleMeterRegistry());
+
+        String key = cache.keyOf(TEMPLATE, "{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(cache.keyOf(TEMPLATE, "{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8))).isEqualTo(key);
+        assertThat(cache.keyOf(TEMPLATE, "{\"name\":\"b\"}".getBytes(StandardCharsets.UTF_8))).isNotEqualTo(key);
+        assertThat(cache.keyOf(PreparedTemplate.of(TEMPLATE.templateContent(), "div {}"), "{\"name\":\"a\"}".getBytes(StandardCharsets.UTF_8)))
+            .isNotEqualTo(key);
+    }
+
+    @Test
+    void assertThat_ifNoneMatch_isComparedWeakly() {
+
+        PdfRenderCache cache = new PdfRenderCache(new ApplicationProperties(), new SimpleMeterRegistry());
+        String etag = PdfRenderCache.etagOf("abc");
+
+        assertThat(etag).isEqualTo("W/\"abc\"");
+        assertThat(cache.isNotModified("\"x\", W/\"abc\"", etag)).isTrue();
+        assertThat(cache.isNotModified("\"abc\"", etag)).isTrue();
+        assertThat(cache.isNotModified("\"abcd\"", etag)).isFalse();
+        assertThat(cache.isNotModified(null, etag)).isFalse();
+    }
+
+    @Test
+    void assertThat_diskTier_survivesNewInstance(@TempDir Path directory) {
+
+        // arrange
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPdfRenderCache().setEnabled(true);
+        applicationProperties.getPdfRenderCache().setDiskDirectory(directory.toString());
+        PdfRenderCache cache = new PdfRenderCache(applicationProperties, new SimpleMeterRegistry());
+
+        // act
+        cache.put("k1", PDF);
+
+        // assert
+        assertThat(cache.get("k1")).isEqualTo(PDF);
+        PdfRenderCache restarted = new PdfRenderCache(applicationProperties, new SimpleMeterRegistry());
+        assertThat(restarted.get("k1")).isEqualTo(PDF);
+        assertThat(restarted.get("k2")).isNull();
+        restarted.clear();
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+}
@@ -0,0 +1,71 @@
+package com.giraone.thymeleaf.service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("squid:S100") // Naming
+class SingleFlightTest {
+
+    @Test
+    void assertThat_concurrentCallsWithSameKey_shareOneExecution() throws Exception {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SingleFlight<String, byte[]> singleFlight = new SingleFlight<>("test", meterRegistry);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // act
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new byte[]{1, 2, 3};
+            })));
+        }
+        while (meterRegistry.get("test.coalesced").counter().count() < 3.0) {
+            Thread.sleep(10L);
+        }
+        release.countDown();
+
+        // assert
+        byte[] first = futures.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<byte[]> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("test.in.flight").gauge().value()).isEqualTo(0.0);
+        executor.shutdown();
+    }
+
+    @Test
+    void assertThat_failure_isNotRemembered() throws IOException {
+
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IOException("failed");
+        })).isInstanceOf(IOException.class).hasMessage("failed");
+        assertThat(singleFlight.execute("key", () -> "ok")).isEqualTo("ok");
+    }
+}
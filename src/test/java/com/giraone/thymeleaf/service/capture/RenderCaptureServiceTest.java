@@ -0,0 +1,73 @@
+package com.giraone.thymeleaf.service.capture;
+
+import com.giraone.thymeleaf.common.JsonUtil;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.PreparedTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class RenderCaptureServiceTest {
+
+    @Test
+    void assertThat_anonymize_keepsShape() throws Exception {
+
+        // arrange
+        String json = "{\"name\":\"Max Müller\",\"born\":\"2022-01-31\",\"salary\":-4711.25,\"count\":42,"
+            + "\"active\":true,\"note\":null,\"items\":[{\"id\":\"A-7\"},{\"id\":\"b\"}]}\n{\"name\":\"Eva\"}";
+
+        // act
+        String anonymized = DataAnonymizer.anonymize(json.getBytes(StandardCharsets.UTF_8));
+
+        // assert
+        assertThat(anonymized).isEqualTo("{\"name\":\"Xxx Xxxxxx\",\"born\":\"1111-11-11\",\"salary\":-1111.11,\"count\":11,"
+            + "\"active\":true,\"note\":null,\"items\":[{\"id\":\"X-1\"},{\"id\":\"x\"}]}\n{\"name\":\"Xxx\"}");
+    }
+
+    @Test
+    void assertThat_capturedRequests_areWrittenToSpool(@TempDir Path tempDir) throws Exception {
+
+        // arrange
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getRenderCapture().setEnabled(true);
+        applicationProperties.getRenderCapture().setDirectory(tempDir.toString());
+        RenderCaptureService service = new RenderCaptureService(applicationProperties, new SimpleMeterRegistry());
+        service.init();
+        PreparedTemplate template = PreparedTemplate.of("<div th:text=\"${name}\">X</div>", "div { color: red; }");
+        CapturedRender render = new CapturedRender(Instant.now(), "/api/json-to-html", "/api/json-to-html", null, true,
+            "application/json", null, null, 17L, 200, 12.5, "json;dur=1.0");
+
+        // act
+        assertThat(service.sample()).isTrue();
+        service.capture(render, template, "{\"name\":\"Secret\"}".getBytes(StandardCharsets.UTF_8));
+        service.capture(render, template, "no json".getBytes(StandardCharsets.UTF_8));
+        service.destroy();
+
+        // assert
+        Path templates = tempDir.resolve(RenderCaptureService.TEMPLATES_DIRECTORY);
+        assertThat(templates.resolve(template.key() + RenderCaptureService.TEMPLATE_SUFFIX)).hasContent(template.templateContent());
+        assertThat(templates.resolve(template.key() + RenderCaptureService.CSS_SUFFIX)).hasContent(template.cssContent());
+        List<String> lines;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            Path spoolFile = files.filter(file -> file.toString().endsWith(RenderCaptureService.SPOOL_FILE_SUFFIX)).findFirst().orElseThrow();
+            lines = Files.readAllLines(spoolFile);
+        }
+        assertThat(lines).hasSize(2);
+        CapturedRender first = JsonUtil.convert(lines.get(0), CapturedRender.class);
+        assertThat(first.templateHash()).isEqualTo(template.key());
+        assertThat(first.data()).isEqualTo("{\"name\":\"Xxxxxx\"}");
+        assertThat(first.dataSize()).isEqualTo(17L);
+        assertThat(first.stages()).isEqualTo("json;dur=1.0");
+        assertThat(JsonUtil.convert(lines.get(1), CapturedRender.class).data()).isNull();
+    }
+}
@@ -1,6 +1,12 @@
 package com.giraone.thymeleaf.service.convert;
 
 import com.giraone.thymeleaf.common.assertions.pdf.PdfContentAssertion;
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import com.giraone.thymeleaf.service.asset.AssetPrefetcher;
+import com.giraone.thymeleaf.service.asset.PdfAssetCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.pdfbox.io.RandomAccessBuffer;
 import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -27,6 +33,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class HtmlToPdfConverterTest {
@@ -122,6 +131,32 @@ class HtmlToPdfConverterTest {
         checkWithPdfBoxParsing(outFile);
     }
 
+    @Test
+    public void generatePdf_releasesRenderSlot_whenEngineCreationFails() {
+
+        // Arrange - one render slot, no queue and a font registry, that cannot provide the fonts
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPdfRenderLimit().setMaxConcurrentRenders(1);
+        applicationProperties.getPdfRenderLimit().setMaxQueuedRenders(0);
+        applicationProperties.getPd4mlPool().setEnabled(true);
+        Pd4mlFontRegistry fontRegistry = mock(Pd4mlFontRegistry.class);
+        when(fontRegistry.getFontDirectory()).thenThrow(new IllegalStateException("Fonts not registered"));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HtmlToPdfConverter converter = new HtmlToPdfConverter(applicationProperties, fontRegistry, mock(PdfAssetCache.class),
+            mock(AssetPrefetcher.class), mock(RenderMetrics.class), meterRegistry);
+        PdfCreationOptions pdfCreationOptions = new PdfCreationOptions("Test-Title", "Test-Autor", false);
+
+        // Act/Assert - without a released slot, the second render would be rejected
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> converter.generatePdfStreamFromHtmlString("<html></html>", new ByteArrayOutputStream(), pdfCreationOptions))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Fonts not registered");
+        }
+        assertThat(meterRegistry.get("pdf.renders.active").gauge().value()).isEqualTo(0.0);
+        assertThat(meterRegistry.get("pdf.renders.rejected").counter().count()).isEqualTo(0.0);
+        converter.shutdown();
+    }
+
     //------------------------------------------------------------------------------------------------------------------
 
     private void checkWithPdfBoxParsing(File fileToTest) throws IOException {
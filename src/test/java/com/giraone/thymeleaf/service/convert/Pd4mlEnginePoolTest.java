@@ -0,0 +1,86 @@
+package com.giraone.thymeleaf.service.convert;
+
+import com.pd4ml.PD4ML;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@SuppressWarnings("squid:S100") // Naming
+class Pd4mlEnginePoolTest {
+
+    @Test
+    void assertThat_healthyInstance_isReusedUntilWornOut() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Pd4mlEnginePool pool = new Pd4mlEnginePool(configuration(1, 2, 2), () -> mock(PD4ML.class), meterRegistry);
+
+        // act
+        Pd4mlEnginePool.PooledEngine first = pool.borrow();
+        pool.giveBack(first, true);
+        Pd4mlEnginePool.PooledEngine second = pool.borrow();
+        pool.giveBack(second, true);
+        Pd4mlEnginePool.PooledEngine third = pool.borrow();
+
+        // assert - the initial instance is used twice and then retired
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        assertThat(meterRegistry.get("pd4ml.pool.created").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("pd4ml.pool.discarded").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("pd4ml.pool.active").gauge().value()).isEqualTo(1.0);
+        pool.shutdown();
+    }
+
+    @Test
+    void assertThat_failedInstance_isDiscarded() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Pd4mlEnginePool pool = new Pd4mlEnginePool(configuration(0, 2, 100), () -> mock(PD4ML.class), meterRegistry);
+
+        // act
+        Pd4mlEnginePool.PooledEngine failed = pool.borrow();
+        pool.giveBack(failed, false);
+        Pd4mlEnginePool.PooledEngine next = pool.borrow();
+
+        // assert
+        assertThat(next).isNotSameAs(failed);
+        assertThat(meterRegistry.get("pd4ml.pool.idle").gauge().value()).isEqualTo(0.0);
+        assertThat(meterRegistry.get("pd4ml.pool.discarded").counter().count()).isEqualTo(1.0);
+        pool.shutdown();
+    }
+
+    @Test
+    void assertThat_initialInstances_surviveEvictionWithinIdleTimeout() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Pd4mlEnginePool pool = new Pd4mlEnginePool(configuration(2, 2, 100), () -> mock(PD4ML.class), meterRegistry);
+
+        // act
+        pool.evictIdle();
+
+        // assert
+        assertThat(meterRegistry.get("pd4ml.pool.idle").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("pd4ml.pool.discarded").counter().count()).isZero();
+        pool.shutdown();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private static Pd4mlPoolConfiguration configuration(int initialSize, int maxIdle, int maxUsesPerInstance) {
+
+        Pd4mlPoolConfiguration configuration = new Pd4mlPoolConfiguration();
+        configuration.setEnabled(true);
+        configuration.setInitialSize(initialSize);
+        configuration.setMaxIdle(maxIdle);
+        configuration.setIdleTimeout(Duration.ofMinutes(1));
+        configuration.setMaxUsesPerInstance(maxUsesPerInstance);
+        return configuration;
+    }
+}
@@ -0,0 +1,35 @@
+package com.giraone.thymeleaf.service.convert;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class Pd4mlFontRegistryTest {
+
+    @Test
+    void assertThat_defaultFonts_areIndexed() {
+
+        Pd4mlFontRegistry fontRegistry = new Pd4mlFontRegistry(null, null);
+
+        assertThat(fontRegistry.getFontDirectory()).isEqualTo(Pd4mlFontRegistry.PD4ML_FONTS_URI);
+        assertThat(fontRegistry.getFontNames()).containsExactly("Bad Script", "Roboto", "Roboto Italic");
+    }
+
+    @Test
+    void assertThat_fontDirectory_isIndexed() {
+
+        Pd4mlFontRegistry fontRegistry = new Pd4mlFontRegistry("src/main/resources/defaultfonts", null);
+
+        assertThat(fontRegistry.getFontDirectory()).isEqualTo("src/main/resources/defaultfonts");
+        assertThat(fontRegistry.getFontNames()).containsExactly("Bad Script", "Roboto", "Roboto Italic");
+    }
+
+    @Test
+    void assertThat_directoryWithoutIndex_hasNoFontNames() {
+
+        Pd4mlFontRegistry fontRegistry = new Pd4mlFontRegistry("src/main/resources/images", null);
+
+        assertThat(fontRegistry.getFontNames()).isEmpty();
+    }
+}
@@ -0,0 +1,59 @@
+package com.giraone.thymeleaf.service.convert;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("squid:S100") // Naming
+class PdfRenderBulkheadTest {
+
+    @Test
+    void assertThat_fullQueue_rejectsImmediately() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PdfRenderBulkhead bulkhead = new PdfRenderBulkhead(configuration(1, 0, Duration.ofMinutes(1)), meterRegistry);
+        bulkhead.acquire();
+
+        // act/assert
+        assertThat(meterRegistry.get("pdf.renders.active").gauge().value()).isEqualTo(1.0);
+        assertThatThrownBy(bulkhead::acquire)
+            .isInstanceOf(PdfRenderRejectedException.class)
+            .hasMessageContaining("queue is full");
+        assertThat(meterRegistry.get("pdf.renders.rejected").counter().count()).isEqualTo(1.0);
+
+        bulkhead.release();
+        bulkhead.acquire();
+        bulkhead.release();
+        assertThat(meterRegistry.get("pdf.renders.active").gauge().value()).isEqualTo(0.0);
+    }
+
+    @Test
+    void assertThat_exceededWaitTime_rejects() {
+
+        // arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PdfRenderBulkhead bulkhead = new PdfRenderBulkhead(configuration(1, 10, Duration.ofMillis(50)), meterRegistry);
+        bulkhead.acquire();
+
+        // act/assert
+        assertThatThrownBy(bulkhead::acquire)
+            .isInstanceOf(PdfRenderRejectedException.class)
+            .satisfies(e -> assertThat(((PdfRenderRejectedException) e).getRetryAfterSeconds()).isPositive());
+        assertThat(meterRegistry.get("pdf.renders.queued").gauge().value()).isEqualTo(0.0);
+        assertThat(meterRegistry.get("pdf.renders.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    private static PdfRenderLimitConfiguration configuration(int maxConcurrentRenders, int maxQueuedRenders, Duration maxWait) {
+        PdfRenderLimitConfiguration configuration = new PdfRenderLimitConfiguration();
+        configuration.setMaxConcurrentRenders(maxConcurrentRenders);
+        configuration.setMaxQueuedRenders(maxQueuedRenders);
+        configuration.setMaxWait(maxWait);
+        return configuration;
+    }
+}
@@ -0,0 +1,91 @@
+package com.giraone.thymeleaf.service.jfr;
+
+import com.giraone.thymeleaf.config.ApplicationProperties;
+import com.giraone.thymeleaf.service.RenderMetrics;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class JfrRecordingEndpointTest {
+
+    private final JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint(new ApplicationProperties());
+
+    @AfterEach
+    void tearDown() {
+        endpoint.shutdown();
+    }
+
+    @Test
+    void assertThat_renderEvents_areRecordedAndDumped(@TempDir Path tempDir) throws Exception {
+
+        // arrange
+        endpoint.start(Duration.ofHours(5), DataSize.ofMegabytes(10));
+
+        // act
+        try (RenderMetrics.Scope ignored = RenderMetrics.open("/api/json-to-pdf")) {
+            HtmlRenderEvent.started().finish("abc", 1000L, false);
+            PdfRenderEvent.started().finish(null, 2000L, true);
+        }
+        Resource dump = endpoint.dump(JfrRecordingEndpoint.DUMP);
+        Path file = tempDir.resolve("dump.jfr");
+        try (InputStream in = dump.getInputStream()) {
+            Files.copy(in, file);
+        }
+
+        // assert
+        assertThat(endpoint.status()).containsEntry("state", "RUNNING")
+            .containsEntry("maxAge", Duration.ofMinutes(10))
+            .containsEntry("maxSize", DataSize.ofMegabytes(10));
+        List<RecordedEvent> allEvents = RecordingFile.readAllEvents(file);
+        assertThat(allEvents).noneMatch(event -> List.of(JfrRecordingEndpoint.SECRET_EVENTS).contains(event.getEventType().getName()));
+        List<RecordedEvent> events = allEvents.stream()
+            .filter(event -> event.getEventType().getName().startsWith("com.giraone.thymeleaf."))
+            .toList();
+        assertThat(events).hasSize(2);
+        RecordedEvent html = events.stream().filter(event -> event.getEventType().getName().equals(HtmlRenderEvent.NAME)).findFirst().orElseThrow();
+        assertThat(html.getString("templateHash")).isEqualTo("abc");
+        assertThat(html.getString("endpoint")).isEqualTo("/api/json-to-pdf");
+        assertThat(html.getLong("outputSize")).isEqualTo(1000L);
+        assertThat(html.getBoolean("failed")).isFalse();
+        RecordedEvent pdf = events.stream().filter(event -> event.getEventType().getName().equals(PdfRenderEvent.NAME)).findFirst().orElseThrow();
+        assertThat(pdf.getBoolean("failed")).isTrue();
+    }
+
+    @Test
+    void assertThat_renderStartedBeforeRecording_isNotRecorded(@TempDir Path tempDir) throws Exception {
+
+        // arrange - the render starts, while no recording is running
+        HtmlRenderEvent event = HtmlRenderEvent.started();
+        endpoint.start(null, null);
+
+        // act
+        event.finish("abc", 1000L, false);
+
+        // assert
+        Path file = tempDir.resolve("dump.jfr");
+        try (InputStream in = endpoint.dump(JfrRecordingEndpoint.DUMP).getInputStream()) {
+            Files.copy(in, file);
+        }
+        assertThat(RecordingFile.readAllEvents(file)).noneMatch(recorded -> recorded.getEventType().getName().equals(HtmlRenderEvent.NAME));
+    }
+
+    @Test
+    void assertThat_withoutRecording_nothingIsDumped() {
+
+        assertThat(endpoint.status()).containsEntry("state", "NEW");
+        assertThat(endpoint.dump(JfrRecordingEndpoint.DUMP)).isNull();
+    }
+}
@@ -0,0 +1,482 @@
+package com.giraone.thymeleaf.testdata;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.giraone.thymeleaf.common.CountingOutputStream;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Generates large, repeatable JSON data sets from a JSON schema, e.g.
+ * {@code src/test/resources/testdata/input/persons-table/persons-schema.json}. The data is streamed, so data sets of
+ * several hundred MB need no memory. Supported are the types, {@code enum}, {@code const}, {@code $ref} within the
+ * schema, {@code allOf}/{@code anyOf}/{@code oneOf}, the formats {@code date}, {@code date-time}, {@code email} and
+ * {@code uri} and the limits {@code minLength}/{@code maxLength}, {@code minimum}/{@code maximum},
+ * {@code exclusiveMinimum}/{@code exclusiveMaximum} and {@code minItems}/{@code maxItems}.
+ * <p>
+ * The arrays on the first level of the schema (or the root array) are the rows: they get {@link #withRows(int)}
+ * elements or are filled until the data has {@link #withSize(DataSize)}. Nested arrays get up to
+ * {@link #withNestedItems(int)} elements. Names, cities and words are taken from small lists, other strings are
+ * built from syllables. With {@link #withUnicodeMix(double)} this fraction of the names and characters is taken from
+ * non-ASCII scripts. The same seed and options produce the same bytes.
+ * <p>
+ * Usage from the command line:
+ * <pre>
+ * SchemaDataGenerator --schema persons-schema.json --output persons-100MB.json --size 100MB --unicode 0.2
+ * </pre>
+ */
+public final class SchemaDataGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] FIRST_NAMES = {"Anna", "Ben", "Clara", "David", "Emma", "Felix", "Hannah", "Jonas",
+        "Laura", "Lukas", "Marie", "Noah", "Paul", "Sarah", "Tom"};
+    private static final String[] FIRST_NAMES_UNICODE = {"Jürgen", "Zoë", "Łukasz", "Søren", "José", "Ånund", "Çelik",
+        "Νίκος", "Ольга", "Đorđe", "Ingibjörg", "Françoise", "美咲", "翔太", "Şebnem"};
+    private static final String[] LAST_NAMES = {"Smith", "Miller", "Schmidt", "Fischer", "Weber", "Wagner", "Becker",
+        "Hoffmann", "Koch", "Richter", "Klein", "Wolf", "Neumann", "Schwarz", "Brown"};
+    private static final String[] LAST_NAMES_UNICODE = {"Müller", "Schäfer", "Größer", "Łęcki", "Østergård", "Núñez",
+        "Dvořák", "Παπαδόπουλος", "Иванова", "Yılmaz", "Þórsdóttir", "Lefèvre", "佐藤", "高橋", "Nguyễn"};
+    private static final String[] CITIES = {"Berlin", "Hamburg", "Cologne", "Frankfurt", "Stuttgart", "Leipzig",
+        "Dresden", "Hanover", "Bremen", "Essen"};
+    private static final String[] CITIES_UNICODE = {"München", "Düsseldorf", "Kraków", "Århus", "Zürich", "Málaga",
+        "Αθήνα", "Москва", "東京", "Île-de-France"};
+    private static final String[] SYLLABLES = {"ka", "ren", "to", "mi", "sol", "an", "ber", "li", "na", "ter", "do",
+        "ra", "ven", "ge", "ist", "um", "pro", "sta", "lo", "fe"};
+    // Letters of other scripts, an emoji and a combining character
+    private static final String[] UNICODE_CHARACTERS = {"ä", "ö", "ü", "ß", "é", "ñ", "ø", "ł", "č", "α", "β", "λ",
+        "ж", "я", "д", "中", "文", "字", "日", "本", "😀", "e\u0301"};
+
+    private final JsonNode schema;
+    private int rows = 100;
+    private long sizeBytes;
+    private int nestedItems = 5;
+    private int minStringLength = 5;
+    private int maxStringLength = 20;
+    private double unicodeMix;
+    private double optionalProbability = 0.8;
+    private long seed = 1L;
+
+    private SplittableRandom random;
+    private CountingOutputStream counter;
+
+    private SchemaDataGenerator(JsonNode schema) {
+        this.schema = schema;
+    }
+
+    public static SchemaDataGenerator of(Path schemaFile) throws IOException {
+        return new SchemaDataGenerator(MAPPER.readTree(schemaFile.toFile()));
+    }
+
+    public static SchemaDataGenerator of(JsonNode schema) {
+        return new SchemaDataGenerator(schema);
+    }
+
+    /**
+     * @param rows number of elements of each row array, default is 100
+     * @return this generator
+     */
+    public SchemaDataGenerator withRows(int rows) {
+        this.rows = rows;
+        return this;
+    }
+
+    /**
+     * @param size minimum size of the data - the first row array is filled until it is reached, the other row arrays
+     *             get their {@code minItems}
+     * @return this generator
+     */
+    public SchemaDataGenerator withSize(DataSize size) {
+        this.sizeBytes = size.toBytes();
+        return this;
+    }
+
+    /**
+     * @param nestedItems maximum number of elements of nested arrays, default is 5
+     * @return this generator
+     */
+    public SchemaDataGenerator withNestedItems(int nestedItems) {
+        this.nestedItems = nestedItems;
+        return this;
+    }
+
+    /**
+     * @param min minimum length of strings without {@code minLength}, default is 5
+     * @param max maximum length of strings without {@code maxLength}, default is 20
+     * @return this generator
+     */
+    public SchemaDataGenerator withStringLength(int min, int max) {
+        this.minStringLength = min;
+        this.maxStringLength = max;
+        return this;
+    }
+
+    /**
+     * @param unicodeMix fraction of non-ASCII names and characters - 0.0 (default) to 1.0
+     * @return this generator
+     */
+    public SchemaDataGenerator withUnicodeMix(double unicodeMix) {
+        this.unicodeMix = unicodeMix;
+        return this;
+    }
+
+    /**
+     * @param optionalProbability probability of properties, that are not required, default is 0.8
+     * @return this generator
+     */
+    public SchemaDataGenerator withOptionalProbability(double optionalProbability) {
+        this.optionalProbability = optionalProbability;
+        return this;
+    }
+
+    public SchemaDataGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Write the data as UTF-8 JSON.
+     *
+     * @param out the stream - it is not closed
+     * @return the number of bytes written
+     * @throws IOException on any IO error
+     */
+    public long write(OutputStream out) throws IOException {
+
+        random = new SplittableRandom(seed);
+        counter = new CountingOutputStream(out);
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(counter, JsonEncoding.UTF8)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            writeValue(generator, schema, "", 0, true);
+        }
+        return counter.getCount();
+    }
+
+    public byte[] generate() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out);
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length && args[i].startsWith("--"); i += 2) {
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!options.containsKey("schema") || !options.containsKey("output")) {
+            System.err.println("Usage: SchemaDataGenerator --schema <schema.json> --output <data.json>"
+                + " [--rows <n> | --size <e.g. 100MB>] [--nested-items <n>] [--string-length <min>-<max>]"
+                + " [--unicode <0.0-1.0>] [--optional <0.0-1.0>] [--seed <n>]");
+            System.exit(2);
+        }
+        final SchemaDataGenerator generator = SchemaDataGenerator.of(Path.of(options.get("schema")))
+            .withRows(Integer.parseInt(options.getOrDefault("rows", "100")))
+            .withNestedItems(Integer.parseInt(options.getOrDefault("nested-items", "5")))
+            .withUnicodeMix(Double.parseDouble(options.getOrDefault("unicode", "0.0")))
+            .withOptionalProbability(Double.parseDouble(options.getOrDefault("optional", "0.8")))
+            .withSeed(Long.parseLong(options.getOrDefault("seed", "1")));
+        if (options.containsKey("size")) {
+            generator.withSize(DataSize.parse(options.get("size")));
+        }
+        if (options.containsKey("string-length")) {
+            final String[] range = options.get("string-length").split("-");
+            generator.withStringLength(Integer.parseInt(range[0]), Integer.parseInt(range[range.length - 1]));
+        }
+
+        final Path output = Path.of(options.get("output"));
+        final long start = System.nanoTime();
+        final long bytes;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 64 * 1024)) {
+            bytes = generator.write(out);
+        }
+        System.out.printf("%d bytes written to %s in %d ms%n", bytes, output.toAbsolutePath(),
+            (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+
+    private void writeValue(JsonGenerator generator, JsonNode node, String name, int depth, boolean rowLevel)
+        throws IOException {
+
+        final JsonNode resolved = resolve(node);
+        if (resolved.has("const")) {
+            generator.writeTree(resolved.get("const"));
+            return;
+        }
+        if (resolved.has("enum")) {
+            final JsonNode values = resolved.get("enum");
+            generator.writeTree(values.get(random.nextInt(values.size())));
+            return;
+        }
+        switch (type(resolved)) {
+            case "object" -> writeObject(generator, resolved, depth);
+            case "array" -> writeArray(generator, resolved, name, depth, rowLevel);
+            case "string" -> generator.writeString(string(resolved, name));
+            case "integer" -> generator.writeNumber(randomInRange(resolved, 0, 1000L));
+            case "number" -> generator.writeNumber(BigDecimal.valueOf(randomInRange(resolved, 2, 1_000_000L), 2));
+            case "boolean" -> generator.writeBoolean(random.nextBoolean());
+            default -> generator.writeNull();
+        }
+    }
+
+    private void writeObject(JsonGenerator generator, JsonNode node, int depth) throws IOException {
+
+        final Set<String> required = new LinkedHashSet<>();
+        node.path("required").forEach(value -> required.add(value.asText()));
+        generator.writeStartObject();
+        final Iterator<Map.Entry<String, JsonNode>> properties = node.path("properties").fields();
+        while (properties.hasNext()) {
+            final Map.Entry<String, JsonNode> property = properties.next();
+            if (required.contains(property.getKey()) || random.nextDouble() < optionalProbability) {
+                generator.writeFieldName(property.getKey());
+                writeValue(generator, property.getValue(), property.getKey(), depth + 1, depth == 0);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeArray(JsonGenerator generator, JsonNode node, String name, int depth, boolean rowLevel)
+        throws IOException {
+
+        final int minItems = node.path("minItems").asInt(0);
+        final JsonNode items = node.path("items");
+        generator.writeStartArray();
+        if (rowLevel && sizeBytes > 0) {
+            for (int i = 0; i < minItems || counter.getCount() + generator.getOutputBuffered() < sizeBytes; i++) {
+                writeValue(generator, items, name, depth + 1, false);
+            }
+        } else {
+            final int maxItems = node.path("maxItems").asInt(Integer.MAX_VALUE);
+            final int count = rowLevel
+                ? Math.max(minItems, Math.min(rows, maxItems))
+                : random.nextInt(minItems, Math.max(minItems, Math.min(nestedItems, maxItems)) + 1);
+            for (int i = 0; i < count; i++) {
+                writeValue(generator, items, name, depth + 1, false);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private String string(JsonNode node, String name) {
+
+        final String format = node.path("format").asText("");
+        switch (format) {
+            case "date" -> {
+                return LocalDate.of(1940, 1, 1).plusDays(random.nextInt(365 * 70)).toString();
+            }
+            case "date-time" -> {
+                return Instant.ofEpochSecond(1_500_000_000L + random.nextLong(300_000_000L)).toString();
+            }
+            case "email" -> {
+                return pick(FIRST_NAMES, FIRST_NAMES).toLowerCase(Locale.ROOT) + "."
+                    + pick(LAST_NAMES, LAST_NAMES).toLowerCase(Locale.ROOT) + "@example.com";
+            }
+            case "uri" -> {
+                return "https://example.com/" + word(4, 12);
+            }
+            default -> { /* free text */ }
+        }
+        final String lowerName = name.toLowerCase(Locale.ROOT);
+        if (lowerName.contains("firstname") || lowerName.contains("givenname")) {
+            return pick(FIRST_NAMES, FIRST_NAMES_UNICODE);
+        }
+        if (lowerName.contains("lastname") || lowerName.contains("surname") || lowerName.contains("familyname")) {
+            return pick(LAST_NAMES, LAST_NAMES_UNICODE);
+        }
+        if (lowerName.contains("city") || lowerName.contains("town")) {
+            return pick(CITIES, CITIES_UNICODE);
+        }
+        final int min = node.path("minLength").asInt(minStringLength);
+        final int max = Math.max(min, node.path("maxLength").asInt(Math.max(min, maxStringLength)));
+        return text(min, max);
+    }
+
+    // Words separated by blanks - the length is counted in code points
+    private String text(int min, int max) {
+
+        final int length = random.nextInt(min, max + 1);
+        final StringBuilder text = new StringBuilder(length + 8);
+        int codePoints = 0;
+        while (codePoints < length) {
+            if (codePoints > 0 && length - codePoints > 1) {
+                text.append(' ');
+                codePoints++;
+            }
+            final String word = word(1, length - codePoints);
+            text.append(word);
+            codePoints += word.codePointCount(0, word.length());
+        }
+        return text.toString();
+    }
+
+    private String word(int min, int max) {
+
+        final int length = random.nextInt(min, Math.max(min, Math.min(max, 12)) + 1);
+        final StringBuilder word = new StringBuilder(length + 4);
+        int codePoints = 0;
+        while (codePoints < length) {
+            if (unicodeMix > 0.0 && random.nextDouble() < unicodeMix) {
+                word.append(UNICODE_CHARACTERS[random.nextInt(UNICODE_CHARACTERS.length)]);
+                codePoints++;
+            } else {
+                final String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+                final String part = syllable.substring(0, Math.min(syllable.length(), length - codePoints));
+                word.append(part);
+                codePoints += part.length();
+            }
+        }
+        return word.toString();
+    }
+
+    /**
+     * Draw a number within the limits of the schema in units of 10^-scale. A missing limit is derived from the other
+     * one using the default range, so a schema with only a {@code minimum} or {@code maximum} is valid, too.
+     */
+    private long randomInRange(JsonNode node, int scale, long defaultRange) {
+
+        Long lower = bound(node, "minimum", "exclusiveMinimum", scale, RoundingMode.CEILING, 1L);
+        Long upper = bound(node, "maximum", "exclusiveMaximum", scale, RoundingMode.FLOOR, -1L);
+        if (lower == null) {
+            lower = upper == null ? 0L : saturatedAdd(upper, -defaultRange);
+        }
+        if (upper == null) {
+            upper = saturatedAdd(lower, defaultRange);
+        }
+        if (lower > upper) {
+            throw new IllegalArgumentException("Empty range of numbers in " + node);
+        }
+        if (upper < Long.MAX_VALUE) {
+            return random.nextLong(lower, upper + 1L);
+        }
+        return lower > Long.MIN_VALUE ? random.nextLong(lower - 1L, upper) + 1L : random.nextLong();
+    }
+
+    /**
+     * The inclusive limit in units of 10^-scale. The exclusive limit is either a number (draft 6 and later) or a
+     * boolean, that modifies {@code minimum}/{@code maximum} (draft 4).
+     */
+    private static Long bound(JsonNode node, String inclusiveName, String exclusiveName, int scale,
+                              RoundingMode rounding, long exclusiveStep) {
+
+        final JsonNode inclusive = node.path(inclusiveName);
+        final JsonNode exclusive = node.path(exclusiveName);
+        Long ret = null;
+        if (inclusive.isNumber()) {
+            ret = units(inclusive.decimalValue(), scale, rounding, exclusive.asBoolean(false), exclusiveStep);
+        }
+        if (exclusive.isNumber()) {
+            final long exclusiveUnits = units(exclusive.decimalValue(), scale, rounding, true, exclusiveStep);
+            ret = ret == null || (exclusiveStep > 0 ? exclusiveUnits > ret : exclusiveUnits < ret) ? exclusiveUnits : ret;
+        }
+        return ret;
+    }
+
+    private static long units(BigDecimal value, int scale, RoundingMode rounding, boolean exclusive, long exclusiveStep) {
+
+        final BigDecimal scaled = value.movePointRight(scale);
+        BigDecimal ret = scaled.setScale(0, rounding);
+        // An exclusive limit, that is a whole number of units, is not part of the range
+        if (exclusive && ret.compareTo(scaled) == 0) {
+            ret = ret.add(BigDecimal.valueOf(exclusiveStep));
+        }
+        return ret.max(BigDecimal.valueOf(Long.MIN_VALUE)).min(BigDecimal.valueOf(Long.MAX_VALUE)).longValue();
+    }
+
+    private static long saturatedAdd(long value, long delta) {
+        try {
+            return Math.addExact(value, delta);
+        } catch (ArithmeticException e) {
+            return delta > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+
+    private String pick(String[] ascii, String[] unicode) {
+        final String[] values = unicodeMix > 0.0 && random.nextDouble() < unicodeMix ? unicode : ascii;
+        return values[random.nextInt(values.length)];
+    }
+
+    private JsonNode resolve(JsonNode node) {
+
+        JsonNode resolved = node;
+        while (resolved.has("$ref")) {
+            final String ref = resolved.get("$ref").asText();
+            if (!ref.startsWith("#")) {
+                throw new IllegalArgumentException("Only references within the schema are supported: " + ref);
+            }
+            resolved = schema.at(ref.substring(1));
+            if (resolved.isMissingNode()) {
+                throw new IllegalArgumentException("Reference " + ref + " not found in schema");
+            }
+        }
+        if (resolved.has("oneOf") || resolved.has("anyOf")) {
+            final JsonNode choices = resolved.has("oneOf") ? resolved.get("oneOf") : resolved.get("anyOf");
+            return resolve(choices.get(random.nextInt(choices.size())));
+        }
+        if (resolved.has("allOf")) {
+            return mergeAllOf(resolved);
+        }
+        return resolved;
+    }
+
+    // Properties and required properties of all parts of allOf
+    private JsonNode mergeAllOf(JsonNode node) {
+
+        final ObjectNode merged = MAPPER.createObjectNode().put("type", "object");
+        final ObjectNode properties = merged.putObject("properties");
+        final List<JsonNode> required = new ArrayList<>();
+        for (JsonNode part : node.get("allOf")) {
+            final JsonNode resolved = resolve(part);
+            // Parts without a type (e.g. only "required") are constraints of the merged object
+            if (resolved.has("type") && !"object".equals(resolved.get("type").asText())) {
+                return resolved;
+            }
+            if (resolved.has("properties")) {
+                properties.setAll((ObjectNode) resolved.get("properties").deepCopy());
+            }
+            resolved.path("required").forEach(required::add);
+        }
+        merged.putArray("required").addAll(required);
+        return merged;
+    }
+
+    private static String type(JsonNode node) {
+
+        final JsonNode type = node.get("type");
+        if (type == null) {
+            return node.has("properties") ? "object" : node.has("items") ? "array" : "string";
+        }
+        // For a list of types, the first one, that is not null
+        if (type.isArray()) {
+            for (JsonNode value : type) {
+                if (!"null".equals(value.asText())) {
+                    return value.asText();
+                }
+            }
+            return "null";
+        }
+        return type.asText();
+    }
+}
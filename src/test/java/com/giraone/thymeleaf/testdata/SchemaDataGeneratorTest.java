@@ -0,0 +1,142 @@
+package com.giraone.thymeleaf.testdata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("squid:S100") // Naming
+class SchemaDataGeneratorTest {
+
+    private static final Path PERSONS_SCHEMA = Path.of("src/test/resources/testdata/input/persons-table/persons-schema.json");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void assertThat_rows_matchSchema() throws Exception {
+
+        // act
+        byte[] json = SchemaDataGenerator.of(PERSONS_SCHEMA).withRows(500).withUnicodeMix(0.5).generate();
+
+        // assert
+        JsonNode data = MAPPER.readTree(json);
+        assertThat(data.get("groupName").isTextual()).isTrue();
+        assertThat(data.get("list")).hasSize(500);
+        for (JsonNode person : data.get("list")) {
+            assertThat(person.get("firstName").asText()).isNotBlank();
+            assertThat(person.get("lastName").asText()).isNotBlank();
+            assertThat(person.get("gender").asText()).isIn("FEMALE", "MALE", "DIVERS", "UNKNOWN");
+            assertThat(LocalDate.parse(person.get("dateOfBirth").asText())).isBefore(LocalDate.of(2011, 1, 1));
+            if (person.has("salary")) {
+                assertThat(person.get("salary").isNumber()).isTrue();
+            }
+        }
+        assertThat(new String(json, StandardCharsets.UTF_8)).matches("(?s).*[^\\x00-\\x7f].*");
+    }
+
+    @Test
+    void assertThat_sameSeed_producesSameData() throws Exception {
+
+        // arrange
+        SchemaDataGenerator generator = SchemaDataGenerator.of(PERSONS_SCHEMA).withRows(100).withSeed(42L);
+
+        // act
+        byte[] first = generator.generate();
+        byte[] second = generator.generate();
+        byte[] other = generator.withSeed(43L).generate();
+
+        // assert
+        assertThat(second).isEqualTo(first);
+        assertThat(other).isNotEqualTo(first);
+    }
+
+    @Test
+    void assertThat_size_isReached() throws Exception {
+
+        // arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // act
+        long bytes = SchemaDataGenerator.of(PERSONS_SCHEMA).withSize(DataSize.ofKilobytes(256)).write(out);
+
+        // assert
+        assertThat(bytes).isEqualTo(out.size()).isBetween(256L * 1024L, 257L * 1024L);
+        assertThat(MAPPER.readTree(out.toByteArray()).get("list").size()).isGreaterThan(1000);
+    }
+
+    @Test
+    void assertThat_nestedArraysAndReferences_areGenerated() throws Exception {
+
+        // arrange
+        JsonNode schema = MAPPER.readTree("{\"type\":\"array\",\"minItems\":1,\"items\":{\"$ref\":\"#/$defs/order\"},"
+            + "\"$defs\":{\"order\":{\"allOf\":[{\"properties\":{\"id\":{\"type\":\"integer\",\"minimum\":10,\"maximum\":20}}},"
+            + "{\"required\":[\"lines\"],\"properties\":{\"lines\":{\"type\":\"array\",\"minItems\":2,\"maxItems\":3,"
+            + "\"items\":{\"type\":\"object\",\"required\":[\"text\"],\"properties\":{\"text\":{\"type\":\"string\",\"minLength\":8,\"maxLength\":8}}}}}}]}}}");
+
+        // act
+        JsonNode data = MAPPER.readTree(SchemaDataGenerator.of(schema).withRows(20).withOptionalProbability(1.0).generate());
+
+        // assert
+        assertThat(data).hasSize(20);
+        for (JsonNode order : data) {
+            assertThat(order.get("id").asInt()).isBetween(10, 20);
+            assertThat(order.get("lines").size()).isBetween(2, 3);
+            List<String> texts = order.get("lines").findValuesAsText("text");
+            assertThat(texts).allMatch(text -> text.codePointCount(0, text.length()) == 8);
+        }
+    }
+
+    @Test
+    void assertThat_allOfWithUntypedConstraints_isMergedToObject() throws Exception {
+
+        // arrange
+        JsonNode schema = MAPPER.readTree("{\"type\":\"array\",\"items\":{\"allOf\":["
+            + "{\"properties\":{\"name\":{\"type\":\"string\"},\"note\":{\"type\":\"string\"}}},"
+            + "{\"required\":[\"name\"]}]}}");
+
+        // act
+        JsonNode data = MAPPER.readTree(SchemaDataGenerator.of(schema).withRows(10).withOptionalProbability(0.0).generate());
+
+        // assert
+        assertThat(data).hasSize(10);
+        for (JsonNode row : data) {
+            assertThat(row.isObject()).isTrue();
+            assertThat(row.has("name")).isTrue();
+            assertThat(row.has("note")).isFalse();
+        }
+    }
+
+    @Test
+    void assertThat_numbers_respectOpenAndExclusiveLimits() throws Exception {
+
+        // arrange
+        JsonNode schema = MAPPER.readTree("{\"type\":\"array\",\"items\":{\"type\":\"object\","
+            + "\"required\":[\"year\",\"amount\",\"id\",\"rate\",\"level\"],\"properties\":{"
+            + "\"year\":{\"type\":\"integer\",\"minimum\":1900},"
+            + "\"amount\":{\"type\":\"number\",\"minimum\":10000},"
+            + "\"id\":{\"type\":\"integer\",\"minimum\":" + (Long.MAX_VALUE - 1L) + ",\"maximum\":" + Long.MAX_VALUE + "},"
+            + "\"rate\":{\"type\":\"number\",\"exclusiveMinimum\":0,\"exclusiveMaximum\":0.02},"
+            + "\"level\":{\"type\":\"integer\",\"minimum\":1,\"maximum\":3,\"exclusiveMaximum\":true}}}}");
+
+        // act
+        JsonNode data = MAPPER.readTree(SchemaDataGenerator.of(schema).withRows(50).generate());
+
+        // assert
+        assertThat(data).hasSize(50);
+        for (JsonNode row : data) {
+            assertThat(row.get("year").asLong()).isBetween(1900L, 2900L);
+            assertThat(row.get("amount").decimalValue()).isBetween(new BigDecimal("10000"), new BigDecimal("20000"));
+            assertThat(row.get("id").asLong()).isGreaterThanOrEqualTo(Long.MAX_VALUE - 1L);
+            assertThat(row.get("rate").decimalValue()).isEqualByComparingTo("0.01");
+            assertThat(row.get("level").asInt()).isBetween(1, 2);
+        }
+    }
+}